@@ -0,0 +1,28 @@
+package ihor.kalaur.demo.benchmark;
+
+import ihor.kalaur.demo.DemoApplication;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+final class BenchmarkApplication {
+    private static final String[] APPLICATION_ARGS = {
+            "--spring.main.web-application-type=none",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=warn",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.datasource.driver-class-name=org.h2.Driver"
+    };
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraArgs) {
+        String[] args = Stream.concat(Arrays.stream(APPLICATION_ARGS), Arrays.stream(extraArgs))
+                .toArray(String[]::new);
+        return new SpringApplication(DemoApplication.class).run(args);
+    }
+}
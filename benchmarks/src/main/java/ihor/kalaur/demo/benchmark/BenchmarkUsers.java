@@ -0,0 +1,51 @@
+package ihor.kalaur.demo.benchmark;
+
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.model.User;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkUsers {
+    static final String EMAIL = "john.doe@example.com";
+    static final String FIRST_NAME = "John";
+    static final String LAST_NAME = "Doe";
+    static final LocalDate BIRTH_DATE = LocalDate.of(1990, 1, 1);
+    static final String ADDRESS = "123 Main St";
+    static final String PHONE_NUMBER = "+1234567890";
+
+    private BenchmarkUsers() {
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail(EMAIL);
+        user.setFirstName(FIRST_NAME);
+        user.setLastName(LAST_NAME);
+        user.setBirthDate(BIRTH_DATE);
+        user.setAddress(ADDRESS);
+        user.setPhoneNumber(PHONE_NUMBER);
+        user.setVersion(0L);
+        return user;
+    }
+
+    static UserDto userDto() {
+        return new UserDto(1L, EMAIL, FIRST_NAME, LAST_NAME, BIRTH_DATE, ADDRESS, PHONE_NUMBER, 0L);
+    }
+
+    // Distinct users, as a birth date search would return them
+    static List<UserDto> userDtos(int count) {
+        List<UserDto> users = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            users.add(new UserDto((long) i, "user" + i + "@example.com", FIRST_NAME, LAST_NAME,
+                    BIRTH_DATE.plusDays(i), ADDRESS, PHONE_NUMBER, 0L));
+        }
+        return users;
+    }
+
+    static CreateUserRequestDto createUserRequestDto(String email) {
+        return new CreateUserRequestDto(email, FIRST_NAME, LAST_NAME, BIRTH_DATE, ADDRESS, PHONE_NUMBER);
+    }
+}
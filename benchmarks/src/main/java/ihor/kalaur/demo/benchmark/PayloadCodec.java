@@ -0,0 +1,157 @@
+package ihor.kalaur.demo.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import ihor.kalaur.demo.converter.UserProtobufHttpMessageConverter;
+import ihor.kalaur.demo.dto.UserDto;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+// Turns a list of users into the bytes a client receives and back: encoded by the message converter the application
+// registers for the format, then compressed like the response
+final class PayloadCodec {
+    private static final Type USER_LIST_TYPE =
+            ResolvableType.forClassWithGenerics(List.class, UserDto.class).getType();
+    private static final int ZSTD_LEVEL = 3;
+
+    private final Format format;
+    private final Compression compression;
+    private final GenericHttpMessageConverter<Object> converter;
+
+    PayloadCodec(Format format, Compression compression) {
+        this.format = format;
+        this.compression = compression;
+        // Same settings Spring Boot applies to the ObjectMapper used by the controllers
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .factory(format.factory.get())
+                .build();
+        this.converter = format.converterFactory.apply(objectMapper);
+    }
+
+    byte[] encode(List<UserDto> users) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (OutputStream body = compression.compress(payload)) {
+            converter.write(users, USER_LIST_TYPE, format.mediaType, new BodyOutputMessage(body, new HttpHeaders()));
+        }
+        return payload.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    List<UserDto> decode(byte[] payload) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(format.mediaType);
+        try (InputStream body = compression.decompress(new ByteArrayInputStream(payload))) {
+            return (List<UserDto>) converter.read(USER_LIST_TYPE, null, new BodyInputMessage(body, headers));
+        }
+    }
+
+    enum Format {
+        JSON(MediaType.APPLICATION_JSON, JsonFactory::new, MappingJackson2HttpMessageConverter::new),
+        CBOR(MediaType.APPLICATION_CBOR, CBORFactory::new, MappingJackson2CborHttpMessageConverter::new),
+        SMILE(new MediaType("application", "x-jackson-smile"), SmileFactory::new,
+                MappingJackson2SmileHttpMessageConverter::new),
+        PROTOBUF(UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF, ProtobufFactory::new,
+                UserProtobufHttpMessageConverter::new);
+
+        private final MediaType mediaType;
+        private final Supplier<JsonFactory> factory;
+        private final Function<ObjectMapper, GenericHttpMessageConverter<Object>> converterFactory;
+
+        Format(MediaType mediaType, Supplier<JsonFactory> factory,
+                Function<ObjectMapper, GenericHttpMessageConverter<Object>> converterFactory) {
+            this.mediaType = mediaType;
+            this.factory = factory;
+            this.converterFactory = converterFactory;
+        }
+    }
+
+    enum Compression {
+        NONE {
+            @Override
+            OutputStream compress(OutputStream out) {
+                return out;
+            }
+
+            @Override
+            InputStream decompress(InputStream in) {
+                return in;
+            }
+        },
+        GZIP {
+            @Override
+            OutputStream compress(OutputStream out) throws IOException {
+                return new GZIPOutputStream(out);
+            }
+
+            @Override
+            InputStream decompress(InputStream in) throws IOException {
+                return new GZIPInputStream(in);
+            }
+        },
+        ZSTD {
+            @Override
+            OutputStream compress(OutputStream out) throws IOException {
+                return new ZstdOutputStream(out, ZSTD_LEVEL);
+            }
+
+            @Override
+            InputStream decompress(InputStream in) throws IOException {
+                return new ZstdInputStream(in);
+            }
+        };
+
+        abstract OutputStream compress(OutputStream out) throws IOException;
+
+        abstract InputStream decompress(InputStream in) throws IOException;
+    }
+
+    private record BodyOutputMessage(OutputStream body, HttpHeaders headers) implements HttpOutputMessage {
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private record BodyInputMessage(InputStream body, HttpHeaders headers) implements HttpInputMessage {
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
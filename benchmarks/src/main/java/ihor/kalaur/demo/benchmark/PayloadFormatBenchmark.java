@@ -0,0 +1,56 @@
+package ihor.kalaur.demo.benchmark;
+
+import ihor.kalaur.demo.dto.UserDto;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Encode and decode time of a search response for every format the user endpoints negotiate, with the response
+// compressions. PayloadSizeReport prints the matching sizes on the wire.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadFormatBenchmark {
+    private static final int USER_COUNT = 1000;
+
+    @Param({"JSON", "CBOR", "SMILE", "PROTOBUF"})
+    private String format;
+
+    @Param({"NONE", "GZIP", "ZSTD"})
+    private String compression;
+
+    private PayloadCodec codec;
+    private List<UserDto> users;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        codec = new PayloadCodec(PayloadCodec.Format.valueOf(format), PayloadCodec.Compression.valueOf(compression));
+        users = BenchmarkUsers.userDtos(USER_COUNT);
+        payload = codec.encode(users);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return codec.encode(users);
+    }
+
+    @Benchmark
+    public List<UserDto> decode() throws IOException {
+        return codec.decode(payload);
+    }
+}
@@ -0,0 +1,34 @@
+package ihor.kalaur.demo.benchmark;
+
+import ihor.kalaur.demo.dto.UserDto;
+import java.io.IOException;
+import java.util.List;
+
+// Prints the bytes on the wire of a search response in every format, uncompressed and compressed the way the
+// application compresses responses, next to the bytes per user
+public final class PayloadSizeReport {
+    private static final int DEFAULT_USER_COUNT = 1000;
+
+    private PayloadSizeReport() {
+    }
+
+    // Argument: the number of users in the response
+    public static void main(String[] args) throws IOException {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USER_COUNT;
+        List<UserDto> users = BenchmarkUsers.userDtos(userCount);
+
+        System.out.printf("%d users%n%-10s", userCount, "format");
+        for (PayloadCodec.Compression compression : PayloadCodec.Compression.values()) {
+            System.out.printf(" %12s %8s", compression, "per user");
+        }
+        System.out.println();
+        for (PayloadCodec.Format format : PayloadCodec.Format.values()) {
+            System.out.printf("%-10s", format);
+            for (PayloadCodec.Compression compression : PayloadCodec.Compression.values()) {
+                int bytes = new PayloadCodec(format, compression).encode(users).length;
+                System.out.printf(" %12d %8.1f", bytes, (double) bytes / userCount);
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ihor.kalaur.demo.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Starts the application as a new JVM several times and measures how long it takes until the first request is
+// answered. Run it once with the plain command and once with the AOT and CDS flags of the fast-startup build.
+public final class StartupTimeBenchmark {
+    private static final String DEFAULT_URL = "http://localhost:8080/api/actuator/health";
+    private static final int DEFAULT_RUNS = 5;
+    private static final List<String> DEFAULT_COMMAND = List.of("java", "-jar", "../target/demo-0.0.1-SNAPSHOT.jar");
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(1);
+    private static final int OK_STATUS = 200;
+
+    private StartupTimeBenchmark() {
+    }
+
+    // Arguments: the number of runs, the URL to poll and the command that starts the application
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        String url = args.length > 1 ? args[1] : DEFAULT_URL;
+        List<String> command = args.length > 2 ? Arrays.asList(args).subList(2, args.length) : DEFAULT_COMMAND;
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        List<Long> startupMillis = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+            long millis = measureStartup(command, client, request);
+            startupMillis.add(millis);
+            System.out.printf("run %d: first request answered after %d ms%n", run, millis);
+        }
+        report(startupMillis);
+    }
+
+    private static long measureStartup(List<String> command, HttpClient client, HttpRequest request)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + STARTUP_TIMEOUT.toNanos();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(new File("target/startup-benchmark.log")))
+                .start();
+        try {
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The application exited with code " + process.exitValue()
+                            + ", see target/startup-benchmark.log");
+                }
+                if (isAnswered(client, request)) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            throw new IllegalStateException("The application did not answer within " + STARTUP_TIMEOUT);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(STARTUP_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static boolean isAnswered(HttpClient client, HttpRequest request) throws InterruptedException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == OK_STATUS;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static void report(List<Long> startupMillis) {
+        List<Long> sorted = new ArrayList<>(startupMillis);
+        Collections.sort(sorted);
+        System.out.printf("time to first request: min %d ms, median %d ms, max %d ms%n",
+                sorted.get(0), sorted.get(sorted.size() / 2), sorted.get(sorted.size() - 1));
+    }
+}
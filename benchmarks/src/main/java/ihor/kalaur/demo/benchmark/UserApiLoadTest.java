@@ -0,0 +1,87 @@
+package ihor.kalaur.demo.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class UserApiLoadTest {
+    private static final String DEFAULT_BASE_URL = "http://localhost:8080/api";
+    private static final int DEFAULT_CONCURRENCY = 400;
+    private static final int DEFAULT_DURATION_SECONDS = 60;
+    private static final String PAGE_PATH = "/users/search/page?from=1900-01-01&to=2100-01-01&size=20";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int TRANSPORT_ERROR_STATUS = -1;
+    private static final double[] PERCENTILES = {0.50, 0.95, 0.99};
+
+    private UserApiLoadTest() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String baseUrl = args.length > 0 ? args[0] : DEFAULT_BASE_URL;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CONCURRENCY;
+        int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DURATION_SECONDS;
+        String path = args.length > 3 ? args[3] : PAGE_PATH;
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        List<Long> latenciesMicros = Collections.synchronizedList(new ArrayList<>());
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            clients.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    int status = send(client, request);
+                    latenciesMicros.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(durationSeconds + REQUEST_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        report(latenciesMicros, statuses, durationSeconds);
+    }
+
+    private static int send(HttpClient client, HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException ex) {
+            return TRANSPORT_ERROR_STATUS;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return TRANSPORT_ERROR_STATUS;
+        }
+    }
+
+    private static void report(List<Long> latenciesMicros, Map<Integer, LongAdder> statuses, int durationSeconds) {
+        List<Long> sorted = new ArrayList<>(latenciesMicros);
+        Collections.sort(sorted);
+        System.out.printf("requests: %d, throughput: %.1f req/s%n",
+                sorted.size(), (double) sorted.size() / durationSeconds);
+        for (double percentile : PERCENTILES) {
+            long micros = sorted.isEmpty() ? 0 : sorted.get((int) Math.ceil(percentile * sorted.size()) - 1);
+            System.out.printf("p%.0f: %.1f ms%n", percentile * 100, micros / 1000.0);
+        }
+        new TreeMap<>(statuses).forEach((status, count) ->
+                System.out.printf("status %d: %d%n", status, count.sum()));
+    }
+}
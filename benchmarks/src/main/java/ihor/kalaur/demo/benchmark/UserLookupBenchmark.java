@@ -0,0 +1,82 @@
+package ihor.kalaur.demo.benchmark;
+
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Concurrent uncached lookups by id, with and without the coalescing batch loader.
+// The tear down prints how many database round trips were made and how many ids each one resolved.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class UserLookupBenchmark {
+    private static final int SEEDED_USERS = 1_000;
+    private static final String BATCH_SIZE_METRIC = "user.lookup.batch.size";
+    private static final String REPOSITORY_INVOCATIONS_METRIC = "spring.data.repository.invocations";
+
+    @Param({"true", "false"})
+    private boolean batchLoader;
+
+    private final AtomicLong emailSequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private long[] seededIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "--spring.cache.type=none",
+                "--app.user.batch-loader.enabled=" + batchLoader);
+        userService = context.getBean(UserService.class);
+
+        seededIds = new long[SEEDED_USERS];
+        for (int i = 0; i < SEEDED_USERS; i++) {
+            seededIds[i] = userService.save(BenchmarkUsers.createUserRequestDto(nextEmail())).getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+        Search lookups = meterRegistry.find(REPOSITORY_INVOCATIONS_METRIC)
+                .tag("repository", "UserRepository")
+                .tag("method", batchLoader ? "findDtoByIdIn" : "findDtoById");
+        System.out.printf("%nbatchLoader=%s: %d lookup queries, %.1f ids per batch%n",
+                batchLoader,
+                lookups.timer() == null ? 0 : lookups.timer().count(),
+                meterRegistry.get(BATCH_SIZE_METRIC).summary().mean());
+        context.close();
+    }
+
+    @Benchmark
+    public UserDto findById() {
+        return userService.findById(seededIds[ThreadLocalRandom.current().nextInt(seededIds.length)]);
+    }
+
+    private String nextEmail() {
+        return "user" + emailSequence.incrementAndGet() + "@example.com";
+    }
+}
@@ -0,0 +1,47 @@
+package ihor.kalaur.demo.benchmark;
+
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.mapper.UserMapper;
+import ihor.kalaur.demo.mapper.impl.UserMapperImpl;
+import ihor.kalaur.demo.model.User;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMapperBenchmark {
+    private UserMapper userMapper;
+    private User user;
+    private CreateUserRequestDto createUserRequestDto;
+
+    @Setup
+    public void setUp() {
+        userMapper = new UserMapperImpl();
+        user = BenchmarkUsers.user();
+        createUserRequestDto = BenchmarkUsers.createUserRequestDto(BenchmarkUsers.EMAIL);
+    }
+
+    @Benchmark
+    public void toDto(Blackhole blackhole) {
+        blackhole.consume(userMapper.toDto(user));
+    }
+
+    @Benchmark
+    public void toEntity(Blackhole blackhole) {
+        blackhole.consume(userMapper.toEntity(createUserRequestDto));
+    }
+}
@@ -0,0 +1,90 @@
+package ihor.kalaur.demo.benchmark;
+
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.mapper.UserMapper;
+import ihor.kalaur.demo.model.User;
+import ihor.kalaur.demo.repository.UserBatchRepository;
+import ihor.kalaur.demo.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// One operation reads all 10k seeded rows, so gc.alloc.rate.norm is the allocation per 10k rows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserProjectionBenchmark {
+    private static final int ROWS = 10_000;
+    private static final String ENTITY_QUERY = "SELECT u FROM User u WHERE u.birthDate BETWEEN :from AND :to";
+    private static final LocalDate FROM = LocalDate.of(1900, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2100, 1, 1);
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private UserMapper userMapper;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        userRepository = context.getBean(UserRepository.class);
+        userMapper = context.getBean(UserMapper.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        List<User> users = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            User user = BenchmarkUsers.user();
+            user.setId(null);
+            user.setEmail("user" + i + "@example.com");
+            users.add(user);
+        }
+        context.getBean(UserBatchRepository.class).insertAll(users);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<UserDto> entitiesMappedToDtos() {
+        return readOnlyTransaction.execute(status -> entityManager.createQuery(ENTITY_QUERY, User.class)
+                .setParameter("from", FROM)
+                .setParameter("to", TO)
+                .getResultList()
+                .stream()
+                .map(userMapper::toDto)
+                .toList());
+    }
+
+    @Benchmark
+    public List<UserDto> dtoProjection() {
+        return readOnlyTransaction.execute(status -> userRepository.findByBirthDateBetween(FROM, TO));
+    }
+}
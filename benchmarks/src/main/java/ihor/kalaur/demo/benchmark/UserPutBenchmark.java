@@ -0,0 +1,104 @@
+package ihor.kalaur.demo.benchmark;
+
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.dto.UserUpsertResult;
+import ihor.kalaur.demo.model.User;
+import ihor.kalaur.demo.model.UserChange;
+import ihor.kalaur.demo.model.UserChangeType;
+import ihor.kalaur.demo.repository.UserChangeRepository;
+import ihor.kalaur.demo.repository.UserRepository;
+import ihor.kalaur.demo.service.UserService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Latency of PUT /users/{id}, sampled so the report includes percentiles next to the mean. replaceWithMerge is the
+// baseline for replaceExisting: the same email check and outbox row, but the user is loaded and merged instead of
+// upserted. H2 answers in-process, so the round trips the upsert saves only show against a networked MySQL.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserPutBenchmark {
+    private static final int SEEDED_USERS = 1_000;
+    private static final long NEW_ID_OFFSET = 1_000_000_000L;
+
+    private final AtomicLong newIdSequence = new AtomicLong(NEW_ID_OFFSET);
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private UserRepository userRepository;
+    private UserChangeRepository userChangeRepository;
+    private TransactionTemplate transactionTemplate;
+    private long[] seededIds;
+    private CreateUserRequestDto[] replacements;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        userService = context.getBean(UserService.class);
+        userRepository = context.getBean(UserRepository.class);
+        userChangeRepository = context.getBean(UserChangeRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        seededIds = new long[SEEDED_USERS];
+        replacements = new CreateUserRequestDto[SEEDED_USERS];
+        for (int i = 0; i < SEEDED_USERS; i++) {
+            String email = "put" + i + "@example.com";
+            seededIds[i] = userService.save(BenchmarkUsers.createUserRequestDto(email)).getId();
+            replacements[i] = BenchmarkUsers.createUserRequestDto(email);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserUpsertResult replaceExisting() {
+        int index = ThreadLocalRandom.current().nextInt(SEEDED_USERS);
+        return userService.updateAllUserFields(seededIds[index], replacements[index]);
+    }
+
+    @Benchmark
+    public User replaceWithMerge() {
+        int index = ThreadLocalRandom.current().nextInt(SEEDED_USERS);
+        CreateUserRequestDto replacement = replacements[index];
+        return transactionTemplate.execute(status -> {
+            userRepository.findIdByEmailIncludingDeleted(replacement.getEmail());
+            User user = userRepository.findById(seededIds[index]).orElseThrow();
+            user.setEmail(replacement.getEmail());
+            user.setFirstName(replacement.getFirstName());
+            user.setLastName(replacement.getLastName());
+            user.setBirthDate(replacement.getBirthDate());
+            user.setAddress(replacement.getAddress());
+            user.setPhoneNumber(replacement.getPhoneNumber());
+            userChangeRepository.save(new UserChange(user.getId(), UserChangeType.UPDATED));
+            return userRepository.save(user);
+        });
+    }
+
+    @Benchmark
+    public UserUpsertResult createWithClientId() {
+        long id = newIdSequence.incrementAndGet();
+        String email = "put-new" + id + "@example.com";
+        return userService.updateAllUserFields(id, BenchmarkUsers.createUserRequestDto(email));
+    }
+}
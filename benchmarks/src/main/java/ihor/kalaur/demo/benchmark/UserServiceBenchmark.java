@@ -0,0 +1,83 @@
+package ihor.kalaur.demo.benchmark;
+
+import ihor.kalaur.demo.dto.UpdateAnyFieldsUserRequestDto;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.service.UserService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserServiceBenchmark {
+    private static final int SEEDED_USERS = 1_000;
+    private static final String UPDATED_FIRST_NAME = "Bob";
+
+    @Param({"caffeine", "none"})
+    private String cacheType;
+
+    private final AtomicLong emailSequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private long[] seededIds;
+    private UpdateAnyFieldsUserRequestDto patch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("--spring.cache.type=" + cacheType);
+        userService = context.getBean(UserService.class);
+
+        seededIds = new long[SEEDED_USERS];
+        for (int i = 0; i < SEEDED_USERS; i++) {
+            seededIds[i] = userService.save(BenchmarkUsers.createUserRequestDto(nextEmail())).getId();
+        }
+        patch = new UpdateAnyFieldsUserRequestDto();
+        patch.setFirstName(UPDATED_FIRST_NAME);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDto save() {
+        return userService.save(BenchmarkUsers.createUserRequestDto(nextEmail()));
+    }
+
+    @Benchmark
+    public UserDto findById() {
+        return userService.findById(randomSeededId());
+    }
+
+    @Benchmark
+    public UserDto updateAnyUserFields() {
+        return userService.updateAnyUserFields(randomSeededId(), patch);
+    }
+
+    private long randomSeededId() {
+        return seededIds[ThreadLocalRandom.current().nextInt(seededIds.length)];
+    }
+
+    private String nextEmail() {
+        return "user" + emailSequence.incrementAndGet() + "@example.com";
+    }
+}
@@ -0,0 +1,80 @@
+package ihor.kalaur.demo.benchmark;
+
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.validator.AgeValidator;
+import jakarta.validation.Validator;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+    private static final String MIN_ADULT_AGE_PROPERTY = "app.user.min-adult-age";
+    private static final int MIN_ADULT_AGE = 18;
+    private static final String INVALID_EMAIL = "not-an-email";
+    private static final String INVALID_PHONE_NUMBER = "0123";
+
+    private AnnotationConfigApplicationContext context;
+    private AgeValidator ageValidator;
+    private Validator validator;
+    private LocalDate birthDate;
+    private CreateUserRequestDto validRequest;
+    private CreateUserRequestDto invalidRequest;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("benchmark", Map.of(MIN_ADULT_AGE_PROPERTY, MIN_ADULT_AGE)));
+        context.register(LocalValidatorFactoryBean.class);
+        context.refresh();
+
+        // Built through the context so @Value on the validator is resolved the same way as in the application
+        ageValidator = context.getAutowireCapableBeanFactory().createBean(AgeValidator.class);
+        validator = context.getBean(Validator.class);
+        birthDate = BenchmarkUsers.BIRTH_DATE;
+        validRequest = BenchmarkUsers.createUserRequestDto(BenchmarkUsers.EMAIL);
+        invalidRequest = BenchmarkUsers.createUserRequestDto(INVALID_EMAIL);
+        invalidRequest.setPhoneNumber(INVALID_PHONE_NUMBER);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean ageValidator() {
+        return ageValidator.isValid(birthDate, null);
+    }
+
+    @Benchmark
+    public void validateValidRequest(Blackhole blackhole) {
+        blackhole.consume(validator.validate(validRequest));
+    }
+
+    @Benchmark
+    public void validateInvalidRequest(Blackhole blackhole) {
+        blackhole.consume(validator.validate(invalidRequest));
+    }
+}
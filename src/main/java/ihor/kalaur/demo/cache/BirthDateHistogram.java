@@ -0,0 +1,206 @@
+package ihor.kalaur.demo.cache;
+
+import ihor.kalaur.demo.dto.stats.BirthDateCount;
+import ihor.kalaur.demo.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjLongConsumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Number of active users per birth date, kept in memory so counts and histograms never scan the table.
+// Writes of this instance adjust it after they commit; writes of other instances and any drift are corrected
+// when it is rebuilt from the database every reconcile-interval-ms.
+// Deletes only hand over their ids, so they stay a single UPDATE; the birth dates of the deleted users are read
+// with one query per apply-interval-ms and subtracted then, so counts lag a delete by up to that interval.
+@Component
+public class BirthDateHistogram {
+    public static final String RECONCILE_DRIFT_METRIC = "user.stats.reconcile.drift";
+    private static final int DELETION_QUERY_MAX_IDS = 1000;
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final Queue<Deletion> pendingDeletions = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final AtomicLong lastDrift = new AtomicLong();
+    private volatile ConcurrentSkipListMap<LocalDate, LongAdder> counts = new ConcurrentSkipListMap<>();
+    private volatile Queue<BirthDateCount> pendingDeltas;
+    private volatile boolean ready;
+
+    public BirthDateHistogram(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.user.stats.enabled}") boolean enabled
+    ) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        Gauge.builder(RECONCILE_DRIFT_METRIC, lastDrift, AtomicLong::get)
+                .description("Users the in-memory birth date histogram was off by at its last reconciliation")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${app.user.stats.reconcile-interval-ms}",
+            initialDelayString = "${app.user.stats.reconcile-interval-ms}")
+    public void reconcile() {
+        if (!enabled || !reconcileLock.tryLock()) {
+            return;
+        }
+        try {
+            applyDeletions();
+            pendingDeltas = new ConcurrentLinkedQueue<>();
+            ConcurrentSkipListMap<LocalDate, LongAdder> rebuilt = new ConcurrentSkipListMap<>();
+            userRepository.countGroupedByBirthDate().forEach(row -> adderOf(rebuilt, row.birthDate()).add(row.count()));
+            swap(rebuilt);
+            ready = true;
+        } finally {
+            pendingDeltas = null;
+            reconcileLock.unlock();
+        }
+    }
+
+    // Only rows still carrying one of the drained deletedAt values are subtracted, so ids a batch delete did not
+    // affect and users restored in the meantime are skipped
+    @Scheduled(fixedDelayString = "${app.user.stats.apply-interval-ms}")
+    public void applyDeletions() {
+        Set<Long> ids = new HashSet<>();
+        Set<LocalDateTime> deletedAts = new HashSet<>();
+        for (Deletion deletion = pendingDeletions.poll(); deletion != null; deletion = pendingDeletions.poll()) {
+            ids.addAll(deletion.ids());
+            deletedAts.add(deletion.deletedAt());
+        }
+        List<Long> chunk = new ArrayList<>(DELETION_QUERY_MAX_IDS);
+        for (Long id : ids) {
+            chunk.add(id);
+            if (chunk.size() == DELETION_QUERY_MAX_IDS) {
+                subtractDeleted(chunk, deletedAts);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            subtractDeleted(chunk, deletedAts);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void add(LocalDate birthDate, long delta) {
+        if (!enabled) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            adderOf(counts, birthDate).add(delta);
+            Queue<BirthDateCount> pending = pendingDeltas;
+            if (pending != null) {
+                pending.add(new BirthDateCount(birthDate, delta));
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    // Called after the soft delete has committed, with the deletedAt it wrote
+    public void removeDeleted(Collection<Long> ids, LocalDateTime deletedAt) {
+        if (enabled && !ids.isEmpty()) {
+            pendingDeletions.add(new Deletion(List.copyOf(ids), deletedAt));
+        }
+    }
+
+    public void move(LocalDate from, LocalDate to) {
+        if (!from.equals(to)) {
+            add(from, -1);
+            add(to, 1);
+        }
+    }
+
+    // Empty until the first load has finished, so callers fall back to an exact count
+    public OptionalLong count(LocalDate from, LocalDate to) {
+        if (!ready) {
+            return OptionalLong.empty();
+        }
+        long total = 0;
+        for (LongAdder adder : counts.subMap(from, true, to, true).values()) {
+            total += adder.sum();
+        }
+        return OptionalLong.of(total);
+    }
+
+    public boolean forEach(ObjLongConsumer<LocalDate> consumer) {
+        if (!ready) {
+            return false;
+        }
+        counts.forEach((birthDate, adder) -> {
+            long count = adder.sum();
+            if (count > 0) {
+                consumer.accept(birthDate, count);
+            }
+        });
+        return true;
+    }
+
+    // Deltas recorded while the database was read are replayed on the rebuilt counts. One that committed before
+    // the read can be counted twice; the next reconciliation removes that error.
+    private void swap(ConcurrentSkipListMap<LocalDate, LongAdder> rebuilt) {
+        swapLock.writeLock().lock();
+        try {
+            for (BirthDateCount delta : pendingDeltas) {
+                adderOf(rebuilt, delta.birthDate()).add(delta.count());
+            }
+            lastDrift.set(drift(counts, rebuilt));
+            counts = rebuilt;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    private long drift(Map<LocalDate, LongAdder> current, Map<LocalDate, LongAdder> rebuilt) {
+        long drift = 0;
+        for (Map.Entry<LocalDate, LongAdder> entry : rebuilt.entrySet()) {
+            LongAdder previous = current.get(entry.getKey());
+            drift += Math.abs(entry.getValue().sum() - (previous == null ? 0 : previous.sum()));
+        }
+        for (Map.Entry<LocalDate, LongAdder> entry : current.entrySet()) {
+            if (!rebuilt.containsKey(entry.getKey())) {
+                drift += Math.abs(entry.getValue().sum());
+            }
+        }
+        return drift;
+    }
+
+    private void subtractDeleted(List<Long> ids, Set<LocalDateTime> deletedAts) {
+        userRepository.findBirthDatesDeletedAt(ids, deletedAts).forEach(birthDate -> add(birthDate, -1));
+    }
+
+    private LongAdder adderOf(ConcurrentSkipListMap<LocalDate, LongAdder> map, LocalDate birthDate) {
+        return map.computeIfAbsent(birthDate, key -> new LongAdder());
+    }
+
+    private record Deletion(List<Long> ids, LocalDateTime deletedAt) {}
+}
@@ -0,0 +1,157 @@
+package ihor.kalaur.demo.cache;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+// Bloom filter over every email in the users table, deleted users included, because the unique key covers them.
+// A miss means the email is definitely free; a hit only means it may be taken and has to be checked in the database.
+// Emails written by other instances are not seen here, so the unique key stays the final guard.
+// The table is loaded on its own thread in keyset pages, so startup never waits for it and no single query
+// buffers the whole table; until the last page is in, every email is checked in the database.
+@Slf4j
+@Component
+public class EmailBloomFilter implements AutoCloseable {
+    private static final String SELECT_EMAILS_PAGE = "SELECT id, email FROM users WHERE id > ? ORDER BY id LIMIT ?";
+    private static final RowMapper<EmailRow> EMAIL_ROW_MAPPER =
+            (resultSet, rowNum) -> new EmailRow(resultSet.getLong(1), resultSet.getString(2));
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final int BITS_PER_WORD = Long.SIZE;
+
+    private final boolean enabled;
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final int warmUpPageSize;
+    private final ExecutorService warmUpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "email-filter-warm-up");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean warmedUp;
+
+    public EmailBloomFilter(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.user.email-filter.enabled}") boolean enabled,
+            @Value("${app.user.email-filter.expected-insertions}") long expectedInsertions,
+            @Value("${app.user.email-filter.false-positive-rate}") double falsePositiveRate,
+            @Value("${app.user.email-filter.warm-up-page-size}") int warmUpPageSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.warmUpPageSize = warmUpPageSize;
+        long optimalBits = (long) (-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (optimalBits + BITS_PER_WORD - 1) / BITS_PER_WORD);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * BITS_PER_WORD;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleWarmUp() {
+        if (enabled) {
+            warmUpExecutor.execute(this::warmUpInBackground);
+        }
+    }
+
+    @Override
+    public void close() {
+        warmUpExecutor.shutdownNow();
+    }
+
+    // Emails written while the pages are read are added by the write path, so nothing is missed
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long afterId = 0;
+        List<EmailRow> page;
+        do {
+            page = jdbcTemplate.query(SELECT_EMAILS_PAGE, EMAIL_ROW_MAPPER, afterId, warmUpPageSize);
+            for (EmailRow row : page) {
+                add(row.email());
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).id();
+            }
+        } while (page.size() == warmUpPageSize);
+        warmedUp = true;
+    }
+
+    // Until the table has been loaded every email is reported as possibly taken
+    public boolean mightContain(String email) {
+        if (!warmedUp) {
+            return true;
+        }
+        long hash1 = hash(email);
+        long hash2 = mix(hash1 + GOLDEN_GAMMA);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            if ((words.get((int) (bit / BITS_PER_WORD)) & (1L << (bit % BITS_PER_WORD))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void add(String email) {
+        if (!enabled) {
+            return;
+        }
+        long hash1 = hash(email);
+        long hash2 = mix(hash1 + GOLDEN_GAMMA);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            setBit((int) (bit / BITS_PER_WORD), 1L << (bit % BITS_PER_WORD));
+        }
+    }
+
+    // A failed load leaves the filter cold, which only costs the database lookup on every email check
+    private void warmUpInBackground() {
+        try {
+            warmUp();
+        } catch (DataAccessException e) {
+            log.warn("Email filter warm-up failed, emails keep being checked in the database", e);
+        }
+    }
+
+    private void setBit(int word, long mask) {
+        long current = words.get(word);
+        while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+            current = words.get(word);
+        }
+    }
+
+    // FNV-1a over the lower-cased email, finished with the SplitMix64 mixer to spread the bits
+    private long hash(String email) {
+        String key = email.toLowerCase(Locale.ROOT);
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private long mix(long value) {
+        long mixed = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94d049bb133111ebL;
+        return mixed ^ (mixed >>> 31);
+    }
+
+    private record EmailRow(long id, String email) {
+    }
+}
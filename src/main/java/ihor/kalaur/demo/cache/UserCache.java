@@ -0,0 +1,95 @@
+package ihor.kalaur.demo.cache;
+
+import ihor.kalaur.demo.dto.UserDto;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+public class UserCache {
+    public static final String USERS_BY_ID = "usersById";
+    public static final String USERS_BY_EMAIL = "usersByEmail";
+    private static final Object TOMBSTONE = new Object();
+
+    private final Cache usersById;
+    private final ConcurrentMap<Object, Object> usersByIdMap;
+    private final Cache usersByEmail;
+
+    @SuppressWarnings("unchecked")
+    public UserCache(CacheManager cacheManager) {
+        this.usersById = cacheManager.getCache(USERS_BY_ID);
+        this.usersByIdMap = ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) usersById.getNativeCache())
+                .asMap();
+        this.usersByEmail = cacheManager.getCache(USERS_BY_EMAIL);
+    }
+
+    public Optional<UserDto> getById(Long id) {
+        Cache.ValueWrapper cached = usersById.get(id);
+        return cached != null && cached.get() instanceof UserDto user ? Optional.of(user) : Optional.empty();
+    }
+
+    public Optional<UserDto> getByEmail(String email) {
+        // The email entry only points at an id; a stale pointer left by an email change fails the check below.
+        Long id = usersByEmail.get(toEmailKey(email), Long.class);
+        if (id == null) {
+            return Optional.empty();
+        }
+        return getById(id)
+                .filter(user -> email.equalsIgnoreCase(user.getEmail()));
+    }
+
+    // A read that loaded the user before a concurrent update committed may put after the update did;
+    // the higher version wins so the older copy does not replace the newer one
+    public void put(UserDto user) {
+        afterCommit(() -> {
+            usersByIdMap.merge(user.getId(), user, UserCache::newerOf);
+            usersByEmail.put(toEmailKey(user.getEmail()), user.getId());
+        });
+    }
+
+    // Restore and PUT bring a deleted user back, so only they may replace its tombstone
+    public void putRevived(UserDto user) {
+        afterCommit(() -> {
+            usersByIdMap.merge(user.getId(), user,
+                    (cached, loaded) -> cached == TOMBSTONE ? loaded : newerOf(cached, loaded));
+            usersByEmail.put(toEmailKey(user.getEmail()), user.getId());
+        });
+    }
+
+    // A plain evict would let a read that loaded the user before the delete committed put it back afterwards.
+    // The tombstone stays until the entry expires; lookups treat it as a miss and read the database.
+    public void markDeleted(Long id) {
+        afterCommit(() -> usersByIdMap.put(id, TOMBSTONE));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Object newerOf(Object cached, Object loaded) {
+        if (cached == TOMBSTONE) {
+            return cached;
+        }
+        Long cachedVersion = ((UserDto) cached).getVersion();
+        Long loadedVersion = ((UserDto) loaded).getVersion();
+        return cachedVersion != null && loadedVersion != null && cachedVersion > loadedVersion ? cached : loaded;
+    }
+
+    private String toEmailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,268 @@
+package ihor.kalaur.demo.compression;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.Enumeration;
+import java.util.List;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+// Compresses responses with zstd for clients that accept it. The body is held back until it outgrows the minimum
+// response size, so small responses go out unchanged. Responses left alone here fall through to the container's gzip.
+public class ZstdCompressionFilter extends OncePerRequestFilter {
+    public static final String ZSTD_ENCODING = "zstd";
+    private static final String QUALITY_PREFIX = "q=";
+
+    private final int level;
+    private final long minResponseSize;
+    private final List<MediaType> mimeTypes;
+
+    public ZstdCompressionFilter(ZstdCompressionProperties properties) {
+        this.level = properties.getLevel();
+        this.minResponseSize = properties.getMinResponseSize().toBytes();
+        this.mimeTypes = properties.getMimeTypes().stream().map(MediaType::parseMediaType).toList();
+    }
+
+    // Bodies written by async handlers are finished on the async dispatch that follows them
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CompressingResponse compressingResponse = WebUtils.getNativeResponse(response, CompressingResponse.class);
+        if (compressingResponse == null) {
+            if (!acceptsZstd(request)) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            compressingResponse = new CompressingResponse(response);
+        }
+        filterChain.doFilter(request, compressingResponse);
+        if (!request.isAsyncStarted()) {
+            compressingResponse.finish();
+        }
+    }
+
+    private static boolean acceptsZstd(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                String[] parts = coding.split(";");
+                if (ZSTD_ENCODING.equalsIgnoreCase(parts[0].trim()) && !isRefused(parts)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // A coding listed with q=0 is explicitly not acceptable, a malformed weight is treated the same way
+    private static boolean isRefused(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith(QUALITY_PREFIX)) {
+                try {
+                    return Double.parseDouble(parameter.substring(QUALITY_PREFIX.length())) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Buffers the body until it is large enough to be worth compressing, then streams it through zstd. Bodies of
+    // other content types, like NDJSON and server-sent events, are passed through as they are written.
+    private final class CompressingResponse extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final ServletOutputStream outputStream = new CompressingOutputStream();
+        private PrintWriter writer;
+        private OutputStream target;
+        private boolean compressing;
+        private long contentLength = -1;
+
+        private CompressingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        // The length is only known once it is clear whether the body gets compressed
+        @Override
+        public void setContentLength(int len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = Long.parseLong(value);
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = Long.parseLong(value);
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target != null) {
+                target.flush();
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            buffer.reset();
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            buffer.reset();
+            contentLength = -1;
+            super.reset();
+        }
+
+        private void write(byte[] bytes, int offset, int length) throws IOException {
+            if (target == null && !isCompressible()) {
+                passThrough();
+            }
+            if (target != null) {
+                target.write(bytes, offset, length);
+                return;
+            }
+            buffer.write(bytes, offset, length);
+            if (buffer.size() >= minResponseSize) {
+                startCompression();
+            }
+        }
+
+        private boolean isCompressible() {
+            String contentType = getContentType();
+            if (contentType == null || getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+                return false;
+            }
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return mimeTypes.stream().anyMatch(type -> type.includes(mediaType));
+        }
+
+        private void passThrough() throws IOException {
+            if (contentLength >= 0) {
+                getResponse().setContentLengthLong(contentLength);
+            }
+            target = getResponse().getOutputStream();
+        }
+
+        private void startCompression() throws IOException {
+            super.setHeader(HttpHeaders.CONTENT_ENCODING, ZSTD_ENCODING);
+            super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            target = new ZstdOutputStream(getResponse().getOutputStream(), level);
+            compressing = true;
+            buffer.writeTo(target);
+            buffer.reset();
+        }
+
+        // Small bodies are written as they are, with their length, so the container does not gzip them either
+        private void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (compressing) {
+                target.close();
+            } else if (target == null && buffer.size() > 0) {
+                getResponse().setContentLength(buffer.size());
+                buffer.writeTo(getResponse().getOutputStream());
+                buffer.reset();
+            } else if (target == null && contentLength >= 0) {
+                getResponse().setContentLengthLong(contentLength);
+            }
+        }
+
+        private final class CompressingOutputStream extends ServletOutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                CompressingResponse.this.write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                CompressingResponse.this.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (target != null) {
+                    target.flush();
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return !(target instanceof ServletOutputStream stream) || stream.isReady();
+            }
+
+            // Non-blocking bodies are handed to the container's stream as they are, the listener is registered there
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                if (compressing) {
+                    throw new IllegalStateException("The body is already being compressed");
+                }
+                try {
+                    if (target == null) {
+                        passThrough();
+                        buffer.writeTo(target);
+                        buffer.reset();
+                    }
+                    getResponse().getOutputStream().setWriteListener(writeListener);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ihor.kalaur.demo.compression;
+
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "app.compression.zstd")
+public class ZstdCompressionProperties {
+    private int level = 3;
+    private DataSize minResponseSize = DataSize.ofKilobytes(2);
+    private List<String> mimeTypes = List.of("application/json", "application/cbor", "application/x-jackson-smile",
+            "application/x-protobuf");
+}
@@ -0,0 +1,29 @@
+package ihor.kalaur.demo.config;
+
+import ihor.kalaur.demo.compression.ZstdCompressionFilter;
+import ihor.kalaur.demo.compression.ZstdCompressionProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@EnableConfigurationProperties(ZstdCompressionProperties.class)
+@ConditionalOnProperty(name = "app.compression.zstd.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CompressionConfig {
+    private static final String USERS_URL_PATTERN = "/users/*";
+
+    // Runs after the concurrency limiter, so rejected requests are not buffered
+    @Bean
+    public FilterRegistrationBean<ZstdCompressionFilter> zstdCompressionFilter(ZstdCompressionProperties properties) {
+        FilterRegistrationBean<ZstdCompressionFilter> registration =
+                new FilterRegistrationBean<>(new ZstdCompressionFilter(properties));
+        registration.addUrlPatterns(USERS_URL_PATTERN);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
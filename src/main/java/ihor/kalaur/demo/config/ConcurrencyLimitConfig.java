@@ -0,0 +1,58 @@
+package ihor.kalaur.demo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ihor.kalaur.demo.limiter.AdaptiveConcurrencyLimiter;
+import ihor.kalaur.demo.limiter.ConcurrencyLimitFilter;
+import ihor.kalaur.demo.limiter.ConcurrencyLimitProperties;
+import ihor.kalaur.demo.limiter.EndpointLimiters;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+@ConditionalOnProperty(name = "app.concurrency-limit.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ConcurrencyLimitConfig {
+    private static final String USERS_URL_PATTERN = "/users/*";
+
+    @Bean
+    public EndpointLimiters endpointLimiters(ConcurrencyLimitProperties properties) {
+        return new EndpointLimiters(properties);
+    }
+
+    // Registered right after the encoding filter so rejected requests do no further work
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            EndpointLimiters endpointLimiters,
+            ConcurrencyLimitProperties properties,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(endpointLimiters, properties, objectMapper, meterRegistry));
+        registration.addUrlPatterns(USERS_URL_PATTERN);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder concurrencyLimitMetrics(EndpointLimiters endpointLimiters) {
+        return registry -> endpointLimiters.asMap().forEach((endpointClass, limiter) -> {
+            Gauge.builder("http.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Current adaptive concurrency limit of the endpoint class")
+                    .tag("class", endpointClass.name())
+                    .register(registry);
+            Gauge.builder("http.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("Requests of the endpoint class being handled")
+                    .tag("class", endpointClass.name())
+                    .register(registry);
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package ihor.kalaur.demo.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import ihor.kalaur.demo.converter.UserProtobufHttpMessageConverter;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Lets clients ask for CBOR, Smile or Protobuf instead of JSON with the Accept and Content-Type headers. The
+// converters are appended after the defaults, so requests without Accept or with */* are still answered with JSON.
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ContentNegotiationConfig implements WebMvcConfigurer {
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2CborHttpMessageConverter(buildObjectMapper(new CBORFactory())));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(buildObjectMapper(new SmileFactory())));
+        converters.add(new UserProtobufHttpMessageConverter(buildObjectMapper(new ProtobufFactory())));
+    }
+
+    // Built from Boot's builder, so dates and unknown properties are handled as in JSON
+    private ObjectMapper buildObjectMapper(JsonFactory factory) {
+        return objectMapperBuilder.getObject().factory(factory).build();
+    }
+}
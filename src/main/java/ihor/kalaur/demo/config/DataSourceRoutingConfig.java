@@ -0,0 +1,96 @@
+package ihor.kalaur.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import ihor.kalaur.demo.datasource.MySqlReplicaLagProbe;
+import ihor.kalaur.demo.datasource.ReplicaLagProbe;
+import ihor.kalaur.demo.datasource.ReplicaRoutingDataSource;
+import ihor.kalaur.demo.datasource.ReplicaRoutingProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+@Configuration
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+    private static final String REPLICA_POOL_NAME_PREFIX = "replica-";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ReplicaLagProbe replicaLagProbe() {
+        return new MySqlReplicaLagProbe();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            ReplicaRoutingProperties properties,
+            ReplicaLagProbe replicaLagProbe) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaRoutingProperties.Replica> replicaProperties = properties.getReplicas();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            String name = REPLICA_POOL_NAME_PREFIX + i;
+            replicas.put(name, createReplica(name, replicaProperties.get(i), properties));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, replicaLagProbe,
+                properties.getMaxLagSeconds(), properties.getLagCheckIntervalMs());
+    }
+
+    // Connections are fetched on the first statement, after the transaction has marked them read-only,
+    // so read-only transactions land on a replica and everything else on the primary
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public MeterBinder replicaRoutingMetrics(ReplicaRoutingDataSource replicaDataSource) {
+        return registry -> Gauge.builder("db.replicas.healthy", replicaDataSource,
+                        routingDataSource -> routingDataSource.getHealthyReplicas().size())
+                .description("Replicas within the allowed replication lag")
+                .register(registry);
+    }
+
+    // Short timeouts, so a replica that went away is given up on quickly by both the lag check and the reads
+    private DataSource createReplica(
+            String name,
+            ReplicaRoutingProperties.Replica replica,
+            ReplicaRoutingProperties properties) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(replica.getUrl())
+                .username(replica.getUsername())
+                .password(replica.getPassword())
+                .build();
+        dataSource.setPoolName(name);
+        dataSource.setReadOnly(true);
+        dataSource.setConnectionTimeout(properties.getConnectionTimeoutMs());
+        dataSource.setValidationTimeout(properties.getValidationTimeoutMs());
+        return dataSource;
+    }
+}
@@ -0,0 +1,45 @@
+package ihor.kalaur.demo.config;
+
+import ihor.kalaur.demo.datasource.ConcurrencyLimitingDataSource;
+import ihor.kalaur.demo.datasource.ConcurrencyLimitingDataSourcePostProcessor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+@ConditionalOnProperty(name = "app.db.concurrency-limit.enabled", havingValue = "true")
+public class DatabaseConcurrencyConfig {
+    private static final String MAX_CONCURRENT_PROPERTY = "app.db.concurrency-limit.max-concurrent";
+    private static final String ACQUIRE_TIMEOUT_PROPERTY = "app.db.concurrency-limit.acquire-timeout-ms";
+
+    // Static so the post-processor is registered before the DataSource bean is created
+    @Bean
+    public static ConcurrencyLimitingDataSourcePostProcessor concurrencyLimitingDataSourcePostProcessor(
+            Environment environment) {
+        return new ConcurrencyLimitingDataSourcePostProcessor(
+                environment.getRequiredProperty(MAX_CONCURRENT_PROPERTY, Integer.class),
+                environment.getRequiredProperty(ACQUIRE_TIMEOUT_PROPERTY, Long.class));
+    }
+
+    @Bean
+    public MeterBinder databaseConcurrencyMetrics(List<DataSource> dataSources) {
+        return registry -> dataSources.stream()
+                .filter(ConcurrencyLimitingDataSource.class::isInstance)
+                .map(ConcurrencyLimitingDataSource.class::cast)
+                .forEach(limitingDataSource -> {
+                    Gauge.builder("db.concurrency.permits.available", limitingDataSource,
+                                    ConcurrencyLimitingDataSource::getAvailablePermits)
+                            .description("Database permits that can be taken without waiting")
+                            .register(registry);
+                    Gauge.builder("db.concurrency.waiting", limitingDataSource,
+                                    ConcurrencyLimitingDataSource::getQueueLength)
+                            .description("Threads waiting for a database permit")
+                            .register(registry);
+                });
+    }
+}
@@ -0,0 +1,20 @@
+package ihor.kalaur.demo.config;
+
+import ihor.kalaur.demo.migration.UnchangedChangelogPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+@Configuration
+@ConditionalOnProperty(name = "app.liquibase.skip-unchanged", havingValue = "true")
+public class LiquibaseConfig {
+    private static final String LIQUIBASE_ENABLED_PROPERTY = "spring.liquibase.enabled";
+
+    @Bean
+    public static UnchangedChangelogPostProcessor unchangedChangelogPostProcessor(Environment environment) {
+        return new UnchangedChangelogPostProcessor(new PathMatchingResourcePatternResolver(),
+                environment.getProperty(LIQUIBASE_ENABLED_PROPERTY, Boolean.class, true));
+    }
+}
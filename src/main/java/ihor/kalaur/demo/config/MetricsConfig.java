@@ -0,0 +1,26 @@
+package ihor.kalaur.demo.config;
+
+import ihor.kalaur.demo.metrics.RepositoryRowCountPostProcessor;
+import ihor.kalaur.demo.metrics.StatementCountFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+    // Static and lazy on the registry so repository factories are not forced to initialize before it
+    @Bean
+    public static RepositoryRowCountPostProcessor repositoryRowCountPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RepositoryRowCountPostProcessor(meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<StatementCountFilter> statementCountFilter(MeterRegistry meterRegistry) {
+        return new FilterRegistrationBean<>(new StatementCountFilter(meterRegistry));
+    }
+}
@@ -0,0 +1,25 @@
+package ihor.kalaur.demo.config;
+
+import ihor.kalaur.demo.datasource.ShardingProperties;
+import ihor.kalaur.demo.repository.SnowflakeIdGenerator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+    private static final long UNSHARDED_WORKER_ID = 0L;
+    private static final String WORKER_ID_REQUIRED_MESSAGE =
+            "app.datasource.sharding.worker-id must be set to an id unique to this instance while sharding is enabled";
+
+    // Two instances with the same worker id would hand out the same user ids
+    @Bean
+    public SnowflakeIdGenerator userIdGenerator(ShardingProperties properties) {
+        Long workerId = properties.getWorkerId();
+        if (workerId == null && properties.isEnabled()) {
+            throw new IllegalStateException(WORKER_ID_REQUIRED_MESSAGE);
+        }
+        return new SnowflakeIdGenerator(workerId != null ? workerId : UNSHARDED_WORKER_ID);
+    }
+}
@@ -0,0 +1,10 @@
+package ihor.kalaur.demo.config;
+
+import ihor.kalaur.demo.service.UserServiceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(UserServiceProperties.class)
+public class UserServiceConfig {
+}
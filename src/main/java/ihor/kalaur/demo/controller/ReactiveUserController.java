@@ -0,0 +1,133 @@
+package ihor.kalaur.demo.controller;
+
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.bulk.BatchDeleteResultDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetRequestDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetResultDto;
+import ihor.kalaur.demo.dto.date.DateRange;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import ihor.kalaur.demo.dto.page.KeysetPageRequest;
+import ihor.kalaur.demo.service.ReactiveUserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking variant of the core UserController endpoints, active when the application runs on WebFlux
+@Tag(name = "Users management (reactive)",
+        description = "Non-blocking endpoints for managing users information")
+@RestController
+@RequestMapping(value = "/users")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+    private final ReactiveUserService reactiveUserService;
+
+    @PostMapping()
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Create a new user",
+            description = "Create new user. "
+                    + "The creation of a new user is possible only in case of reaching the age of majority")
+    public Mono<UserDto> createUser(
+            @RequestBody @Valid CreateUserRequestDto userRequestDto
+    ) {
+        return reactiveUserService.save(userRequestDto);
+    }
+
+    @PostMapping("/batch-get")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get users by ids",
+            description = "Resolves up to app.user.batch-get.max-ids ids with a single query. "
+                    + "Users are returned in request order; unknown and deleted ids are listed in notFound.")
+    public Mono<BatchGetResultDto> findAllById(
+            @RequestBody @Valid BatchGetRequestDto batchGetRequestDto
+    ) {
+        return reactiveUserService.findAllById(batchGetRequestDto.getIds());
+    }
+
+    @GetMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get a user by id",
+            description = "Returns the user with the given id. Lookups are served from an in-process cache.")
+    public Mono<UserDto> findById(
+            @PathVariable Long id
+    ) {
+        return reactiveUserService.findById(id);
+    }
+
+    @GetMapping("/by-email")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get a user by email",
+            description = "Returns the user with the given email. Lookups are served from an in-process cache.")
+    public Mono<UserDto> findByEmail(
+            @RequestParam String email
+    ) {
+        return reactiveUserService.findByEmail(email);
+    }
+
+    // As newline-delimited JSON every user is written and flushed as soon as its row arrives, and rows are only
+    // requested from the database as fast as the client reads them
+    @GetMapping(value = "/search", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = " Search for users by birth date range.",
+            description = "Streams the users whose birth dates fall within the specified range, ordered by birth "
+                    + "date and id, as a JSON array or as newline-delimited JSON. "
+                    + "Dates should be provided in YYYY-MM-DD format.")
+    public Flux<UserDto> findByBirthDateRange(
+            @Valid @ModelAttribute DateRange dateRange
+    ) {
+        return reactiveUserService.findByBirthDateRange(dateRange.getFrom(), dateRange.getTo());
+    }
+
+    @GetMapping("/search/page")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Search for users by birth date range, one page at a time.",
+            description = "Returns a bounded page of users ordered by birth date and id. "
+                    + "Pass the returned nextCursor as the cursor parameter to fetch the following page.")
+    public Mono<CursorPageDto<UserDto>> findPageByBirthDateRange(
+            @Valid @ModelAttribute DateRange dateRange,
+            @Valid @ModelAttribute KeysetPageRequest pageRequest
+    ) {
+        return reactiveUserService.findPageByBirthDateRange(dateRange.getFrom(), dateRange.getTo(),
+                pageRequest.getCursor(), pageRequest.getSize());
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Delete a user by id",
+            description = "Marks a user as deleted, implementing the soft delete mechanism to retain information.")
+    public Mono<Void> deleteUser(
+            @PathVariable Long id
+    ) {
+        return reactiveUserService.delete(id);
+    }
+
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Delete users by ids",
+            description = "Marks every listed user as deleted with a single statement "
+                    + "and reports how many of them were deleted. Takes up to app.user.batch-delete.max-ids "
+                    + "comma-separated ids.")
+    public Mono<BatchDeleteResultDto> deleteUsers(
+            @RequestParam List<Long> ids
+    ) {
+        return reactiveUserService.deleteAll(ids);
+    }
+}
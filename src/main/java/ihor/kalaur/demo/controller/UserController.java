@@ -1,16 +1,46 @@
 package ihor.kalaur.demo.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import ihor.kalaur.demo.dto.CreateUserRequestDto;
 import ihor.kalaur.demo.dto.UpdateAnyFieldsUserRequestDto;
 import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.UserField;
+import ihor.kalaur.demo.dto.UserUpsertResult;
+import ihor.kalaur.demo.dto.bulk.BatchDeleteResultDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetRequestDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetResultDto;
+import ihor.kalaur.demo.dto.bulk.BulkUserResultDto;
+import ihor.kalaur.demo.dto.change.UserChangeDto;
+import ihor.kalaur.demo.dto.date.BirthdayWindow;
 import ihor.kalaur.demo.dto.date.DateRange;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import ihor.kalaur.demo.dto.page.KeysetPageRequest;
+import ihor.kalaur.demo.dto.stats.HistogramBucket;
+import ihor.kalaur.demo.dto.stats.HistogramBucketDto;
+import ihor.kalaur.demo.dto.stats.UserCountDto;
+import ihor.kalaur.demo.exceptions.InvalidRequestException;
+import ihor.kalaur.demo.service.UserChangeFeed;
 import ihor.kalaur.demo.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -19,17 +49,32 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "Users management",
         description = "Endpoints for managing users information")
 @RestController
 @RequestMapping(value = "/users")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
+    private static final byte NDJSON_LINE_SEPARATOR = '\n';
+    private static final String MALFORMED_BULK_PAYLOAD_MESSAGE = "Malformed bulk payload: ";
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
     private final UserService userService;
+    private final UserChangeFeed userChangeFeed;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.user.changes.stream-timeout-ms}")
+    private long changeStreamTimeoutMs;
 
     @PostMapping()
     @ResponseStatus(HttpStatus.CREATED)
@@ -42,6 +87,40 @@ public class UserController {
         return userService.save(userRequestDto);
     }
 
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Create users in bulk",
+            description = "Accepts a JSON array or a newline-delimited JSON stream of users. "
+                    + "Every record is validated on its own and valid records are inserted in JDBC batches. "
+                    + "The response holds one result per record, in request order.")
+    public List<BulkUserResultDto> createUsers(
+            InputStream body
+    ) throws IOException {
+        try (MappingIterator<CreateUserRequestDto> requestDtos =
+                     objectMapper.readerFor(CreateUserRequestDto.class).readValues(body)) {
+            return userService.saveAll(requestDtos);
+        } catch (JsonProcessingException | RuntimeJsonMappingException e) {
+            throw new InvalidRequestException(MALFORMED_BULK_PAYLOAD_MESSAGE + e.getMessage());
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof JsonProcessingException cause) {
+                throw new InvalidRequestException(MALFORMED_BULK_PAYLOAD_MESSAGE + cause.getOriginalMessage());
+            }
+            throw e;
+        }
+    }
+
+    @PostMapping("/batch-get")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get users by ids",
+            description = "Resolves up to app.user.batch-get.max-ids ids with a single query. "
+                    + "Users are returned in request order; unknown and deleted ids are listed in notFound.")
+    public BatchGetResultDto findAllById(
+            @RequestBody @Valid BatchGetRequestDto batchGetRequestDto
+    ) {
+        return userService.findAllById(batchGetRequestDto.getIds());
+    }
+
     @PatchMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Update any information ",
@@ -55,15 +134,59 @@ public class UserController {
     }
 
     @PutMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Update all information ",
             description = "This endpoint allow update information about user. "
-                    + "Updates all user information. If the user does not exist, a new record will be created.")
-    public UserDto updateAllUserFields(
+                    + "Updates all user information. If the user does not exist, a new record will be created. "
+                    + "Responds with 201 when the user was created and 200 when it was replaced.")
+    public ResponseEntity<UserDto> updateAllUserFields(
             @PathVariable Long id,
             @RequestBody @Valid CreateUserRequestDto createUserRequestDto
     ) {
-        return userService.updateAllUserFields(id, createUserRequestDto);
+        UserUpsertResult result = userService.updateAllUserFields(id, createUserRequestDto);
+        return ResponseEntity.status(result.created() ? HttpStatus.CREATED : HttpStatus.OK)
+                .body(result.user());
+    }
+
+    @GetMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get a user by id",
+            description = "Returns the user with the given id. Lookups are served from an in-process cache.")
+    public UserDto findById(
+            @PathVariable Long id
+    ) {
+        return userService.findById(id);
+    }
+
+    @GetMapping(value = "/{id}", params = "fields")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get selected fields of a user by id",
+            description = "Returns only the comma-separated fields listed in the fields parameter.")
+    public Map<String, Object> findFieldsById(
+            @PathVariable Long id,
+            @RequestParam String fields
+    ) {
+        return userService.findFieldsById(id, UserField.parse(fields));
+    }
+
+    @GetMapping("/by-email")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get a user by email",
+            description = "Returns the user with the given email. Lookups are served from an in-process cache.")
+    public UserDto findByEmail(
+            @RequestParam String email
+    ) {
+        return userService.findByEmail(email);
+    }
+
+    @GetMapping(value = "/by-email", params = "fields")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get selected fields of a user by email",
+            description = "Returns only the comma-separated fields listed in the fields parameter.")
+    public Map<String, Object> findFieldsByEmail(
+            @RequestParam String email,
+            @RequestParam String fields
+    ) {
+        return userService.findFieldsByEmail(email, UserField.parse(fields));
     }
 
     @GetMapping("/search")
@@ -77,6 +200,167 @@ public class UserController {
         return userService.findByBirthDateRange(dateRange.getFrom(), dateRange.getTo());
     }
 
+    @GetMapping(value = "/search", params = "fields")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Search for selected fields of users by birth date range.",
+            description = "Same as the search endpoint, but only the listed fields are selected from the database "
+                    + "and returned.")
+    public List<Map<String, Object>> findFieldsByBirthDateRange(
+            @Valid @ModelAttribute DateRange dateRange,
+            @RequestParam String fields
+    ) {
+        return userService.findFieldsByBirthDateRange(dateRange.getFrom(), dateRange.getTo(),
+                UserField.parse(fields));
+    }
+
+    @GetMapping("/search/count")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Count users by birth date range.",
+            description = "Answers from an in-memory birth date histogram that is kept up to date on every write "
+                    + "and reconciled with the database periodically, so the count may briefly lag behind. "
+                    + "Pass exact=true to count in the database instead; exact tells which of the two answered.")
+    public UserCountDto countByBirthDateRange(
+            @Valid @ModelAttribute DateRange dateRange,
+            @RequestParam(defaultValue = "false") boolean exact
+    ) {
+        return userService.countByBirthDateRange(dateRange.getFrom(), dateRange.getTo(), exact);
+    }
+
+    @GetMapping("/stats/birth-histogram")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get the distribution of users by birth year, month or age.",
+            description = "Returns the number of users per bucket in ascending bucket order, computed from the "
+                    + "in-memory birth date histogram. Age buckets span app.user.stats.age-bucket-years years.")
+    public List<HistogramBucketDto> getBirthHistogram(
+            @RequestParam(defaultValue = "YEAR") HistogramBucket bucket
+    ) {
+        return userService.getBirthHistogram(bucket);
+    }
+
+    @GetMapping("/search/page")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Search for users by birth date range, one page at a time.",
+            description = "Returns a bounded page of users ordered by birth date and id. "
+                    + "Pass the returned nextCursor as the cursor parameter to fetch the following page.")
+    public CursorPageDto<UserDto> findPageByBirthDateRange(
+            @Valid @ModelAttribute DateRange dateRange,
+            @Valid @ModelAttribute KeysetPageRequest pageRequest
+    ) {
+        return userService.findPageByBirthDateRange(dateRange.getFrom(), dateRange.getTo(),
+                pageRequest.getCursor(), pageRequest.getSize());
+    }
+
+    @GetMapping(value = "/search/page", params = "fields")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Search for selected fields of users by birth date range, one page at a time.",
+            description = "Same as the paged search endpoint, but only the listed fields are selected "
+                    + "from the database and returned.")
+    public CursorPageDto<Map<String, Object>> findFieldPageByBirthDateRange(
+            @Valid @ModelAttribute DateRange dateRange,
+            @Valid @ModelAttribute KeysetPageRequest pageRequest,
+            @RequestParam String fields
+    ) {
+        return userService.findFieldPageByBirthDateRange(dateRange.getFrom(), dateRange.getTo(),
+                pageRequest.getCursor(), pageRequest.getSize(), UserField.parse(fields));
+    }
+
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream users by birth date range.",
+            description = "Streams every matching user as newline-delimited JSON, "
+                    + "reading rows from a forward-only database cursor.")
+    public ResponseEntity<StreamingResponseBody> streamByBirthDateRange(
+            @Valid @ModelAttribute DateRange dateRange
+    ) {
+        ObjectWriter writer = objectMapper.writerFor(UserDto.class);
+        StreamingResponseBody body = outputStream -> userService.streamByBirthDateRange(
+                dateRange.getFrom(), dateRange.getTo(), userDto -> {
+                    try {
+                        outputStream.write(writer.writeValueAsBytes(userDto));
+                        outputStream.write(NDJSON_LINE_SEPARATOR);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/search/birthdays")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Search for users with a birthday in the next days, one page at a time.",
+            description = "Returns users whose birthday, regardless of the birth year, falls within days days "
+                    + "starting at from (today when omitted), in calendar order from that day. Windows that cross "
+                    + "New Year are handled, and users born on February 29 are due on February 28 in common years. "
+                    + "Pass the returned nextCursor as the cursor parameter to fetch the following page.")
+    public CursorPageDto<UserDto> findPageByUpcomingBirthdays(
+            @Valid @ModelAttribute BirthdayWindow birthdayWindow,
+            @Valid @ModelAttribute KeysetPageRequest pageRequest
+    ) {
+        return userService.findPageByUpcomingBirthdays(birthdayWindow.startDate(), birthdayWindow.getDays(),
+                pageRequest.getCursor(), pageRequest.getSize());
+    }
+
+    @GetMapping(value = "/search/birthdays/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream users with a birthday in the next days.",
+            description = "Streams every user of the birthday window as newline-delimited JSON, "
+                    + "reading them page by page with keyset queries on the birth month-day index.")
+    public ResponseEntity<StreamingResponseBody> streamUpcomingBirthdays(
+            @Valid @ModelAttribute BirthdayWindow birthdayWindow
+    ) {
+        ObjectWriter writer = objectMapper.writerFor(UserDto.class);
+        LocalDate start = birthdayWindow.startDate();
+        StreamingResponseBody body = outputStream -> userService.streamUpcomingBirthdays(
+                start, birthdayWindow.getDays(), userDto -> {
+                    try {
+                        outputStream.write(writer.writeValueAsBytes(userDto));
+                        outputStream.write(NDJSON_LINE_SEPARATOR);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to user changes as server-sent events.",
+            description = "Pushes one event per created, updated or deleted user. The event id is the change offset: "
+                    + "reconnecting with Last-Event-ID, or passing it as since, resumes right after that change. "
+                    + "Without an offset only changes made after subscribing are sent.")
+    public SseEmitter streamChanges(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) Long lastEventId
+    ) {
+        SseEmitter emitter = new SseEmitter(changeStreamTimeoutMs);
+        subscribeToChanges(emitter, lastEventId != null ? lastEventId : since, change -> emitter.send(SseEmitter.event()
+                .id(String.valueOf(change.getOffset()))
+                .name(change.getType().name())
+                .data(change, MediaType.APPLICATION_JSON)));
+        return emitter;
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Subscribe to user changes as newline-delimited JSON.",
+            description = "Same feed as the server-sent events variant, one change per line. "
+                    + "Resume by passing the offset of the last processed change as since.")
+    public ResponseEntity<ResponseBodyEmitter> streamChangesAsNdjson(
+            @RequestParam(required = false) Long since
+    ) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(changeStreamTimeoutMs);
+        ObjectWriter writer = objectMapper.writerFor(UserChangeDto.class);
+        subscribeToChanges(emitter, since, change -> {
+            byte[] json = writer.writeValueAsBytes(change);
+            byte[] line = Arrays.copyOf(json, json.length + 1);
+            line[json.length] = NDJSON_LINE_SEPARATOR;
+            emitter.send(line, MediaType.APPLICATION_NDJSON);
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(emitter);
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @Operation(summary = "Delete a user by id",
@@ -87,4 +371,49 @@ public class UserController {
         userService.delete(id);
     }
 
+    @PostMapping("/{id}/restore")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Restore a deleted user",
+            description = "Undoes a soft delete, also for users already moved to the archive table. "
+                    + "Answers 404 when no deleted user has this id and 409 when its email is in use again.")
+    public UserDto restoreUser(
+            @PathVariable Long id
+    ) {
+        return userService.restore(id);
+    }
+
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Delete users by ids",
+            description = "Marks every listed user as deleted with a single statement "
+                    + "and reports how many of them were deleted. Takes up to app.user.batch-delete.max-ids "
+                    + "comma-separated ids.")
+    public BatchDeleteResultDto deleteUsers(
+            @RequestParam List<Long> ids
+    ) {
+        return userService.deleteAll(ids);
+    }
+
+    // A failed send means the client went away: the feed drops the subscription and the client resumes from its
+    // last offset, so a change may be delivered twice
+    private void subscribeToChanges(ResponseBodyEmitter emitter, Long since, ChangeWriter changeWriter) {
+        UserChangeFeed.Subscription subscription = userChangeFeed.subscribe(since, changes -> {
+            try {
+                for (UserChangeDto change : changes) {
+                    changeWriter.write(change);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscription.cancel());
+        emitter.onCompletion(subscription::cancel);
+    }
+
+    @FunctionalInterface
+    private interface ChangeWriter {
+        void write(UserChangeDto change) throws IOException;
+    }
+
 }
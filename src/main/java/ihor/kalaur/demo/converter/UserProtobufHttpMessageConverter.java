@@ -0,0 +1,130 @@
+package ihor.kalaur.demo.converter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.dto.UpdateAnyFieldsUserRequestDto;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetRequestDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetResultDto;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+// Encodes the user payloads as Protobuf messages of proto/user.proto. The schema drives Jackson instead of generated
+// classes, so the DTOs stay the only model for every format. A List<UserDto> travels as a UserList message and a
+// CursorPageDto<UserDto> as a UserPage message.
+public class UserProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+    private static final String SCHEMA_LOCATION = "proto/user.proto";
+    private static final String USER_LIST_MESSAGE = "UserList";
+    private static final String USER_PAGE_MESSAGE = "UserPage";
+
+    private final ObjectMapper protobufMapper;
+    private final Map<Class<?>, ProtobufSchema> messageSchemas;
+    private final ProtobufSchema userListSchema;
+    private final ProtobufSchema userPageSchema;
+
+    public UserProtobufHttpMessageConverter(ObjectMapper protobufMapper) {
+        super(APPLICATION_PROTOBUF);
+        this.protobufMapper = protobufMapper;
+        ProtobufSchema schema = loadSchema();
+        this.messageSchemas = Map.of(
+                UserDto.class, schema.withRootType(UserDto.class.getSimpleName()),
+                CreateUserRequestDto.class, schema.withRootType(CreateUserRequestDto.class.getSimpleName()),
+                UpdateAnyFieldsUserRequestDto.class,
+                schema.withRootType(UpdateAnyFieldsUserRequestDto.class.getSimpleName()),
+                BatchGetRequestDto.class, schema.withRootType(BatchGetRequestDto.class.getSimpleName()),
+                BatchGetResultDto.class, schema.withRootType(BatchGetResultDto.class.getSimpleName()));
+        this.userListSchema = schema.withRootType(USER_LIST_MESSAGE);
+        this.userPageSchema = schema.withRootType(USER_PAGE_MESSAGE);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return schemaFor(type) != null && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return schemaFor(type != null ? type : clazz) != null && canWrite(mediaType);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return messageSchemas.containsKey(clazz);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        ProtobufSchema schema = schemaFor(type);
+        try {
+            if (schema == userListSchema) {
+                UserList userList = protobufMapper.readerFor(UserList.class).with(schema)
+                        .readValue(inputMessage.getBody());
+                return userList.users() != null ? userList.users() : List.of();
+            }
+            return protobufMapper.readerFor(protobufMapper.constructType(type)).with(schema)
+                    .readValue(inputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("Malformed Protobuf message: " + e.getOriginalMessage(), e,
+                    inputMessage);
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        ProtobufSchema schema = schemaFor(type != null ? type : object.getClass());
+        Object message = schema == userListSchema ? new UserList((List<UserDto>) object) : object;
+        try {
+            outputMessage.getBody().write(protobufMapper.writer(schema).writeValueAsBytes(message));
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("Could not write Protobuf message: " + e.getOriginalMessage(),
+                    e);
+        }
+    }
+
+    // Lists and pages are only accepted with UserDto elements, every other type needs a message of its own
+    private ProtobufSchema schemaFor(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        boolean ofUsers = resolved.getGeneric(0).toClass() == UserDto.class;
+        if (List.class.isAssignableFrom(resolved.toClass())) {
+            return ofUsers ? userListSchema : null;
+        }
+        if (CursorPageDto.class == resolved.toClass()) {
+            return ofUsers ? userPageSchema : null;
+        }
+        return messageSchemas.get(resolved.toClass());
+    }
+
+    private static ProtobufSchema loadSchema() {
+        try (InputStream schema = new ClassPathResource(SCHEMA_LOCATION).getInputStream()) {
+            return ProtobufSchemaLoader.std.load(schema);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load " + SCHEMA_LOCATION, e);
+        }
+    }
+
+    record UserList(List<UserDto> users) {
+    }
+}
@@ -0,0 +1,28 @@
+package ihor.kalaur.demo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.Set;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+public class ConcurrencyLimitingDataSourcePostProcessor implements BeanPostProcessor {
+    // The pool from spring.datasource.*, named primaryDataSource when reads are routed to replicas
+    private static final Set<String> PRIMARY_POOL_BEAN_NAMES = Set.of("dataSource", "primaryDataSource");
+
+    private final int maxConcurrent;
+    private final long acquireTimeoutMillis;
+
+    public ConcurrencyLimitingDataSourcePostProcessor(int maxConcurrent, long acquireTimeoutMillis) {
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // Only the primary pool is limited, the permits match its size. Any other pool is left alone, and routing
+        // and lazy proxies in front of the primary must not take a second permit.
+        if (bean instanceof HikariDataSource dataSource && PRIMARY_POOL_BEAN_NAMES.contains(beanName)) {
+            return new ConcurrencyLimitingDataSource(dataSource, maxConcurrent, acquireTimeoutMillis);
+        }
+        return bean;
+    }
+}
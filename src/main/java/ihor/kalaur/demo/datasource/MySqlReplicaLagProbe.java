@@ -0,0 +1,26 @@
+package ihor.kalaur.demo.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+public class MySqlReplicaLagProbe implements ReplicaLagProbe {
+    private static final String REPLICA_STATUS_SQL = "SHOW REPLICA STATUS";
+    private static final String LAG_COLUMN = "Seconds_Behind_Source";
+
+    // Null when the server is not a replica or replication is stopped, both of which make the replica unusable
+    @Override
+    public Long getLagSeconds(DataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet status = statement.executeQuery(REPLICA_STATUS_SQL)) {
+            if (!status.next()) {
+                return null;
+            }
+            long lagSeconds = status.getLong(LAG_COLUMN);
+            return status.wasNull() ? null : lagSeconds;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ihor.kalaur.demo.datasource;
+
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+@FunctionalInterface
+public interface ReplicaLagProbe {
+    Long getLagSeconds(DataSource replica) throws SQLException;
+}
@@ -0,0 +1,113 @@
+package ihor.kalaur.demo.datasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// The lag check runs on its own thread: a replica that stopped answering holds it until the connection
+// times out, and must not hold up the jobs on the shared scheduler meanwhile
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    public static final String PRIMARY_KEY = "primary";
+
+    private final Map<String, DataSource> replicas;
+    private final ReplicaLagProbe lagProbe;
+    private final long maxLagSeconds;
+    private final long lagCheckIntervalMs;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService lagCheckExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-lag-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile List<String> healthyReplicas = List.of();
+
+    public ReplicaRoutingDataSource(
+            DataSource primary,
+            Map<String, DataSource> replicas,
+            ReplicaLagProbe lagProbe,
+            long maxLagSeconds,
+            long lagCheckIntervalMs) {
+        this.replicas = replicas;
+        this.lagProbe = lagProbe;
+        this.maxLagSeconds = maxLagSeconds;
+        this.lagCheckIntervalMs = lagCheckIntervalMs;
+        Map<Object, Object> targetDataSources = new HashMap<>(replicas);
+        targetDataSources.put(PRIMARY_KEY, primary);
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+    }
+
+    // Until the first check has passed, reads stay on the primary
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleLagChecks() {
+        lagCheckExecutor.scheduleWithFixedDelay(this::refreshOnSchedule, 0, lagCheckIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void refreshReplicaHealth() {
+        List<String> healthy = new ArrayList<>(replicas.size());
+        replicas.forEach((name, replica) -> {
+            if (isWithinMaxLag(replica)) {
+                healthy.add(name);
+            }
+        });
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    public List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lagCheckExecutor.shutdownNow();
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    // Round robin over the replicas that passed the last lag check; the primary serves reads when none did
+    @Override
+    protected Object determineCurrentLookupKey() {
+        List<String> healthy = healthyReplicas;
+        if (healthy.isEmpty()) {
+            return PRIMARY_KEY;
+        }
+        return healthy.get(Math.floorMod(nextReplica.getAndIncrement(), healthy.size()));
+    }
+
+    // An exception escaping a task would cancel all of its later runs
+    private void refreshOnSchedule() {
+        try {
+            refreshReplicaHealth();
+        } catch (RuntimeException e) {
+            log.error("Replica lag check failed", e);
+        }
+    }
+
+    private boolean isWithinMaxLag(DataSource replica) {
+        try {
+            Long lagSeconds = lagProbe.getLagSeconds(replica);
+            return lagSeconds != null && lagSeconds <= maxLagSeconds;
+        } catch (SQLException | DataAccessException ex) {
+            return false;
+        }
+    }
+}
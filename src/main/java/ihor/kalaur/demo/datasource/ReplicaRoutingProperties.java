@@ -0,0 +1,23 @@
+package ihor.kalaur.demo.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public class ReplicaRoutingProperties {
+    private List<Replica> replicas = new ArrayList<>();
+    private long maxLagSeconds = 5;
+    private long lagCheckIntervalMs = 1000;
+    private long connectionTimeoutMs = 2000;
+    private long validationTimeoutMs = 1000;
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
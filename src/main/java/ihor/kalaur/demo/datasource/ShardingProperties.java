@@ -0,0 +1,22 @@
+package ihor.kalaur.demo.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.datasource.sharding")
+public class ShardingProperties {
+    private boolean enabled;
+    private List<Shard> shards = new ArrayList<>();
+    private Long workerId;
+    private long queryTimeoutMs = 2000;
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -3,6 +3,7 @@ package ihor.kalaur.demo.dto;
 import ihor.kalaur.demo.validator.ValidAge;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDate;
 import lombok.Data;
@@ -28,4 +29,7 @@ public class UpdateAnyFieldsUserRequestDto {
 
     @Pattern(regexp = "^\\+?[1-9][0-9]{7,14}$", message = "invalid phone number format")
     private String phoneNumber;
+
+    @PositiveOrZero(message = "version must not be negative")
+    private Long version;
 }
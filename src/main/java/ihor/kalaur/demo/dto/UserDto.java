@@ -16,4 +16,5 @@ public class UserDto {
     private LocalDate birthDate;
     private String address;
     private String phoneNumber;
+    private Long version;
 }
@@ -0,0 +1,58 @@
+package ihor.kalaur.demo.dto;
+
+import ihor.kalaur.demo.exceptions.InvalidRequestException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public enum UserField {
+    ID("id", UserDto::getId),
+    EMAIL("email", UserDto::getEmail),
+    FIRST_NAME("firstName", UserDto::getFirstName),
+    LAST_NAME("lastName", UserDto::getLastName),
+    BIRTH_DATE("birthDate", UserDto::getBirthDate),
+    ADDRESS("address", UserDto::getAddress),
+    PHONE_NUMBER("phoneNumber", UserDto::getPhoneNumber),
+    VERSION("version", UserDto::getVersion);
+
+    private static final String FIELD_SEPARATOR = ",";
+    private static final String NO_FIELDS_MESSAGE = "fields: must list at least one field";
+    private static final String UNKNOWN_FIELD_MESSAGE = "fields: unknown field '%s'";
+    private static final Map<String, UserField> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toMap(UserField::getFieldName, Function.identity()));
+
+    private final String fieldName;
+    private final Function<UserDto, Object> getter;
+
+    UserField(String fieldName, Function<UserDto, Object> getter) {
+        this.fieldName = fieldName;
+        this.getter = getter;
+    }
+
+    // JSON property of UserDto and attribute of the User entity, which share their names
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public Object readFrom(UserDto userDto) {
+        return getter.apply(userDto);
+    }
+
+    public static Set<UserField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            throw new InvalidRequestException(NO_FIELDS_MESSAGE);
+        }
+        Set<UserField> result = EnumSet.noneOf(UserField.class);
+        for (String name : fields.split(FIELD_SEPARATOR)) {
+            UserField field = BY_NAME.get(name.trim());
+            if (field == null) {
+                throw new InvalidRequestException(String.format(UNKNOWN_FIELD_MESSAGE, name.trim()));
+            }
+            result.add(field);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,6 @@
+package ihor.kalaur.demo.dto;
+
+public record UserUpsertResult(
+        UserDto user,
+        boolean created
+) {}
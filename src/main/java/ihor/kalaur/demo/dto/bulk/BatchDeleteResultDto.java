@@ -0,0 +1,13 @@
+package ihor.kalaur.demo.dto.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchDeleteResultDto {
+    private int requested;
+    private int deleted;
+}
@@ -0,0 +1,14 @@
+package ihor.kalaur.demo.dto.bulk;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.util.List;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class BatchGetRequestDto {
+    @NotEmpty
+    private List<@NotNull Long> ids;
+}
@@ -0,0 +1,15 @@
+package ihor.kalaur.demo.dto.bulk;
+
+import ihor.kalaur.demo.dto.UserDto;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchGetResultDto {
+    private List<UserDto> users;
+    private List<Long> notFound;
+}
@@ -0,0 +1,16 @@
+package ihor.kalaur.demo.dto.bulk;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserResultDto {
+    private int index;
+    private BulkUserStatus status;
+    private Long id;
+    private List<String> errors;
+}
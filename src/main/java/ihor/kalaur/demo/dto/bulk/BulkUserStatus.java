@@ -0,0 +1,7 @@
+package ihor.kalaur.demo.dto.bulk;
+
+public enum BulkUserStatus {
+    CREATED,
+    INVALID,
+    REJECTED
+}
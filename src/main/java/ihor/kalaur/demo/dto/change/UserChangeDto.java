@@ -0,0 +1,17 @@
+package ihor.kalaur.demo.dto.change;
+
+import ihor.kalaur.demo.model.UserChangeType;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChangeDto {
+    private Long offset;
+    private Long userId;
+    private UserChangeType type;
+    private LocalDateTime occurredAt;
+}
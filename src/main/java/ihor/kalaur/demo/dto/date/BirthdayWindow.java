@@ -0,0 +1,26 @@
+package ihor.kalaur.demo.dto.date;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import java.time.LocalDate;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+@Data
+@NoArgsConstructor
+public class BirthdayWindow {
+    private static final int MAX_DAYS = 366;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @Min(value = 1, message = "days must be positive")
+    @Max(value = MAX_DAYS, message = "days must not exceed " + MAX_DAYS)
+    private int days = 1;
+
+    // The window starts today unless another first day is given
+    public LocalDate startDate() {
+        return from != null ? from : LocalDate.now();
+    }
+}
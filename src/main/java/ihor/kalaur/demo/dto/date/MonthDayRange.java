@@ -0,0 +1,45 @@
+package ihor.kalaur.demo.dto.date;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+// An inclusive range of month * 100 + day values, matching the generated users.birth_month_day column
+public record MonthDayRange(
+        int from,
+        int to
+) {
+    private static final int FIRST_DAY_OF_YEAR = 101;
+    private static final int LAST_DAY_OF_YEAR = 1231;
+    private static final int FEBRUARY_29 = 229;
+
+    public static int monthDayOf(LocalDate date) {
+        return date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    // The ranges covering the days days starting at start, in calendar order from start on. A window that crosses
+    // New Year is split in two. Users born on February 29 are due on February 28 in common years.
+    public static List<MonthDayRange> upcoming(LocalDate start, int days) {
+        LocalDate end = start.plusDays(days - 1L);
+        int startMonthDay = monthDayOf(start);
+        int endMonthDay = isFebruary28OfCommonYear(end) ? FEBRUARY_29 : monthDayOf(end);
+        if (end.getYear() == start.getYear()) {
+            return List.of(new MonthDayRange(startMonthDay, endMonthDay));
+        }
+        if (startMonthDay == FIRST_DAY_OF_YEAR) {
+            return List.of(new MonthDayRange(FIRST_DAY_OF_YEAR, LAST_DAY_OF_YEAR));
+        }
+        // A window of a whole year comes back round to start, so every user is listed once
+        int wrappedEndMonthDay = Math.min(endMonthDay, startMonthDay - 1);
+        return List.of(new MonthDayRange(startMonthDay, LAST_DAY_OF_YEAR),
+                new MonthDayRange(FIRST_DAY_OF_YEAR, wrappedEndMonthDay));
+    }
+
+    public boolean contains(int monthDay) {
+        return monthDay >= from && monthDay <= to;
+    }
+
+    private static boolean isFebruary28OfCommonYear(LocalDate date) {
+        return date.getMonth() == Month.FEBRUARY && date.getDayOfMonth() == 28 && !date.isLeapYear();
+    }
+}
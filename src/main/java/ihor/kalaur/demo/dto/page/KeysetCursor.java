@@ -0,0 +1,37 @@
+package ihor.kalaur.demo.dto.page;
+
+import ihor.kalaur.demo.exceptions.InvalidRequestException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public record KeysetCursor(
+        LocalDate birthDate,
+        Long id
+) {
+    private static final String SEPARATOR = "|";
+    private static final String INVALID_CURSOR_MESSAGE = "cursor: invalid continuation token";
+
+    public String encode() {
+        String raw = birthDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = raw.indexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new InvalidRequestException(INVALID_CURSOR_MESSAGE);
+            }
+            return new KeysetCursor(
+                    LocalDate.parse(raw.substring(0, separatorIndex)),
+                    Long.parseLong(raw.substring(separatorIndex + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidRequestException(INVALID_CURSOR_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ihor.kalaur.demo.dto.page;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class KeysetPageRequest {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private String cursor;
+
+    @Min(value = 1, message = "page size must be positive")
+    @Max(value = MAX_PAGE_SIZE, message = "page size must not exceed " + MAX_PAGE_SIZE)
+    private int size = DEFAULT_PAGE_SIZE;
+}
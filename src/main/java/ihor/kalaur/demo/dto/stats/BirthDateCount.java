@@ -0,0 +1,8 @@
+package ihor.kalaur.demo.dto.stats;
+
+import java.time.LocalDate;
+
+public record BirthDateCount(
+        LocalDate birthDate,
+        Long count
+) {}
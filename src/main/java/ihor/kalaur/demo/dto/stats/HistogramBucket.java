@@ -0,0 +1,7 @@
+package ihor.kalaur.demo.dto.stats;
+
+public enum HistogramBucket {
+    YEAR,
+    MONTH,
+    AGE
+}
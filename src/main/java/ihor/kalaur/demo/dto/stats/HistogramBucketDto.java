@@ -0,0 +1,13 @@
+package ihor.kalaur.demo.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistogramBucketDto {
+    private String bucket;
+    private long count;
+}
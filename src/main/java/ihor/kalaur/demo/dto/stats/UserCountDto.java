@@ -0,0 +1,13 @@
+package ihor.kalaur.demo.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCountDto {
+    private long count;
+    private boolean exact;
+}
@@ -0,0 +1,7 @@
+package ihor.kalaur.demo.exceptions;
+
+public class DuplicateEmailException extends RuntimeException {
+    public DuplicateEmailException(String message) {
+        super(message);
+    }
+}
@@ -1,15 +1,21 @@
 package ihor.kalaur.demo.exceptions;
 
 import ihor.kalaur.demo.dto.error.ErrorResponseDto;
+import io.micrometer.core.instrument.Metrics;
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.FieldError;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -19,7 +25,10 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 @ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
+    private static final String VALIDATION_FAILURES_METRIC = "user.validation.failures";
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(
             MethodArgumentNotValidException ex,
@@ -29,12 +38,16 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("timestamp", LocalDateTime.now());
         body.put("status", HttpStatus.BAD_REQUEST);
+        ex.getBindingResult().getFieldErrors().forEach(this::countValidationFailure);
         List<String> errors = ex.getBindingResult().getAllErrors().stream()
                 .map(this::getErrorMessage)
                 .toList();
         body.put("errors", errors);
 
-        return new ResponseEntity<>(body, headers, status);
+        return ResponseEntity.status(status)
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @ExceptionHandler(EntityNotFoundException.class)
@@ -42,6 +55,36 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(HttpStatus.NOT_FOUND, ex.getMessage());
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    protected ResponseEntity<Object> handleInvalidRequestException(InvalidRequestException ex) {
+        return buildResponseEntity(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    @ExceptionHandler(VersionConflictException.class)
+    protected ResponseEntity<Object> handleVersionConflictException(VersionConflictException ex) {
+        return buildResponseEntity(HttpStatus.CONFLICT, ex.getMessage());
+    }
+
+    @ExceptionHandler(DuplicateEmailException.class)
+    protected ResponseEntity<Object> handleDuplicateEmailException(DuplicateEmailException ex) {
+        return buildResponseEntity(HttpStatus.CONFLICT, ex.getMessage());
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    protected ResponseEntity<Object> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        return buildResponseEntity(HttpStatus.CONFLICT, "The user was modified concurrently, please retry.");
+    }
+
+    @ExceptionHandler({DataAccessResourceFailureException.class, CannotCreateTransactionException.class})
+    protected ResponseEntity<Object> handleDatabaseUnavailableException(Exception ex) {
+        return buildResponseEntity(HttpStatus.SERVICE_UNAVAILABLE, "The database is busy, please retry later.");
+    }
+
+    @ExceptionHandler(ShardingUnsupportedException.class)
+    protected ResponseEntity<Object> handleShardingUnsupportedException(ShardingUnsupportedException ex) {
+        return buildResponseEntity(HttpStatus.NOT_IMPLEMENTED, ex.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     protected ResponseEntity<Object> handleAllExceptions(Exception ex) {
         return buildResponseEntity(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred");
@@ -62,6 +105,14 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(HttpStatus.CONFLICT, ex.getMostSpecificCause().getMessage());
     }
 
+    // The global registry is used because this advice also runs in web slice tests, where no MeterRegistry bean exists
+    private void countValidationFailure(FieldError error) {
+        Metrics.counter(VALIDATION_FAILURES_METRIC,
+                "object", error.getObjectName(),
+                "field", error.getField(),
+                "code", String.valueOf(error.getCode())).increment();
+    }
+
     private String getErrorMessage(ObjectError e) {
         if (e instanceof FieldError) {
             String field = ((FieldError) e).getField();
@@ -71,8 +122,11 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return null;
     }
 
+    // Errors are always JSON, so clients of Protobuf and of the change streams can read them too
     private ResponseEntity<Object> buildResponseEntity(HttpStatus status, String message) {
         ErrorResponseDto errorResponse = new ErrorResponseDto(LocalDateTime.now(), status, message);
-        return new ResponseEntity<>(errorResponse, status);
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorResponse);
     }
 }
@@ -0,0 +1,7 @@
+package ihor.kalaur.demo.exceptions;
+
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
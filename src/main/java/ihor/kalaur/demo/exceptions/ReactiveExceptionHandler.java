@@ -0,0 +1,82 @@
+package ihor.kalaur.demo.exceptions;
+
+import ihor.kalaur.demo.dto.error.ErrorResponseDto;
+import io.micrometer.core.instrument.Metrics;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+
+// WebFlux counterpart of GlobalExceptionHandler, answering with the same bodies and status codes
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler {
+    private static final String VALIDATION_FAILURES_METRIC = "user.validation.failures";
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    protected ResponseEntity<Object> handleWebExchangeBindException(WebExchangeBindException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.BAD_REQUEST);
+        ex.getBindingResult().getFieldErrors().forEach(this::countValidationFailure);
+        List<String> errors = ex.getBindingResult().getFieldErrors().stream()
+                .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                .toList();
+        body.put("errors", errors);
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    protected ResponseEntity<Object> handleEntityNotFoundException(EntityNotFoundException ex) {
+        return buildResponseEntity(HttpStatus.NOT_FOUND, ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    protected ResponseEntity<Object> handleInvalidRequestException(InvalidRequestException ex) {
+        return buildResponseEntity(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    @ExceptionHandler(DuplicateEmailException.class)
+    protected ResponseEntity<Object> handleDuplicateEmailException(DuplicateEmailException ex) {
+        return buildResponseEntity(HttpStatus.CONFLICT, ex.getMessage());
+    }
+
+    @ExceptionHandler({DataAccessResourceFailureException.class, CannotCreateTransactionException.class})
+    protected ResponseEntity<Object> handleDatabaseUnavailableException(Exception ex) {
+        return buildResponseEntity(HttpStatus.SERVICE_UNAVAILABLE, "The database is busy, please retry later.");
+    }
+
+    // Malformed bodies and parameters keep the status WebFlux gave them
+    @ExceptionHandler(ResponseStatusException.class)
+    protected ResponseEntity<Object> handleResponseStatusException(ResponseStatusException ex) {
+        HttpStatus status = HttpStatus.valueOf(ex.getStatusCode().value());
+        return buildResponseEntity(status, ex.getReason());
+    }
+
+    @ExceptionHandler(Exception.class)
+    protected ResponseEntity<Object> handleAllExceptions(Exception ex) {
+        return buildResponseEntity(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred");
+    }
+
+    private void countValidationFailure(FieldError error) {
+        Metrics.counter(VALIDATION_FAILURES_METRIC,
+                "object", error.getObjectName(),
+                "field", error.getField(),
+                "code", String.valueOf(error.getCode())).increment();
+    }
+
+    private ResponseEntity<Object> buildResponseEntity(HttpStatus status, String message) {
+        ErrorResponseDto errorResponse = new ErrorResponseDto(LocalDateTime.now(), status, message);
+        return new ResponseEntity<>(errorResponse, status);
+    }
+}
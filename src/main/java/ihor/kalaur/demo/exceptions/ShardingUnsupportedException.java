@@ -0,0 +1,7 @@
+package ihor.kalaur.demo.exceptions;
+
+public class ShardingUnsupportedException extends RuntimeException {
+    public ShardingUnsupportedException(String message) {
+        super(message);
+    }
+}
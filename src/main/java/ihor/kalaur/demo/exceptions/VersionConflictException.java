@@ -0,0 +1,7 @@
+package ihor.kalaur.demo.exceptions;
+
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,100 @@
+package ihor.kalaur.demo.limiter;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Gradient limiter: the limit follows the ratio between the long-term average latency and the latest sample,
+// so it shrinks as soon as requests queue up behind a slow database and grows back by about sqrt(limit)
+// while latency stays flat. Failed requests cut the limit multiplicatively (AIMD backoff).
+public class AdaptiveConcurrencyLimiter {
+    private static final int LONG_RTT_WINDOW = 600;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double MAX_GRADIENT = 1.0;
+    private static final double LONG_RTT_DRIFT_RATIO = 2.0;
+    private static final double LONG_RTT_DRIFT_DECAY = 0.95;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongSupplier nanoClock;
+    private volatile double limit;
+    private double longRttNanos;
+    private long samples;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = properties.getMaxLimit();
+        this.smoothing = properties.getSmoothing();
+        this.rttTolerance = properties.getRttTolerance();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.limit = properties.getInitialLimit();
+    }
+
+    public Optional<Permit> tryAcquire() {
+        int current = inFlight.get();
+        while (current < getLimit()) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Permit(nanoClock.getAsLong(), current + 1));
+            }
+            current = inFlight.get();
+        }
+        return Optional.empty();
+    }
+
+    public void release(Permit permit, boolean succeeded) {
+        inFlight.decrementAndGet();
+        long rttNanos = Math.max(1, nanoClock.getAsLong() - permit.startNanos());
+        lock.lock();
+        try {
+            if (succeeded) {
+                onSample(rttNanos, permit.inFlight());
+            } else {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getUtilization() {
+        return (double) inFlight.get() / getLimit();
+    }
+
+    private void onSample(long rttNanos, int inFlightAtStart) {
+        samples++;
+        longRttNanos += (rttNanos - longRttNanos) / Math.min(samples, LONG_RTT_WINDOW);
+        // Let the baseline follow a lasting drop in latency instead of waiting for the whole window
+        if (longRttNanos / rttNanos > LONG_RTT_DRIFT_RATIO) {
+            longRttNanos *= LONG_RTT_DRIFT_DECAY;
+        }
+        // A limit that is far from being used says nothing about what the backend can take
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(MAX_GRADIENT, rttTolerance * longRttNanos / rttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public record Permit(long startNanos, int inFlight) {}
+}
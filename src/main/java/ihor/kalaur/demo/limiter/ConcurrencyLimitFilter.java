@@ -0,0 +1,127 @@
+package ihor.kalaur.demo.limiter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ihor.kalaur.demo.dto.error.ErrorResponseDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// Rejects requests with 503 and Retry-After instead of letting them queue in the container
+// once the adaptive limit of their endpoint class is reached
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    public static final String REJECTIONS_METRIC = "http.concurrency.rejections";
+    private static final String REJECTED_MESSAGE = "Too many concurrent requests, please retry later.";
+    private static final String LIMIT_REASON = "limit";
+    private static final String PRIORITY_REASON = "priority";
+    private static final String CHANGE_FEED_PATH = "/users/changes";
+
+    private final EndpointLimiters limiters;
+    private final long retryAfterSeconds;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public ConcurrencyLimitFilter(
+            EndpointLimiters limiters,
+            ConcurrencyLimitProperties properties,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.limiters = limiters;
+        this.retryAfterSeconds = properties.getRetryAfterSeconds();
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Change feed subscriptions stay open for minutes, they would pin a permit and skew the latency samples
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.equals(CHANGE_FEED_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        EndpointClass endpointClass = EndpointClass.of(request.getMethod(), path);
+        if (limiters.shouldShed(endpointClass)) {
+            reject(response, endpointClass, PRIORITY_REASON);
+            return;
+        }
+        AdaptiveConcurrencyLimiter limiter = limiters.get(endpointClass);
+        Optional<AdaptiveConcurrencyLimiter.Permit> permit = limiter.tryAcquire();
+        if (permit.isEmpty()) {
+            reject(response, endpointClass, LIMIT_REASON);
+            return;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            release(limiter, permit.get(), released, false);
+            throw e;
+        }
+        if (request.isAsyncStarted()) {
+            // Streaming responses keep their permit until the body has been written
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    release(limiter, permit.get(), released, isSuccessful(response));
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                    release(limiter, permit.get(), released, false);
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    release(limiter, permit.get(), released, false);
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            release(limiter, permit.get(), released, isSuccessful(response));
+        }
+    }
+
+    private void release(
+            AdaptiveConcurrencyLimiter limiter,
+            AdaptiveConcurrencyLimiter.Permit permit,
+            AtomicBoolean released,
+            boolean succeeded) {
+        if (released.compareAndSet(false, true)) {
+            limiter.release(permit, succeeded);
+        }
+    }
+
+    // Server errors, such as the 503 for a busy database, are the overload signal that makes the limit back off
+    private boolean isSuccessful(HttpServletResponse response) {
+        return response.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value();
+    }
+
+    private void reject(HttpServletResponse response, EndpointClass endpointClass, String reason)
+            throws IOException {
+        meterRegistry.counter(REJECTIONS_METRIC, "class", endpointClass.name(), "reason", reason).increment();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponseDto(LocalDateTime.now(), HttpStatus.SERVICE_UNAVAILABLE, REJECTED_MESSAGE));
+    }
+}
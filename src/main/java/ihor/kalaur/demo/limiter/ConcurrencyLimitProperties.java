@@ -0,0 +1,17 @@
+package ihor.kalaur.demo.limiter;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.concurrency-limit")
+public class ConcurrencyLimitProperties {
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 200;
+    private double smoothing = 0.2;
+    private double rttTolerance = 1.5;
+    private double backoffRatio = 0.9;
+    private double shedThreshold = 0.8;
+    private long retryAfterSeconds = 1;
+}
@@ -0,0 +1,36 @@
+package ihor.kalaur.demo.limiter;
+
+import org.springframework.http.HttpMethod;
+
+// Declared from the highest to the lowest priority: a class is shed first when any class above it is saturated
+public enum EndpointClass {
+    WRITE,
+    READ,
+    SEARCH,
+    BULK;
+
+    private static final String SEARCH_PATH = "/users/search";
+    private static final String BATCH_GET_PATH = "/users/batch-get";
+    private static final String BULK_PATH = "/users/bulk";
+
+    // Batch get is a POST only because the id list does not fit in a query string. A bulk import runs for far
+    // longer than a single write, so it gets its own limit instead of skewing the latency baseline of writes.
+    public static EndpointClass of(String method, String path) {
+        if (HttpMethod.POST.matches(method)) {
+            if (path.equals(BULK_PATH)) {
+                return BULK;
+            }
+            if (path.equals(BATCH_GET_PATH)) {
+                return READ;
+            }
+        }
+        if (!HttpMethod.GET.matches(method)) {
+            return WRITE;
+        }
+        return path.startsWith(SEARCH_PATH) ? SEARCH : READ;
+    }
+
+    public boolean hasPriorityOver(EndpointClass other) {
+        return ordinal() < other.ordinal();
+    }
+}
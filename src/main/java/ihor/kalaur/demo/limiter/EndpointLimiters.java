@@ -0,0 +1,32 @@
+package ihor.kalaur.demo.limiter;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class EndpointLimiters {
+    private final Map<EndpointClass, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(EndpointClass.class);
+    private final double shedThreshold;
+
+    public EndpointLimiters(ConcurrencyLimitProperties properties) {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            limiters.put(endpointClass, new AdaptiveConcurrencyLimiter(properties));
+        }
+        this.shedThreshold = properties.getShedThreshold();
+    }
+
+    public AdaptiveConcurrencyLimiter get(EndpointClass endpointClass) {
+        return limiters.get(endpointClass);
+    }
+
+    // A class gives way while any class with a higher priority is close to its own limit
+    public boolean shouldShed(EndpointClass endpointClass) {
+        return limiters.entrySet().stream()
+                .anyMatch(entry -> entry.getKey().hasPriorityOver(endpointClass)
+                        && entry.getValue().getUtilization() >= shedThreshold);
+    }
+
+    public Map<EndpointClass, AdaptiveConcurrencyLimiter> asMap() {
+        return Collections.unmodifiableMap(limiters);
+    }
+}
@@ -0,0 +1,15 @@
+package ihor.kalaur.demo.mapper;
+
+import ihor.kalaur.demo.config.MapperConfig;
+import ihor.kalaur.demo.dto.change.UserChangeDto;
+import ihor.kalaur.demo.model.UserChange;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MapperConfig.class)
+public interface UserChangeMapper {
+    @Mapping(target = "offset", source = "id")
+    @Mapping(target = "type", source = "changeType")
+    @Mapping(target = "occurredAt", source = "createdAt")
+    UserChangeDto toDto(UserChange userChange);
+}
@@ -6,15 +6,28 @@ import ihor.kalaur.demo.dto.UpdateAnyFieldsUserRequestDto;
 import ihor.kalaur.demo.dto.UserDto;
 import ihor.kalaur.demo.model.User;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 
 @Mapper(config = MapperConfig.class)
 public interface UserMapper {
     UserDto toDto(User user);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "deleted", ignore = true)
+    @Mapping(target = "deletedAt", ignore = true)
+    @Mapping(target = "birthMonthDay", ignore = true)
+    @Mapping(target = "version", ignore = true)
     User toEntity(CreateUserRequestDto createUserRequestDto);
 
+    @Mapping(target = "deleted", ignore = true)
+    @Mapping(target = "deletedAt", ignore = true)
+    @Mapping(target = "birthMonthDay", ignore = true)
     User toEntity(UserDto userDto);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "deleted", ignore = true)
+    @Mapping(target = "deletedAt", ignore = true)
+    @Mapping(target = "birthMonthDay", ignore = true)
     User toEntity(UpdateAnyFieldsUserRequestDto updateAnyFieldsUserRequestDto, @MappingTarget User user);
 }
@@ -0,0 +1,72 @@
+package ihor.kalaur.demo.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+
+public class RepositoryRowCountInterceptor implements MethodInterceptor {
+    public static final String METRIC_NAME = "spring.data.repository.rows";
+    private static final int NOT_COUNTED = -1;
+
+    private final Supplier<MeterRegistry> meterRegistry;
+    private final Class<?> repositoryInterface;
+    private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public RepositoryRowCountInterceptor(Supplier<MeterRegistry> meterRegistry, Class<?> repositoryInterface) {
+        this.meterRegistry = meterRegistry;
+        this.repositoryInterface = repositoryInterface;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        int rows = countRows(invocation.getMethod(), result);
+        if (rows != NOT_COUNTED) {
+            summaries.computeIfAbsent(invocation.getMethod(), this::createSummary).record(rows);
+        }
+        return result;
+    }
+
+    // Rows read for queries and rows changed for modifying methods, which return an int count.
+    // Streams, existence checks and totals are left out: their result says nothing about rows transferred.
+    private int countRows(Method method, Object result) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType == int.class || returnType == Integer.class) {
+            return result == null ? 0 : (Integer) result;
+        }
+        if (returnType == void.class || result instanceof Boolean || result instanceof Number
+                || result instanceof BaseStream) {
+            return NOT_COUNTED;
+        }
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return 1;
+    }
+
+    private DistributionSummary createSummary(Method method) {
+        return DistributionSummary.builder(METRIC_NAME)
+                .description("Rows returned or changed by one repository method invocation")
+                .tag("repository", repositoryInterface.getSimpleName())
+                .tag("method", method.getName())
+                .register(meterRegistry.get());
+    }
+}
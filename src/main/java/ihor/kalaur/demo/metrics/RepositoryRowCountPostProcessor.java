@@ -0,0 +1,26 @@
+package ihor.kalaur.demo.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.util.function.SingletonSupplier;
+
+public class RepositoryRowCountPostProcessor implements BeanPostProcessor {
+    private final SingletonSupplier<MeterRegistry> meterRegistry;
+
+    public RepositoryRowCountPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = SingletonSupplier.of(meterRegistry::getObject);
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+            repositoryFactoryBean.addRepositoryFactoryCustomizer(repositoryFactory ->
+                    repositoryFactory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                            proxyFactory.addAdvice(new RepositoryRowCountInterceptor(
+                                    meterRegistry, repositoryInformation.getRepositoryInterface()))));
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,54 @@
+package ihor.kalaur.demo.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+public class StatementCountFilter extends OncePerRequestFilter {
+    public static final String METRIC_NAME = "hibernate.statements.per.request";
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Endpoint, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public StatementCountFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementCountingInspector.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = StatementCountingInspector.stop();
+            summaries.computeIfAbsent(new Endpoint(request.getMethod(), getUriTemplate(request)), this::register)
+                    .record(statements);
+        }
+    }
+
+    // Registered once per endpoint, so recording a request costs a map lookup instead of a registry lookup
+    private DistributionSummary register(Endpoint endpoint) {
+        return DistributionSummary.builder(METRIC_NAME)
+                .description("SQL statements prepared by Hibernate while handling one request")
+                .tag("method", endpoint.method())
+                .tag("uri", endpoint.uri())
+                .register(meterRegistry);
+    }
+
+    private String getUriTemplate(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? UNKNOWN_URI : pattern.toString();
+    }
+
+    private record Endpoint(String method, String uri) {}
+}
@@ -0,0 +1,26 @@
+package ihor.kalaur.demo.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+public class StatementCountingInspector implements StatementInspector {
+    private static final ThreadLocal<int[]> STATEMENT_COUNT = new ThreadLocal<>();
+
+    public static void start() {
+        STATEMENT_COUNT.set(new int[1]);
+    }
+
+    public static int stop() {
+        int[] count = STATEMENT_COUNT.get();
+        STATEMENT_COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = STATEMENT_COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,115 @@
+package ihor.kalaur.demo.migration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class UnchangedChangelogPostProcessor implements BeanPostProcessor {
+    private static final String CHANGELOG_ROOT = "db/changelog/";
+    private static final String CHANGELOG_PATTERN = "classpath:" + CHANGELOG_ROOT + "**/*.*";
+    private static final String CHECKSUM_ALGORITHM = "SHA-256";
+    private static final String FIND_CHECKSUM_SQL = "SELECT checksum FROM changelog_checksum WHERE id = 1";
+    private static final String UPDATE_CHECKSUM_SQL =
+            "UPDATE changelog_checksum SET checksum = ?, updated_at = ? WHERE id = 1";
+    private static final String INSERT_CHECKSUM_SQL =
+            "INSERT INTO changelog_checksum (id, checksum, updated_at) VALUES (1, ?, ?)";
+
+    private final ResourcePatternResolver resourcePatternResolver;
+    private final boolean liquibaseEnabled;
+    private final Map<String, String> checksumsToRecord = new ConcurrentHashMap<>();
+
+    public UnchangedChangelogPostProcessor(ResourcePatternResolver resourcePatternResolver, boolean liquibaseEnabled) {
+        this.resourcePatternResolver = resourcePatternResolver;
+        this.liquibaseEnabled = liquibaseEnabled;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (liquibaseEnabled && bean instanceof SpringLiquibase liquibase) {
+            String checksum = computeChecksum();
+            if (checksum.equals(findRecordedChecksum(new JdbcTemplate(liquibase.getDataSource())))) {
+                liquibase.setShouldRun(false);
+            } else {
+                checksumsToRecord.put(beanName, checksum);
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        String checksum = checksumsToRecord.remove(beanName);
+        if (checksum != null && bean instanceof SpringLiquibase liquibase) {
+            recordChecksum(new JdbcTemplate(liquibase.getDataSource()), checksum);
+        }
+        return bean;
+    }
+
+    String computeChecksum() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+            List<Resource> resources = Arrays.stream(resourcePatternResolver.getResources(CHANGELOG_PATTERN))
+                    .filter(Resource::isReadable)
+                    .sorted(Comparator.comparing(this::relativePath))
+                    .toList();
+            for (Resource resource : resources) {
+                digest.update(relativePath(resource).getBytes(StandardCharsets.UTF_8));
+                try (InputStream content = resource.getInputStream()) {
+                    digest.update(content.readAllBytes());
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String findRecordedChecksum(JdbcTemplate jdbcTemplate) {
+        try {
+            return jdbcTemplate.queryForList(FIND_CHECKSUM_SQL, String.class).stream()
+                    .findFirst()
+                    .orElse(null);
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
+
+    private void recordChecksum(JdbcTemplate jdbcTemplate, String checksum) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jdbcTemplate.update(UPDATE_CHECKSUM_SQL, checksum, now) == 0) {
+            try {
+                jdbcTemplate.update(INSERT_CHECKSUM_SQL, checksum, now);
+            } catch (DuplicateKeyException e) {
+                // Another instance finished the same update at the same time and recorded it
+            }
+        }
+    }
+
+    private String relativePath(Resource resource) {
+        try {
+            String url = resource.getURL().toString();
+            return url.substring(url.lastIndexOf(CHANGELOG_ROOT));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
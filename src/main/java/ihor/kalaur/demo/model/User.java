@@ -6,15 +6,19 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.SQLRestriction;
 
 @Data
 @Entity
-@SQLDelete(sql = "UPDATE users SET is_deleted = true WHERE id=?")
+@DynamicUpdate
+@SQLDelete(sql = "UPDATE users SET is_deleted = true, deleted_at = CURRENT_TIMESTAMP WHERE id=? AND version=?")
 @SQLRestriction("is_deleted=false")
 @Table(name = "users")
 @NoArgsConstructor
@@ -40,6 +44,12 @@ public class User {
     @Column(name = "birth_date", nullable = false)
     private LocalDate birthDate;
 
+    // Generated by the database from birth_date, for year-agnostic birthday searches
+    @Column(name = "birth_month_day",
+            insertable = false,
+            updatable = false)
+    private Integer birthMonthDay;
+
     @Column(name = "address")
     private String address;
 
@@ -49,4 +59,12 @@ public class User {
     @Column(name = "is_deleted",
             nullable = false)
     private boolean isDeleted = false;
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    @Version
+    @Column(name = "version",
+            nullable = false)
+    private Long version;
 }
@@ -0,0 +1,43 @@
+package ihor.kalaur.demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Entity
+@Table(name = "user_changes")
+@NoArgsConstructor
+public class UserChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "user_id",
+            nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type",
+            nullable = false)
+    private UserChangeType changeType;
+
+    @Column(name = "created_at",
+            nullable = false)
+    private LocalDateTime createdAt;
+
+    public UserChange(Long userId, UserChangeType changeType) {
+        this.userId = userId;
+        this.changeType = changeType;
+        this.createdAt = LocalDateTime.now();
+    }
+}
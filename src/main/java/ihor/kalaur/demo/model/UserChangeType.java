@@ -0,0 +1,8 @@
+package ihor.kalaur.demo.model;
+
+public enum UserChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    RESTORED
+}
@@ -0,0 +1,97 @@
+package ihor.kalaur.demo.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Merges items submitted by concurrent callers into one call of the batch function. The first caller of a window
+// waits for window-ms (or until the batch is full) and then runs the batch on its own thread; the other callers
+// wait for its result, so no extra threads are needed. The batch function returns one result per item, in order.
+public class BatchCoalescer<T, R> {
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Function<List<T>, List<R>> batchFunction;
+    // A ReentrantLock rather than synchronized, so waiting virtual threads do not pin their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchClosed = lock.newCondition();
+    private Batch<T, R> pending;
+
+    public BatchCoalescer(long windowMs, int maxBatchSize, Function<List<T>, List<R>> batchFunction) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxBatchSize = maxBatchSize;
+        this.batchFunction = batchFunction;
+    }
+
+    public R submit(T item) {
+        Batch<T, R> batch;
+        int index;
+        boolean leader;
+        lock.lock();
+        try {
+            leader = pending == null;
+            if (leader) {
+                pending = new Batch<>();
+            }
+            batch = pending;
+            index = batch.items.size();
+            batch.items.add(item);
+            if (batch.items.size() >= maxBatchSize) {
+                pending = null;
+                batchClosed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (leader) {
+            awaitWindow(batch);
+            run(batch);
+        }
+        return join(batch.results).get(index);
+    }
+
+    private void awaitWindow(Batch<T, R> batch) {
+        lock.lock();
+        try {
+            long remaining = windowNanos;
+            while (pending == batch && remaining > 0) {
+                remaining = batchClosed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (pending == batch) {
+                pending = null;
+            }
+            lock.unlock();
+        }
+    }
+
+    private void run(Batch<T, R> batch) {
+        try {
+            batch.results.complete(batchFunction.apply(batch.items));
+        } catch (RuntimeException e) {
+            batch.results.completeExceptionally(e);
+        }
+    }
+
+    private List<R> join(CompletableFuture<List<R>> results) {
+        try {
+            return results.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static class Batch<T, R> {
+        private final List<T> items = new ArrayList<>();
+        private final CompletableFuture<List<R>> results = new CompletableFuture<>();
+    }
+}
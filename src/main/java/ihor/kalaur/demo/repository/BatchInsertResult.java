@@ -0,0 +1,23 @@
+package ihor.kalaur.demo.repository;
+
+public record BatchInsertResult(
+        Long id,
+        String error,
+        boolean duplicate
+) {
+    public static BatchInsertResult inserted(Long id) {
+        return new BatchInsertResult(id, null, false);
+    }
+
+    public static BatchInsertResult rejected(String error) {
+        return new BatchInsertResult(null, error, false);
+    }
+
+    public static BatchInsertResult rejectedDuplicate(String error) {
+        return new BatchInsertResult(null, error, true);
+    }
+
+    public boolean isInserted() {
+        return error == null;
+    }
+}
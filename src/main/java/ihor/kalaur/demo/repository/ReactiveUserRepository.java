@@ -0,0 +1,172 @@
+package ihor.kalaur.demo.repository;
+
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.model.User;
+import ihor.kalaur.demo.model.UserChangeType;
+import io.r2dbc.spi.Parameters;
+import io.r2dbc.spi.R2dbcType;
+import io.r2dbc.spi.Readable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// R2DBC counterpart of the user queries for the reactive variant. There is no @SQLRestriction here, so every
+// query spells out the soft delete filter itself.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserRepository {
+    private static final String USER_DTO_COLUMNS =
+            "id, email, first_name, last_name, birth_date, address, phone_number, version";
+    private static final String INSERT_USER_SQL = "INSERT INTO users "
+            + "(email, first_name, last_name, birth_date, address, phone_number, is_deleted, version) "
+            + "VALUES (:email, :firstName, :lastName, :birthDate, :address, :phoneNumber, false, 0)";
+    private static final String INSERT_CHANGE_SQL =
+            "INSERT INTO user_changes (user_id, change_type, created_at) VALUES (:userId, :changeType, :createdAt)";
+    private static final String INSERT_DELETIONS_SQL = "INSERT INTO user_changes (user_id, change_type, created_at) "
+            + "SELECT id, 'DELETED', :createdAt FROM users WHERE id IN (:ids) AND is_deleted = false";
+    private static final String FIND_BY_ID_SQL = "SELECT " + USER_DTO_COLUMNS + " FROM users "
+            + "WHERE id = :id AND is_deleted = false";
+    private static final String FIND_BY_IDS_SQL = "SELECT " + USER_DTO_COLUMNS + " FROM users "
+            + "WHERE id IN (:ids) AND is_deleted = false";
+    private static final String FIND_BY_EMAIL_SQL = "SELECT " + USER_DTO_COLUMNS + " FROM users "
+            + "WHERE email = :email AND is_deleted = false";
+    private static final String FIND_BY_BIRTH_DATE_SQL = "SELECT " + USER_DTO_COLUMNS + " FROM users "
+            + "WHERE is_deleted = false AND birth_date BETWEEN :from AND :to ORDER BY birth_date, id";
+    private static final String FIND_PAGE_BY_BIRTH_DATE_SQL = "SELECT " + USER_DTO_COLUMNS + " FROM users "
+            + "WHERE is_deleted = false AND birth_date BETWEEN :from AND :to "
+            + "AND (birth_date > :afterBirthDate OR (birth_date = :afterBirthDate AND id > :afterId)) "
+            + "ORDER BY birth_date, id LIMIT :limit";
+    private static final String SOFT_DELETE_SQL = "UPDATE users "
+            + "SET is_deleted = true, deleted_at = :deletedAt, version = version + 1 "
+            + "WHERE id = :id AND is_deleted = false";
+    private static final String SOFT_DELETE_ALL_SQL = "UPDATE users "
+            + "SET is_deleted = true, deleted_at = :deletedAt, version = version + 1 "
+            + "WHERE id IN (:ids) AND is_deleted = false";
+    private static final String ID_COLUMN = "id";
+    private static final long INITIAL_VERSION = 0L;
+
+    private final DatabaseClient databaseClient;
+    private final int searchFetchSize;
+
+    public ReactiveUserRepository(
+            DatabaseClient databaseClient,
+            @Value("${app.reactive.search-fetch-size}") int searchFetchSize
+    ) {
+        this.databaseClient = databaseClient;
+        this.searchFetchSize = searchFetchSize;
+    }
+
+    public Mono<User> insert(User user) {
+        return databaseClient.sql(INSERT_USER_SQL)
+                .bind("email", user.getEmail())
+                .bind("firstName", user.getFirstName())
+                .bind("lastName", user.getLastName())
+                .bind("birthDate", user.getBirthDate())
+                .bind("address", Parameters.in(R2dbcType.VARCHAR, user.getAddress()))
+                .bind("phoneNumber", Parameters.in(R2dbcType.VARCHAR, user.getPhoneNumber()))
+                .filter(statement -> statement.returnGeneratedValues(ID_COLUMN))
+                .map(row -> row.get(ID_COLUMN, Long.class))
+                .one()
+                .map(id -> {
+                    user.setId(id);
+                    user.setVersion(INITIAL_VERSION);
+                    return user;
+                });
+    }
+
+    public Mono<Long> recordChange(Long userId, UserChangeType changeType) {
+        return databaseClient.sql(INSERT_CHANGE_SQL)
+                .bind("userId", userId)
+                .bind("changeType", changeType.name())
+                .bind("createdAt", LocalDateTime.now())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // Records a deletion for every listed user that is still active, before the batch soft delete marks them
+    public Mono<Long> recordDeletions(Collection<Long> ids, LocalDateTime createdAt) {
+        return databaseClient.sql(INSERT_DELETIONS_SQL)
+                .bind("ids", ids)
+                .bind("createdAt", createdAt)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<UserDto> findDtoById(Long id) {
+        return databaseClient.sql(FIND_BY_ID_SQL)
+                .bind("id", id)
+                .map(ReactiveUserRepository::toUserDto)
+                .one();
+    }
+
+    public Flux<UserDto> findDtoByIdIn(Collection<Long> ids) {
+        return databaseClient.sql(FIND_BY_IDS_SQL)
+                .bind("ids", ids)
+                .map(ReactiveUserRepository::toUserDto)
+                .all();
+    }
+
+    public Mono<UserDto> findDtoByEmail(String email) {
+        return databaseClient.sql(FIND_BY_EMAIL_SQL)
+                .bind("email", email)
+                .map(ReactiveUserRepository::toUserDto)
+                .one();
+    }
+
+    // Rows are fetched in chunks as the subscriber requests them, so a slow client holds back the query
+    // instead of filling the heap
+    public Flux<UserDto> findByBirthDateBetween(LocalDate from, LocalDate to) {
+        return databaseClient.sql(FIND_BY_BIRTH_DATE_SQL)
+                .bind("from", from)
+                .bind("to", to)
+                .filter(statement -> statement.fetchSize(searchFetchSize))
+                .map(ReactiveUserRepository::toUserDto)
+                .all();
+    }
+
+    public Flux<UserDto> findPageByBirthDateBetween(
+            LocalDate from, LocalDate to, LocalDate afterBirthDate, Long afterId, int limit) {
+        return databaseClient.sql(FIND_PAGE_BY_BIRTH_DATE_SQL)
+                .bind("from", from)
+                .bind("to", to)
+                .bind("afterBirthDate", afterBirthDate)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toUserDto)
+                .all();
+    }
+
+    public Mono<Long> softDeleteById(Long id, LocalDateTime deletedAt) {
+        return databaseClient.sql(SOFT_DELETE_SQL)
+                .bind("id", id)
+                .bind("deletedAt", deletedAt)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> softDeleteAllByIdIn(Collection<Long> ids, LocalDateTime deletedAt) {
+        return databaseClient.sql(SOFT_DELETE_ALL_SQL)
+                .bind("ids", ids)
+                .bind("deletedAt", deletedAt)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static UserDto toUserDto(Readable row) {
+        return new UserDto(
+                row.get("id", Long.class),
+                row.get("email", String.class),
+                row.get("first_name", String.class),
+                row.get("last_name", String.class),
+                row.get("birth_date", LocalDate.class),
+                row.get("address", String.class),
+                row.get("phone_number", String.class),
+                row.get("version", Long.class));
+    }
+}
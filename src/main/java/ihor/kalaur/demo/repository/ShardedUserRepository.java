@@ -0,0 +1,305 @@
+package ihor.kalaur.demo.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import ihor.kalaur.demo.datasource.ShardingProperties;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.model.User;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Optional hash sharding of the users table. Users are spread over the shard databases by id, ids come from a
+// Snowflake generator instead of per-shard AUTO_INCREMENT, and the user_email_directory table on the main database
+// maps every email to its shard, so email lookups and email uniqueness stay global.
+@Component
+public class ShardedUserRepository implements AutoCloseable {
+    private static final String SHARD_POOL_NAME_PREFIX = "shard-";
+    private static final String USER_DTO_COLUMNS =
+            "id, email, first_name, last_name, birth_date, address, phone_number, version";
+    private static final String INSERT_DIRECTORY_SQL =
+            "INSERT INTO user_email_directory (email, shard, user_id) VALUES (:email, :shard, :userId)";
+    private static final String DELETE_DIRECTORY_SQL =
+            "DELETE FROM user_email_directory WHERE email = :email AND user_id = :userId";
+    private static final String FIND_IN_DIRECTORY_SQL =
+            "SELECT user_id, shard FROM user_email_directory WHERE email = :email";
+    private static final String INSERT_USER_SQL = "INSERT INTO users "
+            + "(id, email, first_name, last_name, birth_date, address, phone_number, is_deleted, version) "
+            + "VALUES (:id, :email, :firstName, :lastName, :birthDate, :address, :phoneNumber, false, 0)";
+    private static final String FIND_BY_ID_SQL = "SELECT " + USER_DTO_COLUMNS + " FROM users "
+            + "WHERE id = :id AND is_deleted = false";
+    private static final String FIND_BY_IDS_SQL = "SELECT " + USER_DTO_COLUMNS + " FROM users "
+            + "WHERE id IN (:ids) AND is_deleted = false";
+    private static final String SOFT_DELETE_SQL = "UPDATE users "
+            + "SET is_deleted = true, deleted_at = :deletedAt, version = version + 1 "
+            + "WHERE id = :id AND is_deleted = false";
+    private static final String SOFT_DELETE_ALL_SQL = "UPDATE users "
+            + "SET is_deleted = true, deleted_at = :deletedAt, version = version + 1 "
+            + "WHERE id IN (:ids) AND is_deleted = false";
+    private static final String FIND_BY_BIRTH_DATE_SQL = "SELECT " + USER_DTO_COLUMNS + " FROM users "
+            + "WHERE is_deleted = false AND birth_date BETWEEN :from AND :to ORDER BY birth_date, id";
+    private static final String FIND_PAGE_BY_BIRTH_DATE_SQL = "SELECT " + USER_DTO_COLUMNS + " FROM users "
+            + "WHERE is_deleted = false AND birth_date BETWEEN :from AND :to "
+            + "AND (birth_date > :afterBirthDate OR (birth_date = :afterBirthDate AND id > :afterId)) "
+            + "ORDER BY birth_date, id LIMIT :limit";
+    // Spreads the time-ordered ids, whose low bits are mostly zero, evenly over the shards
+    private static final long SHARD_HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final Comparator<UserDto> BY_BIRTH_DATE_AND_ID =
+            Comparator.comparing(UserDto::getBirthDate).thenComparing(UserDto::getId);
+    private static final RowMapper<UserDto> USER_DTO_ROW_MAPPER = (resultSet, rowNum) -> new UserDto(
+            resultSet.getLong("id"),
+            resultSet.getString("email"),
+            resultSet.getString("first_name"),
+            resultSet.getString("last_name"),
+            resultSet.getObject("birth_date", LocalDate.class),
+            resultSet.getString("address"),
+            resultSet.getString("phone_number"),
+            resultSet.getLong("version"));
+
+    private final NamedParameterJdbcTemplate directoryJdbcTemplate;
+    private final SnowflakeIdGenerator userIdGenerator;
+    private final List<DataSource> shardDataSources;
+    private final List<NamedParameterJdbcTemplate> shards;
+    private final long queryTimeoutMs;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ShardedUserRepository(
+            NamedParameterJdbcTemplate directoryJdbcTemplate,
+            SnowflakeIdGenerator userIdGenerator,
+            ShardingProperties properties,
+            LiquibaseProperties liquibaseProperties,
+            ResourceLoader resourceLoader
+    ) throws LiquibaseException {
+        this(directoryJdbcTemplate, userIdGenerator,
+                properties.isEnabled()
+                        ? createShards(properties.getShards(), liquibaseProperties.getChangeLog(), resourceLoader)
+                        : List.of(),
+                properties.getQueryTimeoutMs());
+    }
+
+    ShardedUserRepository(
+            NamedParameterJdbcTemplate directoryJdbcTemplate,
+            SnowflakeIdGenerator userIdGenerator,
+            List<DataSource> shardDataSources,
+            long queryTimeoutMs
+    ) {
+        this.directoryJdbcTemplate = directoryJdbcTemplate;
+        this.userIdGenerator = userIdGenerator;
+        this.shardDataSources = shardDataSources;
+        this.shards = shardDataSources.stream()
+                .map(NamedParameterJdbcTemplate::new)
+                .toList();
+        this.queryTimeoutMs = queryTimeoutMs;
+        this.executor = shardDataSources.isEmpty() ? null : Executors.newFixedThreadPool(shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return !shards.isEmpty();
+    }
+
+    // The directory row claims the email first, so two shards can never accept the same email. There is no
+    // transaction spanning both databases: a failed shard insert releases the claim again.
+    public User insert(User user) {
+        long id = userIdGenerator.nextId();
+        int shard = shardOf(id);
+        MapSqlParameterSource directoryEntry = new MapSqlParameterSource()
+                .addValue("email", user.getEmail())
+                .addValue("shard", shard)
+                .addValue("userId", id);
+        directoryJdbcTemplate.update(INSERT_DIRECTORY_SQL, directoryEntry);
+        try {
+            shards.get(shard).update(INSERT_USER_SQL, new MapSqlParameterSource()
+                    .addValue("id", id)
+                    .addValue("email", user.getEmail())
+                    .addValue("firstName", user.getFirstName())
+                    .addValue("lastName", user.getLastName())
+                    .addValue("birthDate", user.getBirthDate())
+                    .addValue("address", user.getAddress())
+                    .addValue("phoneNumber", user.getPhoneNumber()));
+        } catch (RuntimeException e) {
+            directoryJdbcTemplate.update(DELETE_DIRECTORY_SQL, directoryEntry);
+            throw e;
+        }
+        user.setId(id);
+        user.setVersion(0L);
+        return user;
+    }
+
+    public Optional<UserDto> findDtoById(Long id) {
+        return findDtoById(id, shardOf(id));
+    }
+
+    private Optional<UserDto> findDtoById(long id, int shard) {
+        return shards.get(shard).query(FIND_BY_ID_SQL, Map.of("id", id), USER_DTO_ROW_MAPPER).stream()
+                .findFirst();
+    }
+
+    public Optional<UserDto> findDtoByEmail(String email) {
+        return directoryJdbcTemplate.query(FIND_IN_DIRECTORY_SQL, Map.of("email", email),
+                        (resultSet, rowNum) -> new DirectoryEntry(
+                                resultSet.getLong("user_id"), resultSet.getInt("shard")))
+                .stream()
+                .findFirst()
+                .flatMap(entry -> findDtoById(entry.userId(), entry.shard()));
+    }
+
+    // Only the shards that own one of the ids are queried, each once
+    public List<UserDto> findDtoByIdIn(Collection<Long> ids) {
+        Map<Integer, List<Long>> idsByShard = groupByShard(ids);
+        return scatter(idsByShard.keySet(),
+                shard -> shards.get(shard).query(FIND_BY_IDS_SQL, Map.of("ids", idsByShard.get(shard)),
+                        USER_DTO_ROW_MAPPER));
+    }
+
+    public int softDeleteById(Long id, LocalDateTime deletedAt) {
+        return shards.get(shardOf(id)).update(SOFT_DELETE_SQL, Map.of("id", id, "deletedAt", deletedAt));
+    }
+
+    public int softDeleteAllByIdIn(Collection<Long> ids, LocalDateTime deletedAt) {
+        Map<Integer, List<Long>> idsByShard = groupByShard(ids);
+        int deleted = 0;
+        for (Map.Entry<Integer, List<Long>> entry : idsByShard.entrySet()) {
+            deleted += shards.get(entry.getKey()).update(SOFT_DELETE_ALL_SQL,
+                    Map.of("ids", entry.getValue(), "deletedAt", deletedAt));
+        }
+        return deleted;
+    }
+
+    public List<UserDto> findByBirthDateBetween(LocalDate from, LocalDate to) {
+        return scatterGather(FIND_BY_BIRTH_DATE_SQL, Map.of("from", from, "to", to), Integer.MAX_VALUE);
+    }
+
+    // Every shard returns its own first limit users after the cursor, so the first limit users of the merged
+    // result are also the first limit users overall
+    public List<UserDto> findPageByBirthDateBetween(
+            LocalDate from, LocalDate to, LocalDate afterBirthDate, Long afterId, int limit) {
+        return scatterGather(FIND_PAGE_BY_BIRTH_DATE_SQL,
+                Map.of("from", from,
+                        "to", to,
+                        "afterBirthDate", afterBirthDate,
+                        "afterId", afterId,
+                        "limit", limit),
+                limit);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        shardDataSources.stream()
+                .filter(HikariDataSource.class::isInstance)
+                .forEach(dataSource -> ((HikariDataSource) dataSource).close());
+    }
+
+    int shardOf(long id) {
+        return Math.floorMod(Long.hashCode(id * SHARD_HASH_MULTIPLIER), shards.size());
+    }
+
+    static void migrate(DataSource dataSource, String changeLog, ResourceLoader resourceLoader)
+            throws LiquibaseException {
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog(changeLog);
+        liquibase.setResourceLoader(resourceLoader);
+        liquibase.afterPropertiesSet();
+    }
+
+    private List<UserDto> scatterGather(String sql, Map<String, ?> parameters, int limit) {
+        List<Integer> allShards = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            allShards.add(shard);
+        }
+        List<UserDto> users = scatter(allShards,
+                shard -> shards.get(shard).query(sql, parameters, USER_DTO_ROW_MAPPER));
+        // The shard results are already sorted runs, which the merge sort only has to merge
+        users.sort(BY_BIRTH_DATE_AND_ID);
+        return users.size() > limit ? new ArrayList<>(users.subList(0, limit)) : users;
+    }
+
+    // Shards are queried in parallel and the call fails as a whole when any shard fails or misses the deadline
+    private List<UserDto> scatter(Collection<Integer> targetShards, Function<Integer, List<UserDto>> query) {
+        List<Future<List<UserDto>>> futures = targetShards.stream()
+                .map(shard -> executor.submit(() -> query.apply(shard)))
+                .toList();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queryTimeoutMs);
+        List<UserDto> users = new ArrayList<>();
+        try {
+            for (Future<List<UserDto>> future : futures) {
+                users.addAll(future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            }
+            return users;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DataAccessException cause) {
+                throw cause;
+            }
+            throw new DataAccessResourceFailureException("A shard query failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new DataAccessResourceFailureException(
+                    "Not every shard answered within " + queryTimeoutMs + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while waiting for the shards", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private Map<Integer, List<Long>> groupByShard(Collection<Long> ids) {
+        return ids.stream().collect(Collectors.groupingBy(this::shardOf));
+    }
+
+    private static List<DataSource> createShards(
+            List<ShardingProperties.Shard> shardProperties, String changeLog, ResourceLoader resourceLoader)
+            throws LiquibaseException {
+        if (shardProperties.isEmpty()) {
+            throw new IllegalStateException("Sharding is enabled but app.datasource.sharding.shards is empty");
+        }
+        List<DataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < shardProperties.size(); i++) {
+            ShardingProperties.Shard shard = shardProperties.get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            dataSource.setPoolName(SHARD_POOL_NAME_PREFIX + i);
+            migrate(dataSource, changeLog, resourceLoader);
+            dataSources.add(dataSource);
+        }
+        return dataSources;
+    }
+
+    private record DirectoryEntry(long userId, int shard) {}
+}
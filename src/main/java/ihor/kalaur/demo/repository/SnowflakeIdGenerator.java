@@ -0,0 +1,64 @@
+package ihor.kalaur.demo.repository;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Globally unique, time-ordered 63-bit ids: 41 bits of milliseconds since 2024-01-01, 10 bits of worker id and a
+// 12-bit sequence within the millisecond. Every instance needs its own worker id; no database round trip is needed.
+public class SnowflakeIdGenerator {
+    static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    static final int WORKER_ID_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long workerId;
+    private final LongSupplier clock;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public SnowflakeIdGenerator(long workerId) {
+        this(workerId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long workerId, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException(
+                    String.format("Worker id must be between 0 and %d, got %d", MAX_WORKER_ID, workerId));
+        }
+        this.workerId = workerId;
+        this.clock = clock;
+    }
+
+    // A clock that steps back keeps using the last millisecond, so ids never repeat or decrease
+    public long nextId() {
+        lock.lock();
+        try {
+            long millis = Math.max(clock.getAsLong(), lastMillis);
+            if (millis == lastMillis) {
+                sequence = (sequence + 1) & SEQUENCE_MASK;
+                if (sequence == 0) {
+                    millis = waitForNextMillis(lastMillis);
+                }
+            } else {
+                sequence = 0;
+            }
+            lastMillis = millis;
+            return ((millis - EPOCH_MILLIS) << (WORKER_ID_BITS + SEQUENCE_BITS))
+                    | (workerId << SEQUENCE_BITS)
+                    | sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long waitForNextMillis(long lastMillis) {
+        long millis = clock.getAsLong();
+        while (millis <= lastMillis) {
+            Thread.onSpinWait();
+            millis = clock.getAsLong();
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,79 @@
+package ihor.kalaur.demo.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+@RequiredArgsConstructor
+public class UserArchiveRepository {
+    // Keyset over the (is_deleted, deleted_at, id) index, so every chunk is a short range scan
+    static final String FIND_EXPIRED_CHUNK_SQL = "SELECT id, deleted_at FROM users "
+            + "WHERE is_deleted = true AND deleted_at < :cutoff "
+            + "AND (deleted_at > :afterDeletedAt OR (deleted_at = :afterDeletedAt AND id > :afterId)) "
+            + "ORDER BY deleted_at, id LIMIT :limit";
+    private static final String USER_COLUMNS =
+            "id, email, first_name, last_name, birth_date, address, phone_number";
+    private static final String COPY_TO_ARCHIVE_SQL = "INSERT INTO users_archive "
+            + "(" + USER_COLUMNS + ", version, deleted_at, archived_at) "
+            + "SELECT " + USER_COLUMNS + ", version, deleted_at, :archivedAt FROM users "
+            + "WHERE id IN (:ids) AND is_deleted = true";
+    private static final String DELETE_ARCHIVED_SQL = "DELETE FROM users WHERE id IN (:ids) AND is_deleted = true";
+    private static final String COPY_FROM_ARCHIVE_SQL = "INSERT INTO users "
+            + "(" + USER_COLUMNS + ", is_deleted, version) "
+            + "SELECT " + USER_COLUMNS + ", false, version + 1 FROM users_archive WHERE id = :id";
+    private static final String DELETE_FROM_ARCHIVE_SQL = "DELETE FROM users_archive WHERE id = :id";
+    private static final String FIND_OLDEST_DELETED_AT_SQL =
+            "SELECT MIN(deleted_at) FROM users WHERE is_deleted = true";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public List<ArchiveKey> findExpiredChunk(LocalDateTime cutoff, ArchiveKey after, int limit) {
+        return jdbcTemplate.query(FIND_EXPIRED_CHUNK_SQL,
+                Map.of("cutoff", cutoff,
+                        "afterDeletedAt", after.deletedAt(),
+                        "afterId", after.id(),
+                        "limit", limit),
+                (resultSet, rowNum) -> new ArchiveKey(
+                        resultSet.getObject("deleted_at", LocalDateTime.class),
+                        resultSet.getLong("id")));
+    }
+
+    // Copy and delete run in one short transaction per chunk. Both are guarded by is_deleted, and a chunk whose
+    // counts differ (a user was restored in between) is rolled back and picked up again on the next run.
+    @Transactional
+    public int moveToArchive(List<Long> ids, LocalDateTime archivedAt) {
+        int copied = jdbcTemplate.update(COPY_TO_ARCHIVE_SQL, Map.of("ids", ids, "archivedAt", archivedAt));
+        int deleted = jdbcTemplate.update(DELETE_ARCHIVED_SQL, Map.of("ids", ids));
+        if (copied != deleted) {
+            throw new IllegalStateException(String.format(
+                    "Archived %d users but deleted %d, the chunk was changed concurrently", copied, deleted));
+        }
+        return deleted;
+    }
+
+    @Transactional
+    public boolean restoreFromArchive(Long id) {
+        if (jdbcTemplate.update(COPY_FROM_ARCHIVE_SQL, Map.of("id", id)) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(DELETE_FROM_ARCHIVE_SQL, Map.of("id", id));
+        return true;
+    }
+
+    @Transactional
+    public Optional<LocalDateTime> findOldestDeletedAt() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(FIND_OLDEST_DELETED_AT_SQL, Map.of(),
+                LocalDateTime.class));
+    }
+
+    public record ArchiveKey(LocalDateTime deletedAt, long id) {
+        public static final ArchiveKey START = new ArchiveKey(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+    }
+}
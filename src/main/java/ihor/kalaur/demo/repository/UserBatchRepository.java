@@ -0,0 +1,130 @@
+package ihor.kalaur.demo.repository;
+
+import ihor.kalaur.demo.model.User;
+import ihor.kalaur.demo.model.UserChangeType;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+@RequiredArgsConstructor
+public class UserBatchRepository {
+    private static final String INSERT_SQL = "INSERT INTO users "
+            + "(email, first_name, last_name, birth_date, address, phone_number, is_deleted, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, false, 0)";
+    private static final String INSERT_CHANGE_SQL =
+            "INSERT INTO user_changes (user_id, change_type, created_at) VALUES (?, ?, ?)";
+    private static final String DUPLICATE_EMAIL_MESSAGE =
+            "email: must be unique, the provided email is already in use";
+    private static final String DATA_INTEGRITY_VIOLATION_MESSAGE = "Data integrity violation";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public List<BatchInsertResult> insertAll(List<User> users) {
+        return jdbcTemplate.execute((ConnectionCallback<List<BatchInsertResult>>) connection ->
+                insertAll(connection, users));
+    }
+
+    private List<BatchInsertResult> insertAll(Connection connection, List<User> users) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (User user : users) {
+                bind(statement, user);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            List<BatchInsertResult> results = new ArrayList<>(users.size());
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                for (User user : users) {
+                    keys.next();
+                    user.setId(keys.getLong(1));
+                    results.add(BatchInsertResult.inserted(user.getId()));
+                }
+            }
+            connection.releaseSavepoint(savepoint);
+            recordCreations(connection, users.stream().map(User::getId).toList());
+            return results;
+        } catch (BatchUpdateException e) {
+            connection.rollback(savepoint);
+            return insertOneByOne(connection, users);
+        }
+    }
+
+    private List<BatchInsertResult> insertOneByOne(Connection connection, List<User> users) throws SQLException {
+        List<BatchInsertResult> results = new ArrayList<>(users.size());
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (User user : users) {
+                Savepoint savepoint = connection.setSavepoint();
+                try {
+                    bind(statement, user);
+                    statement.executeUpdate();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        keys.next();
+                        user.setId(keys.getLong(1));
+                    }
+                    connection.releaseSavepoint(savepoint);
+                    results.add(BatchInsertResult.inserted(user.getId()));
+                } catch (SQLException e) {
+                    connection.rollback(savepoint);
+                    results.add(toRejection(e));
+                }
+            }
+        }
+        recordCreations(connection, results.stream()
+                .filter(BatchInsertResult::isInserted)
+                .map(BatchInsertResult::id)
+                .toList());
+        return results;
+    }
+
+    // Outbox rows share the connection and transaction of the inserts, so the change feed never sees a user
+    // that was rolled back and never misses one that was committed
+    private void recordCreations(Connection connection, List<Long> userIds) throws SQLException {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_CHANGE_SQL)) {
+            for (Long userId : userIds) {
+                statement.setLong(1, userId);
+                statement.setString(2, UserChangeType.CREATED.name());
+                statement.setTimestamp(3, createdAt);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void bind(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getEmail());
+        statement.setString(2, user.getFirstName());
+        statement.setString(3, user.getLastName());
+        statement.setDate(4, Date.valueOf(user.getBirthDate()));
+        statement.setString(5, user.getAddress());
+        statement.setString(6, user.getPhoneNumber());
+    }
+
+    private BatchInsertResult toRejection(SQLException e) {
+        DataAccessException translated = jdbcTemplate.getExceptionTranslator().translate("insert user", INSERT_SQL, e);
+        return translated instanceof DuplicateKeyException
+                ? BatchInsertResult.rejectedDuplicate(DUPLICATE_EMAIL_MESSAGE)
+                : BatchInsertResult.rejected(DATA_INTEGRITY_VIOLATION_MESSAGE);
+    }
+}
@@ -0,0 +1,54 @@
+package ihor.kalaur.demo.repository;
+
+import ihor.kalaur.demo.dto.UserDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Coalesces concurrent single-id lookups into one IN query
+@Component
+public class UserByIdBatchLoader {
+    private static final String BATCH_SIZE_METRIC = "user.lookup.batch.size";
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final DistributionSummary batchSizes;
+    private final BatchCoalescer<Long, UserDto> coalescer;
+
+    public UserByIdBatchLoader(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.user.batch-loader.enabled}") boolean enabled,
+            @Value("${app.user.batch-loader.window-ms}") long windowMs,
+            @Value("${app.user.batch-loader.max-batch-size}") int maxBatchSize
+    ) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC)
+                .description("Number of user ids resolved by one coalesced query")
+                .register(meterRegistry);
+        this.coalescer = new BatchCoalescer<>(windowMs, maxBatchSize, this::loadAll);
+    }
+
+    public Optional<UserDto> findById(Long id) {
+        if (!enabled) {
+            return userRepository.findDtoById(id);
+        }
+        return Optional.ofNullable(coalescer.submit(id));
+    }
+
+    private List<UserDto> loadAll(List<Long> ids) {
+        batchSizes.record(ids.size());
+        Map<Long, UserDto> users = userRepository.findDtoByIdIn(ids).stream()
+                .collect(Collectors.toMap(UserDto::getId, Function.identity()));
+        return ids.stream()
+                .map(users::get)
+                .toList();
+    }
+}
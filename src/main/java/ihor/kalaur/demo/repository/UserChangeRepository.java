@@ -0,0 +1,36 @@
+package ihor.kalaur.demo.repository;
+
+import ihor.kalaur.demo.model.UserChange;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+    // Ids are taken on insert but become visible on commit, so the result may have gaps the feed has to wait on.
+    // Reads go to the primary, a lagging replica would hold changes back for longer.
+    @Transactional
+    @Query("SELECT c FROM UserChange c WHERE c.id > :afterId ORDER BY c.id")
+    List<UserChange> findAfter(Long afterId, Pageable pageable);
+
+    @Transactional
+    @Query("SELECT MAX(c.id) FROM UserChange c")
+    Optional<Long> findLatestId();
+
+    // Records a deletion for every listed user that is still active, before the batch soft delete marks them
+    @Modifying
+    @Query(value = "INSERT INTO user_changes (user_id, change_type, created_at) "
+            + "SELECT id, 'DELETED', :createdAt FROM users WHERE id IN (:ids) AND is_deleted = false",
+            nativeQuery = true)
+    int recordDeletions(Collection<Long> ids, LocalDateTime createdAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserChange c WHERE c.createdAt < :createdBefore")
+    int deleteCreatedBefore(LocalDateTime createdBefore);
+}
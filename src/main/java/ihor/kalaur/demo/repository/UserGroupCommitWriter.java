@@ -0,0 +1,48 @@
+package ihor.kalaur.demo.repository;
+
+import ihor.kalaur.demo.model.User;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Group commit for single-user inserts: concurrent creates are queued for window-ms and written as one JDBC batch
+// in one transaction, so they share a single commit. A rejected row only fails its own caller.
+@Component
+public class UserGroupCommitWriter {
+    private static final String BATCH_SIZE_METRIC = "user.create.batch.size";
+
+    private final UserBatchRepository userBatchRepository;
+    private final boolean enabled;
+    private final DistributionSummary batchSizes;
+    private final BatchCoalescer<User, BatchInsertResult> coalescer;
+
+    public UserGroupCommitWriter(
+            UserBatchRepository userBatchRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.user.group-commit.enabled}") boolean enabled,
+            @Value("${app.user.group-commit.window-ms}") long windowMs,
+            @Value("${app.user.group-commit.max-batch-size}") int maxBatchSize
+    ) {
+        this.userBatchRepository = userBatchRepository;
+        this.enabled = enabled;
+        this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC)
+                .description("Number of users written by one group commit")
+                .register(meterRegistry);
+        this.coalescer = new BatchCoalescer<>(windowMs, maxBatchSize, this::insertAll);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public BatchInsertResult insert(User user) {
+        return coalescer.submit(user);
+    }
+
+    private List<BatchInsertResult> insertAll(List<User> users) {
+        batchSizes.record(users.size());
+        return userBatchRepository.insertAll(users);
+    }
+}
@@ -1,14 +1,109 @@
 package ihor.kalaur.demo.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.stats.BirthDateCount;
 import ihor.kalaur.demo.model.User;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    // Read paths select straight into UserDto, so no managed entities or dirty-checking snapshots are created
+    String SELECT_USER_DTO = "SELECT new ihor.kalaur.demo.dto.UserDto(u.id, u.email, u.firstName, u.lastName, "
+            + "u.birthDate, u.address, u.phoneNumber, u.version) FROM User u ";
+
+    // Single-user reads stay on the primary: their results are cached,
+    // and a lagging replica could put a stale copy back right after an update
+    @Transactional
+    @Query(SELECT_USER_DTO + "WHERE u.id = :id")
+    Optional<UserDto> findDtoById(Long id);
+
+    @Transactional
+    @Query(SELECT_USER_DTO + "WHERE u.id IN :ids")
+    List<UserDto> findDtoByIdIn(Collection<Long> ids);
+
+    @Transactional
+    @Query(SELECT_USER_DTO + "WHERE u.email = :email")
+    Optional<UserDto> findDtoByEmail(String email);
+
+    // The unique key on email also covers soft-deleted users, so these checks read the table without the restriction
+    @Transactional
+    @Query(value = "SELECT id FROM users WHERE email = :email", nativeQuery = true)
+    Optional<Long> findIdByEmailIncludingDeleted(String email);
+
+    @Transactional
+    @Query(value = "SELECT email FROM users WHERE email IN (:emails)", nativeQuery = true)
+    List<String> findExistingEmails(Collection<String> emails);
+
+    @Query(SELECT_USER_DTO + "WHERE u.birthDate BETWEEN :from AND :to")
+    List<UserDto> findByBirthDateBetween(LocalDate from, LocalDate to);
+
+    @Query("SELECT COUNT(u) FROM User u WHERE u.birthDate BETWEEN :from AND :to")
+    long countByBirthDateBetween(LocalDate from, LocalDate to);
+
+    // Read on the primary: the birth date histogram is rebuilt from this and must not inherit replica lag
+    @Transactional
+    @Query("SELECT new ihor.kalaur.demo.dto.stats.BirthDateCount(u.birthDate, COUNT(u)) FROM User u "
+            + "GROUP BY u.birthDate")
+    List<BirthDateCount> countGroupedByBirthDate();
+
+    @Transactional
+    @Query("SELECT u.birthDate FROM User u WHERE u.id = :id")
+    Optional<LocalDate> findBirthDateById(Long id);
+
+    @Query(SELECT_USER_DTO + "WHERE u.birthDate BETWEEN :from AND :to "
+            + "AND (u.birthDate > :afterBirthDate OR (u.birthDate = :afterBirthDate AND u.id > :afterId)) "
+            + "ORDER BY u.birthDate, u.id")
+    List<UserDto> findPageByBirthDateBetween(
+            LocalDate from,
+            LocalDate to,
+            LocalDate afterBirthDate,
+            Long afterId,
+            Pageable pageable
+    );
+
+    @Query(SELECT_USER_DTO + "WHERE u.birthMonthDay BETWEEN :fromMonthDay AND :toMonthDay "
+            + "AND (u.birthMonthDay > :afterMonthDay OR (u.birthMonthDay = :afterMonthDay AND u.id > :afterId)) "
+            + "ORDER BY u.birthMonthDay, u.id")
+    List<UserDto> findPageByBirthMonthDayBetween(
+            int fromMonthDay,
+            int toMonthDay,
+            int afterMonthDay,
+            Long afterId,
+            Pageable pageable
+    );
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_USER_DTO + "WHERE u.birthDate BETWEEN :from AND :to ORDER BY u.birthDate, u.id")
+    Stream<UserDto> streamByBirthDateBetween(LocalDate from, LocalDate to);
+
+    // The version is bumped so a copy of the user read before the delete loses against anything written after it
+    @Modifying
+    @Query("UPDATE User u SET u.isDeleted = true, u.deletedAt = :deletedAt, u.version = u.version + 1 "
+            + "WHERE u.id = :id AND u.isDeleted = false")
+    int softDeleteById(Long id, LocalDateTime deletedAt);
+
+    @Modifying
+    @Query("UPDATE User u SET u.isDeleted = true, u.deletedAt = :deletedAt, u.version = u.version + 1 "
+            + "WHERE u.id IN :ids AND u.isDeleted = false")
+    int softDeleteAllByIdIn(Collection<Long> ids, LocalDateTime deletedAt);
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    @Query("SELECT u FROM User u WHERE u.birthDate BETWEEN :from AND :to")
-    List<User> findByBirthDateBetween(LocalDate from, LocalDate to);
+    @Modifying
+    @Query(value = "UPDATE users SET is_deleted = false, deleted_at = NULL, version = version + 1 "
+            + "WHERE id = :id AND is_deleted = true", nativeQuery = true)
+    int restoreById(Long id);
 
     List<User> findAll();
 }
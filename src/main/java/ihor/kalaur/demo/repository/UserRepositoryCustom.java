@@ -0,0 +1,30 @@
+package ihor.kalaur.demo.repository;
+
+import ihor.kalaur.demo.dto.UserField;
+import ihor.kalaur.demo.model.User;
+import jakarta.persistence.Tuple;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface UserRepositoryCustom {
+    int updateNonNullFields(Long id, User patch, Long expectedVersion);
+
+    // Sets the version the row ends up with on the given user, unless the email belongs to another user
+    int upsert(User user);
+
+    List<LocalDate> findBirthDatesDeletedAt(Collection<Long> ids, Collection<LocalDateTime> deletedAts);
+
+    List<Tuple> findFieldsByBirthDateBetween(Set<UserField> fields, LocalDate from, LocalDate to);
+
+    List<Tuple> findFieldPageByBirthDateBetween(
+            Set<UserField> fields,
+            LocalDate from,
+            LocalDate to,
+            LocalDate afterBirthDate,
+            Long afterId,
+            int limit
+    );
+}
@@ -0,0 +1,194 @@
+package ihor.kalaur.demo.repository;
+
+import ihor.kalaur.demo.dto.UserField;
+import ihor.kalaur.demo.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+
+@RequiredArgsConstructor
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    private static final String ID = "id";
+    private static final String EMAIL = "email";
+    private static final String FIRST_NAME = "firstName";
+    private static final String LAST_NAME = "lastName";
+    private static final String BIRTH_DATE = "birthDate";
+    private static final String ADDRESS = "address";
+    private static final String PHONE_NUMBER = "phoneNumber";
+    private static final String IS_DELETED = "isDeleted";
+    private static final String VERSION = "version";
+    // ON DUPLICATE KEY also fires on the unique email index; the CASE guards leave another user's row untouched,
+    // so an email taken by a different id reports zero affected rows instead of overwriting that user.
+    // LAST_INSERT_ID(expr) hands the bumped version back to the connection, so it never has to be read.
+    private static final String UPSERT_SQL = "INSERT INTO users "
+            + "(id, email, first_name, last_name, birth_date, address, phone_number, is_deleted, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, false, 0) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "email = CASE WHEN id = VALUES(id) THEN VALUES(email) ELSE email END, "
+            + "first_name = CASE WHEN id = VALUES(id) THEN VALUES(first_name) ELSE first_name END, "
+            + "last_name = CASE WHEN id = VALUES(id) THEN VALUES(last_name) ELSE last_name END, "
+            + "birth_date = CASE WHEN id = VALUES(id) THEN VALUES(birth_date) ELSE birth_date END, "
+            + "address = CASE WHEN id = VALUES(id) THEN VALUES(address) ELSE address END, "
+            + "phone_number = CASE WHEN id = VALUES(id) THEN VALUES(phone_number) ELSE phone_number END, "
+            + "is_deleted = CASE WHEN id = VALUES(id) THEN false ELSE is_deleted END, "
+            + "deleted_at = CASE WHEN id = VALUES(id) THEN NULL ELSE deleted_at END, "
+            + "version = CASE WHEN id = VALUES(id) THEN LAST_INSERT_ID(version + 1) ELSE version END";
+    private static final String SELECT_LAST_INSERT_ID = "SELECT LAST_INSERT_ID()";
+    private static final int UPSERT_INSERTED_ROWS = 1;
+    private static final int UPSERT_UPDATED_ROWS = 2;
+    private static final long INITIAL_VERSION = 0L;
+    // A row whose deleted_at is not listed was not deleted by the caller, or has been restored since
+    private static final String FIND_BIRTH_DATES_DELETED_AT_SQL = "SELECT birth_date FROM users "
+            + "WHERE id IN (:ids) AND is_deleted = true AND deleted_at IN (:deletedAts)";
+    private static final String BIRTH_DATE_COLUMN = "birth_date";
+
+    private final EntityManager entityManager;
+
+    @Override
+    public int updateNonNullFields(Long id, User patch, Long expectedVersion) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<User> update = criteriaBuilder.createCriteriaUpdate(User.class);
+        Root<User> root = update.from(User.class);
+        update.set(root.<Long>get(VERSION), criteriaBuilder.sum(root.<Long>get(VERSION), 1L));
+
+        setIfPresent(update, EMAIL, patch.getEmail());
+        setIfPresent(update, FIRST_NAME, patch.getFirstName());
+        setIfPresent(update, LAST_NAME, patch.getLastName());
+        setIfPresent(update, BIRTH_DATE, patch.getBirthDate());
+        setIfPresent(update, ADDRESS, patch.getAddress());
+        setIfPresent(update, PHONE_NUMBER, patch.getPhoneNumber());
+
+        Predicate predicate = criteriaBuilder.and(
+                criteriaBuilder.equal(root.get(ID), id),
+                criteriaBuilder.isFalse(root.<Boolean>get(IS_DELETED)));
+        if (expectedVersion != null) {
+            predicate = criteriaBuilder.and(predicate, criteriaBuilder.equal(root.get(VERSION), expectedVersion));
+        }
+        update.where(predicate);
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    // Runs on the session's connection, because only plain JDBC exposes the generated key. MySQL reports
+    // LAST_INSERT_ID in the reply to the upsert itself; drivers that do not (H2 in tests) are asked for it.
+    @Override
+    public int upsert(User user) {
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement statement =
+                    connection.prepareStatement(UPSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                statement.setLong(1, user.getId());
+                statement.setString(2, user.getEmail());
+                statement.setString(3, user.getFirstName());
+                statement.setString(4, user.getLastName());
+                statement.setObject(5, user.getBirthDate());
+                statement.setString(6, user.getAddress());
+                statement.setString(7, user.getPhoneNumber());
+                int affectedRows = statement.executeUpdate();
+                if (affectedRows == UPSERT_INSERTED_ROWS) {
+                    user.setVersion(INITIAL_VERSION);
+                } else if (affectedRows == UPSERT_UPDATED_ROWS) {
+                    user.setVersion(readLastInsertId(connection, statement));
+                }
+                return affectedRows;
+            }
+        });
+    }
+
+    @Override
+    public List<LocalDate> findBirthDatesDeletedAt(Collection<Long> ids, Collection<LocalDateTime> deletedAts) {
+        return entityManager.unwrap(Session.class)
+                .createNativeQuery(FIND_BIRTH_DATES_DELETED_AT_SQL, LocalDate.class)
+                .addScalar(BIRTH_DATE_COLUMN, LocalDate.class)
+                .setParameterList("ids", ids)
+                .setParameterList("deletedAts", deletedAts)
+                .getResultList();
+    }
+
+    @Override
+    public List<Tuple> findFieldsByBirthDateBetween(Set<UserField> fields, LocalDate from, LocalDate to) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<User> root = query.from(User.class);
+
+        query.multiselect(selectFields(root, fields))
+                .where(criteriaBuilder.between(root.<LocalDate>get(BIRTH_DATE), from, to));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // The cursor columns are always selected so the caller can build the next cursor from the last row
+    @Override
+    public List<Tuple> findFieldPageByBirthDateBetween(
+            Set<UserField> fields,
+            LocalDate from,
+            LocalDate to,
+            LocalDate afterBirthDate,
+            Long afterId,
+            int limit
+    ) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        Path<LocalDate> birthDate = root.get(BIRTH_DATE);
+        Path<Long> id = root.get(ID);
+
+        Set<UserField> selected = EnumSet.of(UserField.ID, UserField.BIRTH_DATE);
+        selected.addAll(fields);
+        query.multiselect(selectFields(root, selected))
+                .where(
+                        criteriaBuilder.between(birthDate, from, to),
+                        criteriaBuilder.or(
+                                criteriaBuilder.greaterThan(birthDate, afterBirthDate),
+                                criteriaBuilder.and(
+                                        criteriaBuilder.equal(birthDate, afterBirthDate),
+                                        criteriaBuilder.greaterThan(id, afterId))))
+                .orderBy(criteriaBuilder.asc(birthDate), criteriaBuilder.asc(id));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private List<Selection<?>> selectFields(Root<User> root, Set<UserField> fields) {
+        return fields.stream()
+                .<Selection<?>>map(field -> root.get(field.getFieldName()).alias(field.getFieldName()))
+                .toList();
+    }
+
+    private void setIfPresent(CriteriaUpdate<User> update, String attribute, Object value) {
+        if (value != null) {
+            update.set(attribute, value);
+        }
+    }
+
+    private long readLastInsertId(Connection connection, PreparedStatement upsert) throws SQLException {
+        try (ResultSet generatedKeys = upsert.getGeneratedKeys()) {
+            if (generatedKeys.next()) {
+                return generatedKeys.getLong(1);
+            }
+        }
+        try (Statement statement = connection.createStatement();
+                ResultSet lastInsertId = statement.executeQuery(SELECT_LAST_INSERT_ID)) {
+            lastInsertId.next();
+            return lastInsertId.getLong(1);
+        }
+    }
+}
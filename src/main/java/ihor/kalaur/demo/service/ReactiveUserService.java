@@ -0,0 +1,30 @@
+package ihor.kalaur.demo.service;
+
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.bulk.BatchDeleteResultDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetResultDto;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import java.time.LocalDate;
+import java.util.List;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUserService {
+
+    Mono<UserDto> save(CreateUserRequestDto requestDto);
+
+    Mono<Void> delete(Long id);
+
+    Mono<BatchDeleteResultDto> deleteAll(List<Long> ids);
+
+    Mono<UserDto> findById(Long id);
+
+    Mono<UserDto> findByEmail(String email);
+
+    Mono<BatchGetResultDto> findAllById(List<Long> ids);
+
+    Flux<UserDto> findByBirthDateRange(LocalDate from, LocalDate to);
+
+    Mono<CursorPageDto<UserDto>> findPageByBirthDateRange(LocalDate from, LocalDate to, String cursor, int size);
+}
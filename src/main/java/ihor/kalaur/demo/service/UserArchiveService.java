@@ -0,0 +1,5 @@
+package ihor.kalaur.demo.service;
+
+public interface UserArchiveService {
+    int archiveExpired();
+}
@@ -0,0 +1,13 @@
+package ihor.kalaur.demo.service;
+
+import ihor.kalaur.demo.dto.change.UserChangeDto;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface UserChangeFeed {
+    Subscription subscribe(Long since, Consumer<List<UserChangeDto>> listener);
+
+    interface Subscription {
+        void cancel();
+    }
+}
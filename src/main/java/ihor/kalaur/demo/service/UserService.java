@@ -3,18 +3,64 @@ package ihor.kalaur.demo.service;
 import ihor.kalaur.demo.dto.CreateUserRequestDto;
 import ihor.kalaur.demo.dto.UpdateAnyFieldsUserRequestDto;
 import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.UserField;
+import ihor.kalaur.demo.dto.UserUpsertResult;
+import ihor.kalaur.demo.dto.bulk.BatchDeleteResultDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetResultDto;
+import ihor.kalaur.demo.dto.bulk.BulkUserResultDto;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import ihor.kalaur.demo.dto.stats.HistogramBucket;
+import ihor.kalaur.demo.dto.stats.HistogramBucketDto;
+import ihor.kalaur.demo.dto.stats.UserCountDto;
 import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserService {
 
     UserDto save(CreateUserRequestDto requestDto);
 
+    List<BulkUserResultDto> saveAll(Iterator<CreateUserRequestDto> requestDtos);
+
     UserDto updateAnyUserFields(Long id, UpdateAnyFieldsUserRequestDto updateAnyFieldsUserRequestDto);
 
-    UserDto updateAllUserFields(Long id, CreateUserRequestDto createUserRequestDto);
+    UserUpsertResult updateAllUserFields(Long id, CreateUserRequestDto createUserRequestDto);
 
     void delete(Long id);
 
+    UserDto restore(Long id);
+
+    BatchDeleteResultDto deleteAll(List<Long> ids);
+
+    UserDto findById(Long id);
+
+    UserDto findByEmail(String email);
+
+    BatchGetResultDto findAllById(List<Long> ids);
+
+    Map<String, Object> findFieldsById(Long id, Set<UserField> fields);
+
+    Map<String, Object> findFieldsByEmail(String email, Set<UserField> fields);
+
     List<UserDto> findByBirthDateRange(LocalDate from, LocalDate to);
+
+    UserCountDto countByBirthDateRange(LocalDate from, LocalDate to, boolean exact);
+
+    List<HistogramBucketDto> getBirthHistogram(HistogramBucket bucket);
+
+    CursorPageDto<UserDto> findPageByBirthDateRange(LocalDate from, LocalDate to, String cursor, int size);
+
+    List<Map<String, Object>> findFieldsByBirthDateRange(LocalDate from, LocalDate to, Set<UserField> fields);
+
+    CursorPageDto<Map<String, Object>> findFieldPageByBirthDateRange(
+            LocalDate from, LocalDate to, String cursor, int size, Set<UserField> fields);
+
+    void streamByBirthDateRange(LocalDate from, LocalDate to, Consumer<UserDto> consumer);
+
+    CursorPageDto<UserDto> findPageByUpcomingBirthdays(LocalDate start, int days, String cursor, int size);
+
+    void streamUpcomingBirthdays(LocalDate start, int days, Consumer<UserDto> consumer);
 }
@@ -0,0 +1,40 @@
+package ihor.kalaur.demo.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.user")
+public class UserServiceProperties {
+    private Bulk bulk = new Bulk();
+    private BatchDelete batchDelete = new BatchDelete();
+    private BatchGet batchGet = new BatchGet();
+    private Birthdays birthdays = new Birthdays();
+    private Stats stats = new Stats();
+
+    @Data
+    public static class Bulk {
+        private int batchSize = 1000;
+    }
+
+    // The ids travel in the query string, so they have to fit the request line limits of Tomcat and Netty
+    @Data
+    public static class BatchDelete {
+        private int maxIds = 300;
+    }
+
+    @Data
+    public static class BatchGet {
+        private int maxIds = 1000;
+    }
+
+    @Data
+    public static class Birthdays {
+        private int streamPageSize = 500;
+    }
+
+    @Data
+    public static class Stats {
+        private int ageBucketYears = 10;
+    }
+}
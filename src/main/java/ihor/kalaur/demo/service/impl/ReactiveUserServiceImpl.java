@@ -0,0 +1,169 @@
+package ihor.kalaur.demo.service.impl;
+
+import ihor.kalaur.demo.cache.UserCache;
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.bulk.BatchDeleteResultDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetResultDto;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import ihor.kalaur.demo.dto.page.KeysetCursor;
+import ihor.kalaur.demo.exceptions.DuplicateEmailException;
+import ihor.kalaur.demo.exceptions.EntityNotFoundException;
+import ihor.kalaur.demo.exceptions.InvalidRequestException;
+import ihor.kalaur.demo.mapper.UserMapper;
+import ihor.kalaur.demo.model.UserChangeType;
+import ihor.kalaur.demo.repository.ReactiveUserRepository;
+import ihor.kalaur.demo.service.ReactiveUserService;
+import ihor.kalaur.demo.service.UserServiceProperties;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Same rules as UserServiceImpl for the endpoints of the reactive variant. Nothing here blocks: the cache is
+// in-process and every database call goes through R2DBC.
+@RequiredArgsConstructor
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+    private static final String ENTITY_NOT_FOUND_EXCEPTION_MESSAGE = "Can't find user with id ";
+    private static final String EMAIL_NOT_FOUND_EXCEPTION_MESSAGE = "Can't find user with email ";
+    private static final String DUPLICATE_EMAIL_EXCEPTION_MESSAGE =
+            "Email must be unique, the provided email is already in use.";
+    private static final String TOO_MANY_IDS_EXCEPTION_MESSAGE = "ids: at most %d ids can be deleted at once";
+    private static final String TOO_MANY_IDS_TO_GET_EXCEPTION_MESSAGE = "ids: at most %d ids can be read at once";
+    private static final long FIRST_PAGE_AFTER_ID = 0L;
+
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final UserMapper userMapper;
+    private final UserCache userCache;
+    private final TransactionalOperator reactiveTransactionalOperator;
+    private final UserServiceProperties userServiceProperties;
+
+    // The unique key on email is the only duplicate check, there is no blocking lookup up front
+    @Override
+    public Mono<UserDto> save(CreateUserRequestDto requestDto) {
+        return reactiveUserRepository.insert(userMapper.toEntity(requestDto))
+                .flatMap(created -> reactiveUserRepository.recordChange(created.getId(), UserChangeType.CREATED)
+                        .thenReturn(created))
+                .as(reactiveTransactionalOperator::transactional)
+                .onErrorMap(DuplicateKeyException.class,
+                        e -> new DuplicateEmailException(DUPLICATE_EMAIL_EXCEPTION_MESSAGE))
+                .map(userMapper::toDto)
+                .doOnNext(userCache::put);
+    }
+
+    @Override
+    public Mono<Void> delete(Long id) {
+        return reactiveUserRepository.softDeleteById(id, LocalDateTime.now())
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.<Long>error(new EntityNotFoundException(ENTITY_NOT_FOUND_EXCEPTION_MESSAGE + id))
+                        : reactiveUserRepository.recordChange(id, UserChangeType.DELETED))
+                .as(reactiveTransactionalOperator::transactional)
+                .doOnSuccess(recorded -> userCache.markDeleted(id))
+                .then();
+    }
+
+    @Override
+    public Mono<BatchDeleteResultDto> deleteAll(List<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        int batchDeleteMaxIds = userServiceProperties.getBatchDelete().getMaxIds();
+        if (uniqueIds.size() > batchDeleteMaxIds) {
+            return Mono.error(new InvalidRequestException(
+                    String.format(TOO_MANY_IDS_EXCEPTION_MESSAGE, batchDeleteMaxIds)));
+        }
+        if (uniqueIds.isEmpty()) {
+            return Mono.just(new BatchDeleteResultDto(0, 0));
+        }
+        LocalDateTime deletedAt = LocalDateTime.now();
+        return reactiveUserRepository.recordDeletions(uniqueIds, deletedAt)
+                .then(reactiveUserRepository.softDeleteAllByIdIn(uniqueIds, deletedAt))
+                .as(reactiveTransactionalOperator::transactional)
+                .doOnSuccess(deleted -> uniqueIds.forEach(userCache::markDeleted))
+                .map(deleted -> new BatchDeleteResultDto(uniqueIds.size(), deleted.intValue()));
+    }
+
+    @Override
+    public Mono<UserDto> findById(Long id) {
+        return Mono.justOrEmpty(userCache.getById(id))
+                .switchIfEmpty(Mono.defer(() -> reactiveUserRepository.findDtoById(id)
+                        .doOnNext(userCache::put)))
+                .switchIfEmpty(Mono.error(() ->
+                        new EntityNotFoundException(ENTITY_NOT_FOUND_EXCEPTION_MESSAGE + id)));
+    }
+
+    @Override
+    public Mono<UserDto> findByEmail(String email) {
+        return Mono.justOrEmpty(userCache.getByEmail(email))
+                .switchIfEmpty(Mono.defer(() -> reactiveUserRepository.findDtoByEmail(email)
+                        .doOnNext(userCache::put)))
+                .switchIfEmpty(Mono.error(() ->
+                        new EntityNotFoundException(EMAIL_NOT_FOUND_EXCEPTION_MESSAGE + email)));
+    }
+
+    @Override
+    public Mono<BatchGetResultDto> findAllById(List<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        int batchGetMaxIds = userServiceProperties.getBatchGet().getMaxIds();
+        if (uniqueIds.size() > batchGetMaxIds) {
+            return Mono.error(new InvalidRequestException(
+                    String.format(TOO_MANY_IDS_TO_GET_EXCEPTION_MESSAGE, batchGetMaxIds)));
+        }
+        Map<Long, UserDto> users = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        uniqueIds.forEach(id -> userCache.getById(id)
+                .ifPresentOrElse(user -> users.put(id, user), () -> misses.add(id)));
+        Flux<UserDto> loaded = misses.isEmpty()
+                ? Flux.empty()
+                : reactiveUserRepository.findDtoByIdIn(misses).doOnNext(userCache::put);
+        return loaded.doOnNext(user -> users.put(user.getId(), user))
+                .then(Mono.fromSupplier(() -> {
+                    List<UserDto> found = new ArrayList<>();
+                    List<Long> notFound = new ArrayList<>();
+                    uniqueIds.forEach(id -> {
+                        if (users.containsKey(id)) {
+                            found.add(users.get(id));
+                        } else {
+                            notFound.add(id);
+                        }
+                    });
+                    return new BatchGetResultDto(found, notFound);
+                }));
+    }
+
+    @Override
+    public Flux<UserDto> findByBirthDateRange(LocalDate from, LocalDate to) {
+        return reactiveUserRepository.findByBirthDateBetween(from, to);
+    }
+
+    @Override
+    public Mono<CursorPageDto<UserDto>> findPageByBirthDateRange(
+            LocalDate from, LocalDate to, String cursor, int size) {
+        return Mono.fromSupplier(() -> cursor == null
+                        ? new KeysetCursor(from, FIRST_PAGE_AFTER_ID)
+                        : KeysetCursor.decode(cursor))
+                .flatMapMany(after -> reactiveUserRepository.findPageByBirthDateBetween(
+                        from, to, after.birthDate(), after.id(), size + 1))
+                .collectList()
+                .map(users -> {
+                    List<UserDto> content = users.size() > size ? users.subList(0, size) : users;
+                    String nextCursor = null;
+                    if (users.size() > size) {
+                        UserDto last = users.get(size - 1);
+                        nextCursor = new KeysetCursor(last.getBirthDate(), last.getId()).encode();
+                    }
+                    return new CursorPageDto<>(content, nextCursor);
+                });
+    }
+}
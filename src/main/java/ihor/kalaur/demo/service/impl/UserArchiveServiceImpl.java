@@ -0,0 +1,142 @@
+package ihor.kalaur.demo.service.impl;
+
+import ihor.kalaur.demo.repository.UserArchiveRepository;
+import ihor.kalaur.demo.repository.UserArchiveRepository.ArchiveKey;
+import ihor.kalaur.demo.service.UserArchiveService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+// Moves users soft-deleted longer than the retention window from users to users_archive in small chunks,
+// pausing between chunks so the hot table never sees long-held locks or a burst of purge work.
+// Runs on its own thread, so the pauses never hold up the jobs on the shared scheduler.
+@Slf4j
+@Service
+public class UserArchiveServiceImpl implements UserArchiveService, AutoCloseable {
+    public static final String ARCHIVED_ROWS_METRIC = "user.archive.rows";
+    public static final String ARCHIVE_LAG_METRIC = "user.archive.lag";
+    public static final String ARCHIVE_FAILURES_METRIC = "user.archive.failures";
+
+    private final UserArchiveRepository userArchiveRepository;
+    private final boolean enabled;
+    private final Duration retention;
+    private final int chunkSize;
+    private final long pauseMs;
+    private final long intervalMs;
+    private final Counter archivedRows;
+    private final Counter failures;
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final ScheduledExecutorService archiveExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UserArchiveServiceImpl(
+            UserArchiveRepository userArchiveRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.user.archive.enabled}") boolean enabled,
+            @Value("${app.user.archive.retention-days}") long retentionDays,
+            @Value("${app.user.archive.chunk-size}") int chunkSize,
+            @Value("${app.user.archive.pause-ms}") long pauseMs,
+            @Value("${app.user.archive.interval-ms}") long intervalMs
+    ) {
+        this.userArchiveRepository = userArchiveRepository;
+        this.enabled = enabled;
+        this.retention = Duration.ofDays(retentionDays);
+        this.chunkSize = chunkSize;
+        this.pauseMs = pauseMs;
+        this.intervalMs = intervalMs;
+        this.archivedRows = Counter.builder(ARCHIVED_ROWS_METRIC)
+                .description("Soft-deleted users moved to the archive table")
+                .register(meterRegistry);
+        this.failures = Counter.builder(ARCHIVE_FAILURES_METRIC)
+                .description("Archive runs that stopped on an error")
+                .register(meterRegistry);
+        Gauge.builder(ARCHIVE_LAG_METRIC, lagSeconds, AtomicLong::get)
+                .description("How long the oldest user due for archival has been waiting")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleArchival() {
+        if (enabled) {
+            archiveExecutor.scheduleWithFixedDelay(this::archiveOnSchedule, 0, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void close() {
+        archiveExecutor.shutdownNow();
+    }
+
+    // A chunk that fails (a concurrent restore, or another instance archiving the same rows) ends the run;
+    // its rows stay in users and are retried on the next one
+    @Override
+    public int archiveExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        ArchiveKey after = ArchiveKey.START;
+        int moved = 0;
+        try {
+            List<ArchiveKey> chunk;
+            do {
+                chunk = userArchiveRepository.findExpiredChunk(cutoff, after, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                int archived = userArchiveRepository.moveToArchive(
+                        chunk.stream().map(ArchiveKey::id).toList(), LocalDateTime.now());
+                archivedRows.increment(archived);
+                moved += archived;
+                after = chunk.get(chunk.size() - 1);
+            } while (chunk.size() == chunkSize && pause());
+        } catch (DataAccessException | IllegalStateException e) {
+            log.warn("Archival stopped after {} users, the rest is retried on the next run", moved, e);
+            failures.increment();
+        }
+        updateLag(cutoff);
+        return moved;
+    }
+
+    // An exception escaping a task would cancel all of its later runs
+    private void archiveOnSchedule() {
+        try {
+            archiveExpired();
+        } catch (RuntimeException e) {
+            log.error("Archival failed", e);
+            failures.increment();
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void updateLag(LocalDateTime cutoff) {
+        long lag = userArchiveRepository.findOldestDeletedAt()
+                .filter(oldest -> oldest.isBefore(cutoff))
+                .map(oldest -> Duration.between(oldest, cutoff).toSeconds())
+                .orElse(0L);
+        lagSeconds.set(lag);
+    }
+}
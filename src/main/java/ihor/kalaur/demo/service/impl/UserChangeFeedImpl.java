@@ -0,0 +1,197 @@
+package ihor.kalaur.demo.service.impl;
+
+import ihor.kalaur.demo.datasource.ShardingProperties;
+import ihor.kalaur.demo.dto.change.UserChangeDto;
+import ihor.kalaur.demo.exceptions.ShardingUnsupportedException;
+import ihor.kalaur.demo.mapper.UserChangeMapper;
+import ihor.kalaur.demo.model.UserChange;
+import ihor.kalaur.demo.repository.UserChangeRepository;
+import ihor.kalaur.demo.service.UserChangeFeed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Relays the user_changes outbox to open subscriptions. Subscribers positioned at the same offset share one query
+// per tick, so a thousand caught-up streams cost the database the same as one. Sends happen on a shared pool of
+// delivery threads and never block the poll, but a send to a client that stops reading blocks its thread until
+// the write fails or the stream times out; once every thread is held that way, the other subscriptions wait too.
+@Service
+public class UserChangeFeedImpl implements UserChangeFeed, AutoCloseable {
+    public static final String GAP_WAITS_METRIC = "user.changes.gap.waits";
+    public static final String GAP_SKIPS_METRIC = "user.changes.gap.skips";
+    private static final long HEAD_OF_EMPTY_FEED = 0L;
+    private static final String SHARDED_EXCEPTION_MESSAGE =
+            "The change feed is not available while users are sharded";
+
+    private final UserChangeRepository userChangeRepository;
+    private final UserChangeMapper userChangeMapper;
+    private final boolean sharded;
+    private final int batchSize;
+    private final Duration retention;
+    private final Duration gapTimeout;
+    private final Executor deliveryExecutor;
+    private final Counter gapWaits;
+    private final Counter gapSkips;
+    private final List<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public UserChangeFeedImpl(
+            UserChangeRepository userChangeRepository,
+            UserChangeMapper userChangeMapper,
+            ShardingProperties shardingProperties,
+            MeterRegistry meterRegistry,
+            @Value("${app.user.changes.batch-size}") int batchSize,
+            @Value("${app.user.changes.retention-days}") long retentionDays,
+            @Value("${app.user.changes.gap-timeout-ms}") long gapTimeoutMs,
+            @Value("${app.user.changes.delivery-threads}") int deliveryThreads
+    ) {
+        this(userChangeRepository, userChangeMapper, shardingProperties, meterRegistry, batchSize, retentionDays,
+                gapTimeoutMs, Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "change-feed-delivery");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    UserChangeFeedImpl(UserChangeRepository userChangeRepository, UserChangeMapper userChangeMapper,
+                       ShardingProperties shardingProperties, MeterRegistry meterRegistry, int batchSize,
+                       long retentionDays, long gapTimeoutMs, Executor deliveryExecutor) {
+        this.userChangeRepository = userChangeRepository;
+        this.userChangeMapper = userChangeMapper;
+        this.sharded = shardingProperties.isEnabled();
+        this.batchSize = batchSize;
+        this.retention = Duration.ofDays(retentionDays);
+        this.gapTimeout = Duration.ofMillis(gapTimeoutMs);
+        this.deliveryExecutor = deliveryExecutor;
+        this.gapWaits = Counter.builder(GAP_WAITS_METRIC)
+                .description("Polls in which delivery stopped in front of a missing change offset")
+                .register(meterRegistry);
+        this.gapSkips = Counter.builder(GAP_SKIPS_METRIC)
+                .description("Missing change offsets skipped once they were older than the gap timeout")
+                .register(meterRegistry);
+    }
+
+    // Without an offset the subscription starts at the head and only sees changes made from now on.
+    // Writes to shards are not recorded in user_changes, so the feed is refused rather than left incomplete.
+    @Override
+    public Subscription subscribe(Long since, Consumer<List<UserChangeDto>> listener) {
+        if (sharded) {
+            throw new ShardingUnsupportedException(SHARDED_EXCEPTION_MESSAGE);
+        }
+        long offset = since != null ? since : userChangeRepository.findLatestId().orElse(HEAD_OF_EMPTY_FEED);
+        FeedSubscription subscription = new FeedSubscription(offset, listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    // Subscriptions still sending their previous batch are left for a later tick
+    @Scheduled(fixedDelayString = "${app.user.changes.poll-interval-ms}")
+    public void publish() {
+        Map<Long, List<FeedSubscription>> byOffset = subscriptions.stream()
+                .filter(subscription -> !subscription.delivering)
+                .collect(Collectors.groupingBy(FeedSubscription::getOffset));
+        byOffset.forEach((offset, group) -> {
+            List<UserChangeDto> changes = takeContiguous(offset,
+                    userChangeRepository.findAfter(offset, PageRequest.of(0, batchSize))).stream()
+                    .map(userChangeMapper::toDto)
+                    .toList();
+            if (!changes.isEmpty()) {
+                group.forEach(subscription -> deliver(subscription, changes));
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.user.changes.purge-interval-ms}")
+    public void purge() {
+        userChangeRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+    }
+
+    @Override
+    public void close() {
+        if (deliveryExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    // A missing id may belong to a transaction that has not committed yet, so delivery stops in front of it.
+    // That transaction took its id before the change right after the gap was inserted, so once that change is older
+    // than the gap timeout (longer than any write transaction may run) the missing id has committed or never will.
+    // Most gaps never fill: rolled back writes and the auto-increment blocks MySQL reserves for INSERT ... SELECT
+    // leave unused ids, and those are skipped then. Every stalled poll and every skipped gap is counted.
+    private List<UserChange> takeContiguous(long offset, List<UserChange> changes) {
+        LocalDateTime skipGapsCreatedBefore = LocalDateTime.now().minus(gapTimeout);
+        long expectedId = offset + 1;
+        List<UserChange> contiguous = new ArrayList<>();
+        for (UserChange change : changes) {
+            if (change.getId() > expectedId) {
+                if (!change.getCreatedAt().isBefore(skipGapsCreatedBefore)) {
+                    gapWaits.increment();
+                    break;
+                }
+                gapSkips.increment();
+            }
+            contiguous.add(change);
+            expectedId = change.getId() + 1;
+        }
+        return contiguous;
+    }
+
+    // A listener that fails (usually a disconnected client) is dropped; it resumes from its last offset on reconnect
+    private void deliver(FeedSubscription subscription, List<UserChangeDto> changes) {
+        subscription.delivering = true;
+        try {
+            deliveryExecutor.execute(() -> {
+                try {
+                    subscription.listener.accept(changes);
+                    subscription.offset = changes.get(changes.size() - 1).getOffset();
+                } catch (RuntimeException e) {
+                    subscription.cancel();
+                } finally {
+                    subscription.delivering = false;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            subscription.delivering = false;
+        }
+    }
+
+    private final class FeedSubscription implements Subscription {
+        private final Consumer<List<UserChangeDto>> listener;
+        private volatile long offset;
+        private volatile boolean delivering;
+
+        private FeedSubscription(long offset, Consumer<List<UserChangeDto>> listener) {
+            this.offset = offset;
+            this.listener = listener;
+        }
+
+        private long getOffset() {
+            return offset;
+        }
+
+        @Override
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+    }
+}
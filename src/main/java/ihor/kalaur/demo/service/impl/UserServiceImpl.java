@@ -1,63 +1,682 @@
 package ihor.kalaur.demo.service.impl;
 
+import ihor.kalaur.demo.cache.BirthDateHistogram;
+import ihor.kalaur.demo.cache.EmailBloomFilter;
+import ihor.kalaur.demo.cache.UserCache;
 import ihor.kalaur.demo.dto.CreateUserRequestDto;
 import ihor.kalaur.demo.dto.UpdateAnyFieldsUserRequestDto;
 import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.UserField;
+import ihor.kalaur.demo.dto.UserUpsertResult;
+import ihor.kalaur.demo.dto.bulk.BatchDeleteResultDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetResultDto;
+import ihor.kalaur.demo.dto.bulk.BulkUserResultDto;
+import ihor.kalaur.demo.dto.bulk.BulkUserStatus;
+import ihor.kalaur.demo.dto.date.MonthDayRange;
+import ihor.kalaur.demo.dto.page.BirthdayCursor;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import ihor.kalaur.demo.dto.page.KeysetCursor;
+import ihor.kalaur.demo.dto.stats.HistogramBucket;
+import ihor.kalaur.demo.dto.stats.HistogramBucketDto;
+import ihor.kalaur.demo.dto.stats.UserCountDto;
+import ihor.kalaur.demo.exceptions.DuplicateEmailException;
 import ihor.kalaur.demo.exceptions.EntityNotFoundException;
+import ihor.kalaur.demo.exceptions.InvalidRequestException;
+import ihor.kalaur.demo.exceptions.ShardingUnsupportedException;
+import ihor.kalaur.demo.exceptions.VersionConflictException;
 import ihor.kalaur.demo.mapper.UserMapper;
 import ihor.kalaur.demo.model.User;
+import ihor.kalaur.demo.model.UserChange;
+import ihor.kalaur.demo.model.UserChangeType;
+import ihor.kalaur.demo.repository.BatchInsertResult;
+import ihor.kalaur.demo.repository.ShardedUserRepository;
+import ihor.kalaur.demo.repository.UserArchiveRepository;
+import ihor.kalaur.demo.repository.UserBatchRepository;
+import ihor.kalaur.demo.repository.UserByIdBatchLoader;
+import ihor.kalaur.demo.repository.UserChangeRepository;
+import ihor.kalaur.demo.repository.UserGroupCommitWriter;
 import ihor.kalaur.demo.repository.UserRepository;
 import ihor.kalaur.demo.service.UserService;
+import ihor.kalaur.demo.service.UserServiceProperties;
+import jakarta.persistence.Tuple;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Period;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @RequiredArgsConstructor
 @Service
 public class UserServiceImpl implements UserService {
     private static final String ENTITY_NOT_FOUND_EXCEPTION_MESSAGE = "Can't find user with id ";
+    private static final String DELETED_USER_NOT_FOUND_EXCEPTION_MESSAGE = "Can't find deleted user with id ";
+    private static final String EMAIL_NOT_FOUND_EXCEPTION_MESSAGE = "Can't find user with email ";
+    private static final String VERSION_CONFLICT_EXCEPTION_MESSAGE =
+            "User with id %d was modified concurrently, expected version %d is outdated";
+    private static final long FIRST_PAGE_AFTER_ID = 0L;
+    private static final String DUPLICATE_EMAIL_EXCEPTION_MESSAGE =
+            "Email must be unique, the provided email is already in use.";
+    private static final int UPSERT_UNCHANGED_ROWS = 0;
+    private static final int UPSERT_INSERTED_ROWS = 1;
+    private static final long INITIAL_VERSION = 0L;
+    private static final String TOO_MANY_IDS_EXCEPTION_MESSAGE = "ids: at most %d ids can be deleted at once";
+    private static final String DUPLICATE_EMAIL_ERROR = "email: must be unique, the provided email is already in use";
+    private static final String TOO_MANY_IDS_TO_GET_EXCEPTION_MESSAGE = "ids: at most %d ids can be read at once";
+    private static final String CURSOR_OUTSIDE_WINDOW_EXCEPTION_MESSAGE =
+            "cursor: the continuation token belongs to a different birthday window";
+    private static final String NOT_SHARDED_EXCEPTION_MESSAGE =
+            "This operation is not available while users are sharded";
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final UserBatchRepository userBatchRepository;
+    private final Validator validator;
+    private final UserCache userCache;
+    private final UserByIdBatchLoader userByIdBatchLoader;
+    private final EmailBloomFilter emailBloomFilter;
+    private final UserGroupCommitWriter userGroupCommitWriter;
+    private final UserChangeRepository userChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final UserArchiveRepository userArchiveRepository;
+    private final BirthDateHistogram birthDateHistogram;
+    private final ShardedUserRepository shardedUserRepository;
+    private final UserServiceProperties userServiceProperties;
 
+    // The group commit path records its change inside the shared batch transaction, so it must not be wrapped
     @Override
     public UserDto save(CreateUserRequestDto requestDto) {
         User user = convertToEntity(requestDto);
-        return covertToDto(userRepository.save(user));
+        if (shardedUserRepository.isEnabled()) {
+            return cache(covertToDto(insertIntoShard(user)));
+        }
+        checkEmailIsFree(user.getEmail(), null);
+        User created = userGroupCommitWriter.isEnabled()
+                ? insertWithGroupCommit(user)
+                : transactionTemplate.execute(status -> insertAndRecordChange(user));
+        UserDto saved = cache(covertToDto(created));
+        emailBloomFilter.add(saved.getEmail());
+        birthDateHistogram.add(saved.getBirthDate(), 1);
+        return saved;
     }
 
     @Override
-    public UserDto updateAnyUserFields(Long id, UpdateAnyFieldsUserRequestDto updateAnyFieldsUserRequestDto) {
+    public List<BulkUserResultDto> saveAll(Iterator<CreateUserRequestDto> requestDtos) {
+        checkNotSharded();
+        List<BulkUserResultDto> results = new ArrayList<>();
+        int bulkBatchSize = userServiceProperties.getBulk().getBatchSize();
+        List<User> batch = new ArrayList<>(bulkBatchSize);
+        List<Integer> batchIndexes = new ArrayList<>(bulkBatchSize);
+        int index = 0;
+        while (requestDtos.hasNext()) {
+            CreateUserRequestDto requestDto = requestDtos.next();
+            List<String> errors = validator.validate(requestDto).stream()
+                    .map(this::getErrorMessage)
+                    .toList();
+            if (errors.isEmpty()) {
+                batch.add(convertToEntity(requestDto));
+                batchIndexes.add(index);
+            } else {
+                results.add(new BulkUserResultDto(index, BulkUserStatus.INVALID, null, errors));
+            }
+            if (batch.size() >= bulkBatchSize) {
+                results.addAll(insertBatch(batch, batchIndexes));
+                batch.clear();
+                batchIndexes.clear();
+            }
+            index++;
+        }
+        if (!batch.isEmpty()) {
+            results.addAll(insertBatch(batch, batchIndexes));
+        }
+        results.sort(Comparator.comparingInt(BulkUserResultDto::getIndex));
+        return results;
+    }
 
-        User userFromDb = userRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(ENTITY_NOT_FOUND_EXCEPTION_MESSAGE + id));
+    @Override
+    @Transactional
+    public UserDto updateAnyUserFields(Long id, UpdateAnyFieldsUserRequestDto updateAnyFieldsUserRequestDto) {
+        checkNotSharded();
+        User patch = userMapper.toEntity(updateAnyFieldsUserRequestDto, new User());
+        Long expectedVersion = updateAnyFieldsUserRequestDto.getVersion();
+        if (patch.getEmail() != null) {
+            checkEmailIsFree(patch.getEmail(), id);
+        }
+        Optional<LocalDate> previousBirthDate = patch.getBirthDate() != null
+                ? findBirthDateForHistogram(id)
+                : Optional.empty();
 
-        userFromDb = userMapper.toEntity(updateAnyFieldsUserRequestDto, userFromDb);
-        return covertToDto(userRepository.save(userFromDb));
+        if (userRepository.updateNonNullFields(id, patch, expectedVersion) == 0) {
+            if (expectedVersion != null && userRepository.existsById(id)) {
+                throw new VersionConflictException(
+                        String.format(VERSION_CONFLICT_EXCEPTION_MESSAGE, id, expectedVersion));
+            }
+            throw new EntityNotFoundException(ENTITY_NOT_FOUND_EXCEPTION_MESSAGE + id);
+        }
+        previousBirthDate.ifPresent(birthDate -> afterCommit(
+                () -> birthDateHistogram.move(birthDate, patch.getBirthDate())));
+        recordChange(id, UserChangeType.UPDATED);
+        if (patch.getEmail() != null) {
+            emailBloomFilter.add(patch.getEmail());
+        }
+        return cache(userRepository.findDtoById(id)
+                .orElseThrow(() -> new EntityNotFoundException(ENTITY_NOT_FOUND_EXCEPTION_MESSAGE + id)));
     }
 
     @Override
-    public UserDto updateAllUserFields(Long id, CreateUserRequestDto createUserRequestDto) {
-        User updatedUser = convertToEntity(createUserRequestDto);
-        updatedUser.setId(id);
-        return covertToDto(userRepository.save(updatedUser));
+    @Transactional
+    public UserUpsertResult updateAllUserFields(Long id, CreateUserRequestDto createUserRequestDto) {
+        checkNotSharded();
+        User user = convertToEntity(createUserRequestDto);
+        user.setId(id);
+        checkEmailIsFree(user.getEmail(), id);
+        // The upsert sets the version it wrote on the user, so the row is only read when the histogram needs the
+        // birth date being replaced. Without an active row the user was inserted or revived, both count as new.
+        Optional<LocalDate> previousBirthDate = findBirthDateForHistogram(id);
+
+        int affectedRows = userRepository.upsert(user);
+        if (affectedRows == UPSERT_UNCHANGED_ROWS) {
+            throw new DuplicateEmailException(DUPLICATE_EMAIL_EXCEPTION_MESSAGE);
+        }
+        afterCommit(() -> previousBirthDate.ifPresentOrElse(
+                birthDate -> birthDateHistogram.move(birthDate, user.getBirthDate()),
+                () -> birthDateHistogram.add(user.getBirthDate(), 1)));
+        emailBloomFilter.add(user.getEmail());
+        boolean created = affectedRows == UPSERT_INSERTED_ROWS;
+        recordChange(id, created ? UserChangeType.CREATED : UserChangeType.UPDATED);
+        return new UserUpsertResult(cacheRevived(covertToDto(user)), created);
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
-        if (!userRepository.existsById(id)) {
+        if (shardedUserRepository.isEnabled()) {
+            if (shardedUserRepository.softDeleteById(id, LocalDateTime.now()) == 0) {
+                throw new EntityNotFoundException(ENTITY_NOT_FOUND_EXCEPTION_MESSAGE + id);
+            }
+            userCache.markDeleted(id);
+            return;
+        }
+        LocalDateTime deletedAt = deletionTime();
+        if (userRepository.softDeleteById(id, deletedAt) == 0) {
             throw new EntityNotFoundException(ENTITY_NOT_FOUND_EXCEPTION_MESSAGE + id);
         }
-        userRepository.deleteById(id);
+        recordChange(id, UserChangeType.DELETED);
+        afterCommit(() -> birthDateHistogram.removeDeleted(List.of(id), deletedAt));
+        userCache.markDeleted(id);
+    }
+
+    // A user still in the hot table only needs its flag cleared; an archived one is copied back first.
+    // Its email may have been taken by a new user since it was archived, which answers 409.
+    @Override
+    @Transactional
+    public UserDto restore(Long id) {
+        checkNotSharded();
+        try {
+            if (userRepository.restoreById(id) == 0 && !userArchiveRepository.restoreFromArchive(id)) {
+                throw new EntityNotFoundException(DELETED_USER_NOT_FOUND_EXCEPTION_MESSAGE + id);
+            }
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateEmailException(DUPLICATE_EMAIL_EXCEPTION_MESSAGE);
+        }
+        recordChange(id, UserChangeType.RESTORED);
+        UserDto restored = cacheRevived(userRepository.findDtoById(id)
+                .orElseThrow(() -> new EntityNotFoundException(ENTITY_NOT_FOUND_EXCEPTION_MESSAGE + id)));
+        emailBloomFilter.add(restored.getEmail());
+        afterCommit(() -> birthDateHistogram.add(restored.getBirthDate(), 1));
+        return restored;
+    }
+
+    @Override
+    @Transactional
+    public BatchDeleteResultDto deleteAll(List<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        int batchDeleteMaxIds = userServiceProperties.getBatchDelete().getMaxIds();
+        if (uniqueIds.size() > batchDeleteMaxIds) {
+            throw new InvalidRequestException(String.format(TOO_MANY_IDS_EXCEPTION_MESSAGE, batchDeleteMaxIds));
+        }
+        int deleted = 0;
+        if (shardedUserRepository.isEnabled()) {
+            deleted = shardedUserRepository.softDeleteAllByIdIn(uniqueIds, LocalDateTime.now());
+        } else if (!uniqueIds.isEmpty()) {
+            LocalDateTime deletedAt = deletionTime();
+            userChangeRepository.recordDeletions(uniqueIds, deletedAt);
+            deleted = userRepository.softDeleteAllByIdIn(uniqueIds, deletedAt);
+            if (deleted > 0) {
+                afterCommit(() -> birthDateHistogram.removeDeleted(uniqueIds, deletedAt));
+            }
+        }
+        uniqueIds.forEach(userCache::markDeleted);
+        return new BatchDeleteResultDto(uniqueIds.size(), deleted);
+    }
+
+    @Override
+    public UserDto findById(Long id) {
+        return userCache.getById(id)
+                .orElseGet(() -> cache(findUncachedById(id)
+                        .orElseThrow(() -> new EntityNotFoundException(ENTITY_NOT_FOUND_EXCEPTION_MESSAGE + id))));
+    }
+
+    @Override
+    public UserDto findByEmail(String email) {
+        return userCache.getByEmail(email)
+                .orElseGet(() -> cache(findUncachedByEmail(email)
+                        .orElseThrow(() -> new EntityNotFoundException(EMAIL_NOT_FOUND_EXCEPTION_MESSAGE + email))));
+    }
+
+    @Override
+    public BatchGetResultDto findAllById(List<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        int batchGetMaxIds = userServiceProperties.getBatchGet().getMaxIds();
+        if (uniqueIds.size() > batchGetMaxIds) {
+            throw new InvalidRequestException(String.format(TOO_MANY_IDS_TO_GET_EXCEPTION_MESSAGE, batchGetMaxIds));
+        }
+        Map<Long, UserDto> users = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        uniqueIds.forEach(id -> userCache.getById(id)
+                .ifPresentOrElse(user -> users.put(id, user), () -> misses.add(id)));
+        if (!misses.isEmpty()) {
+            List<UserDto> loaded = shardedUserRepository.isEnabled()
+                    ? shardedUserRepository.findDtoByIdIn(misses)
+                    : userRepository.findDtoByIdIn(misses);
+            loaded.forEach(user -> users.put(user.getId(), cache(user)));
+        }
+
+        List<UserDto> found = new ArrayList<>();
+        List<Long> notFound = new ArrayList<>();
+        uniqueIds.forEach(id -> {
+            if (users.containsKey(id)) {
+                found.add(users.get(id));
+            } else {
+                notFound.add(id);
+            }
+        });
+        return new BatchGetResultDto(found, notFound);
     }
 
     @Override
+    public Map<String, Object> findFieldsById(Long id, Set<UserField> fields) {
+        UserDto user = findById(id);
+        return selectFields(fields, field -> field.readFrom(user));
+    }
+
+    @Override
+    public Map<String, Object> findFieldsByEmail(String email, Set<UserField> fields) {
+        UserDto user = findByEmail(email);
+        return selectFields(fields, field -> field.readFrom(user));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<UserDto> findByBirthDateRange(LocalDate from, LocalDate to) {
-        return userRepository.findByBirthDateBetween(from, to).stream()
-                .map(userMapper::toDto)
-                .collect(Collectors.toList());
+        if (shardedUserRepository.isEnabled()) {
+            return shardedUserRepository.findByBirthDateBetween(from, to);
+        }
+        return userRepository.findByBirthDateBetween(from, to);
+    }
+
+    // Served from the in-memory histogram unless an exact count is asked for or the histogram is not loaded yet
+    @Override
+    public UserCountDto countByBirthDateRange(LocalDate from, LocalDate to, boolean exact) {
+        checkNotSharded();
+        if (!exact) {
+            OptionalLong count = birthDateHistogram.count(from, to);
+            if (count.isPresent()) {
+                return new UserCountDto(count.getAsLong(), false);
+            }
+        }
+        return new UserCountDto(userRepository.countByBirthDateBetween(from, to), true);
+    }
+
+    @Override
+    public List<HistogramBucketDto> getBirthHistogram(HistogramBucket bucket) {
+        checkNotSharded();
+        LocalDate today = LocalDate.now();
+        Map<Integer, Long> counts = new TreeMap<>();
+        ObjLongConsumer<LocalDate> counter = (birthDate, count) ->
+                counts.merge(toBucketKey(bucket, birthDate, today), count, Long::sum);
+        if (!birthDateHistogram.forEach(counter)) {
+            userRepository.countGroupedByBirthDate().forEach(row -> counter.accept(row.birthDate(), row.count()));
+        }
+        return counts.entrySet().stream()
+                .map(entry -> new HistogramBucketDto(toBucketLabel(bucket, entry.getKey()), entry.getValue()))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<UserDto> findPageByBirthDateRange(LocalDate from, LocalDate to, String cursor, int size) {
+        KeysetCursor after = cursor == null
+                ? new KeysetCursor(from, FIRST_PAGE_AFTER_ID)
+                : KeysetCursor.decode(cursor);
+        List<UserDto> users = shardedUserRepository.isEnabled()
+                ? shardedUserRepository.findPageByBirthDateBetween(from, to, after.birthDate(), after.id(), size + 1)
+                : userRepository.findPageByBirthDateBetween(
+                        from, to, after.birthDate(), after.id(), PageRequest.of(0, size + 1));
+
+        List<UserDto> content = users.size() > size ? users.subList(0, size) : users;
+        String nextCursor = null;
+        if (users.size() > size) {
+            UserDto last = users.get(size - 1);
+            nextCursor = new KeysetCursor(last.getBirthDate(), last.getId()).encode();
+        }
+        return new CursorPageDto<>(content, nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFieldsByBirthDateRange(LocalDate from, LocalDate to, Set<UserField> fields) {
+        if (shardedUserRepository.isEnabled()) {
+            return shardedUserRepository.findByBirthDateBetween(from, to).stream()
+                    .map(user -> selectFields(fields, field -> field.readFrom(user)))
+                    .toList();
+        }
+        return userRepository.findFieldsByBirthDateBetween(fields, from, to).stream()
+                .map(row -> selectFields(fields, field -> row.get(field.getFieldName())))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<Map<String, Object>> findFieldPageByBirthDateRange(
+            LocalDate from, LocalDate to, String cursor, int size, Set<UserField> fields) {
+        if (shardedUserRepository.isEnabled()) {
+            CursorPageDto<UserDto> page = findPageByBirthDateRange(from, to, cursor, size);
+            return new CursorPageDto<>(page.getContent().stream()
+                    .map(user -> selectFields(fields, field -> field.readFrom(user)))
+                    .toList(), page.getNextCursor());
+        }
+        KeysetCursor after = cursor == null
+                ? new KeysetCursor(from, FIRST_PAGE_AFTER_ID)
+                : KeysetCursor.decode(cursor);
+        List<Tuple> rows = userRepository.findFieldPageByBirthDateBetween(
+                fields, from, to, after.birthDate(), after.id(), size + 1);
+
+        List<Map<String, Object>> content = rows.stream()
+                .limit(size)
+                .map(row -> selectFields(fields, field -> row.get(field.getFieldName())))
+                .toList();
+        String nextCursor = null;
+        if (rows.size() > size) {
+            Tuple last = rows.get(size - 1);
+            nextCursor = new KeysetCursor(
+                    last.get(UserField.BIRTH_DATE.getFieldName(), LocalDate.class),
+                    last.get(UserField.ID.getFieldName(), Long.class)).encode();
+        }
+        return new CursorPageDto<>(content, nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamByBirthDateRange(LocalDate from, LocalDate to, Consumer<UserDto> consumer) {
+        checkNotSharded();
+        try (Stream<UserDto> users = userRepository.streamByBirthDateBetween(from, to)) {
+            users.forEach(consumer);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<UserDto> findPageByUpcomingBirthdays(LocalDate start, int days, String cursor, int size) {
+        checkNotSharded();
+        List<MonthDayRange> ranges = MonthDayRange.upcoming(start, days);
+        BirthdayCursor after = cursor == null ? null : BirthdayCursor.decode(cursor);
+        List<UserDto> users = findBirthdayPage(ranges, after, size + 1);
+
+        List<UserDto> content = users.size() > size ? users.subList(0, size) : users;
+        String nextCursor = null;
+        if (users.size() > size) {
+            nextCursor = toBirthdayCursor(users.get(size - 1)).encode();
+        }
+        return new CursorPageDto<>(content, nextCursor);
+    }
+
+    // Every page is its own short keyset query, so a long campaign export never holds a database cursor open
+    @Override
+    public void streamUpcomingBirthdays(LocalDate start, int days, Consumer<UserDto> consumer) {
+        checkNotSharded();
+        List<MonthDayRange> ranges = MonthDayRange.upcoming(start, days);
+        int pageSize = userServiceProperties.getBirthdays().getStreamPageSize();
+        BirthdayCursor after = null;
+        List<UserDto> users;
+        do {
+            users = findBirthdayPage(ranges, after, pageSize);
+            users.forEach(consumer);
+            if (!users.isEmpty()) {
+                after = toBirthdayCursor(users.get(users.size() - 1));
+            }
+        } while (users.size() == pageSize);
+    }
+
+    // Ranges are read in window order, so a page that reaches December 31st continues with January 1st
+    private List<UserDto> findBirthdayPage(List<MonthDayRange> ranges, BirthdayCursor after, int limit) {
+        int firstRange = after == null ? 0 : indexOfRange(ranges, after.monthDay());
+        List<UserDto> users = new ArrayList<>(limit);
+        for (int i = firstRange; i < ranges.size() && users.size() < limit; i++) {
+            MonthDayRange range = ranges.get(i);
+            BirthdayCursor start = i == firstRange && after != null
+                    ? after
+                    : new BirthdayCursor(range.from(), FIRST_PAGE_AFTER_ID);
+            users.addAll(userRepository.findPageByBirthMonthDayBetween(range.from(), range.to(),
+                    start.monthDay(), start.id(), PageRequest.of(0, limit - users.size())));
+        }
+        return users;
+    }
+
+    private int indexOfRange(List<MonthDayRange> ranges, int monthDay) {
+        for (int i = 0; i < ranges.size(); i++) {
+            if (ranges.get(i).contains(monthDay)) {
+                return i;
+            }
+        }
+        throw new InvalidRequestException(CURSOR_OUTSIDE_WINDOW_EXCEPTION_MESSAGE);
+    }
+
+    private BirthdayCursor toBirthdayCursor(UserDto user) {
+        return new BirthdayCursor(MonthDayRange.monthDayOf(user.getBirthDate()), user.getId());
+    }
+
+    // Emails already in the table are rejected up front, so a retried import does not fall back to row-by-row inserts
+    private List<BulkUserResultDto> insertBatch(List<User> batch, List<Integer> batchIndexes) {
+        Set<String> takenEmails = findTakenEmails(batch);
+        List<BulkUserResultDto> results = new ArrayList<>(batch.size());
+        List<User> insertable = new ArrayList<>(batch.size());
+        List<Integer> insertableIndexes = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (takenEmails.contains(toEmailKey(batch.get(i).getEmail()))) {
+                results.add(new BulkUserResultDto(batchIndexes.get(i), BulkUserStatus.REJECTED, null,
+                        List.of(DUPLICATE_EMAIL_ERROR)));
+            } else {
+                insertable.add(batch.get(i));
+                insertableIndexes.add(batchIndexes.get(i));
+            }
+        }
+        if (insertable.isEmpty()) {
+            return results;
+        }
+
+        List<BatchInsertResult> inserted = userBatchRepository.insertAll(insertable);
+        for (int i = 0; i < inserted.size(); i++) {
+            BatchInsertResult result = inserted.get(i);
+            if (result.isInserted()) {
+                emailBloomFilter.add(insertable.get(i).getEmail());
+                birthDateHistogram.add(insertable.get(i).getBirthDate(), 1);
+                results.add(new BulkUserResultDto(insertableIndexes.get(i), BulkUserStatus.CREATED, result.id(),
+                        List.of()));
+            } else {
+                results.add(new BulkUserResultDto(insertableIndexes.get(i), BulkUserStatus.REJECTED, null,
+                        List.of(result.error())));
+            }
+        }
+        return results;
+    }
+
+    private User insertAndRecordChange(User user) {
+        User saved = userRepository.save(user);
+        recordChange(saved.getId(), UserChangeType.CREATED);
+        return saved;
+    }
+
+    private void recordChange(Long id, UserChangeType changeType) {
+        userChangeRepository.save(new UserChange(id, changeType));
+    }
+
+    // The previous birth date is only worth a primary key lookup while the histogram is maintained
+    private Optional<LocalDate> findBirthDateForHistogram(Long id) {
+        return birthDateHistogram.isEnabled() ? userRepository.findBirthDateById(id) : Optional.empty();
+    }
+
+    // Truncated to the precision of deleted_at, so the histogram can find the rows again by the value it was given
+    private LocalDateTime deletionTime() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    // A rolled back write must not move the histogram
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private int toBucketKey(HistogramBucket bucket, LocalDate birthDate, LocalDate today) {
+        int ageBucketYears = userServiceProperties.getStats().getAgeBucketYears();
+        return switch (bucket) {
+            case YEAR -> birthDate.getYear();
+            case MONTH -> birthDate.getMonthValue();
+            case AGE -> Period.between(birthDate, today).getYears() / ageBucketYears;
+        };
+    }
+
+    private String toBucketLabel(HistogramBucket bucket, int key) {
+        int ageBucketYears = userServiceProperties.getStats().getAgeBucketYears();
+        return switch (bucket) {
+            case YEAR -> String.valueOf(key);
+            case MONTH -> Month.of(key).name();
+            case AGE -> key * ageBucketYears + "-" + (key * ageBucketYears + ageBucketYears - 1);
+        };
+    }
+
+    // The email directory is the uniqueness guard across shards, so no lookup is done up front
+    private User insertIntoShard(User user) {
+        try {
+            return shardedUserRepository.insert(user);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateEmailException(DUPLICATE_EMAIL_EXCEPTION_MESSAGE);
+        }
+    }
+
+    private Optional<UserDto> findUncachedById(Long id) {
+        return shardedUserRepository.isEnabled()
+                ? shardedUserRepository.findDtoById(id)
+                : userByIdBatchLoader.findById(id);
+    }
+
+    private Optional<UserDto> findUncachedByEmail(String email) {
+        return shardedUserRepository.isEnabled()
+                ? shardedUserRepository.findDtoByEmail(email)
+                : userRepository.findDtoByEmail(email);
+    }
+
+    // Bulk writes, updates, restores and the birthday and statistics queries only work on a single database
+    private void checkNotSharded() {
+        if (shardedUserRepository.isEnabled()) {
+            throw new ShardingUnsupportedException(NOT_SHARDED_EXCEPTION_MESSAGE);
+        }
+    }
+
+    private User insertWithGroupCommit(User user) {
+        BatchInsertResult result = userGroupCommitWriter.insert(user);
+        if (result.duplicate()) {
+            throw new DuplicateEmailException(DUPLICATE_EMAIL_EXCEPTION_MESSAGE);
+        }
+        if (!result.isInserted()) {
+            throw new DataIntegrityViolationException(result.error());
+        }
+        user.setId(result.id());
+        user.setVersion(INITIAL_VERSION);
+        return user;
+    }
+
+    private Set<String> findTakenEmails(List<User> batch) {
+        List<String> candidates = batch.stream()
+                .map(User::getEmail)
+                .filter(emailBloomFilter::mightContain)
+                .toList();
+        if (candidates.isEmpty()) {
+            return Set.of();
+        }
+        return userRepository.findExistingEmails(candidates).stream()
+                .map(this::toEmailKey)
+                .collect(Collectors.toSet());
+    }
+
+    // Only emails the filter cannot rule out cost a lookup; the unique key still guards against concurrent writers
+    private void checkEmailIsFree(String email, Long id) {
+        if (emailBloomFilter.mightContain(email)
+                && userRepository.findIdByEmailIncludingDeleted(email)
+                        .filter(ownerId -> !ownerId.equals(id))
+                        .isPresent()) {
+            throw new DuplicateEmailException(DUPLICATE_EMAIL_EXCEPTION_MESSAGE);
+        }
+    }
+
+    private String toEmailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private String getErrorMessage(ConstraintViolation<CreateUserRequestDto> violation) {
+        return violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+
+    private UserDto cache(UserDto userDto) {
+        userCache.put(userDto);
+        return userDto;
+    }
+
+    private UserDto cacheRevived(UserDto userDto) {
+        userCache.putRevived(userDto);
+        return userDto;
+    }
+
+    private Map<String, Object> selectFields(Set<UserField> fields, Function<UserField, Object> valueOf) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        fields.forEach(field -> result.put(field.getFieldName(), valueOf.apply(field)));
+        return result;
     }
 
     private UserDto covertToDto(User user) {
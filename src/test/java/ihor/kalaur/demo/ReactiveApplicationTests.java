@@ -0,0 +1,40 @@
+package ihor.kalaur.demo;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import ihor.kalaur.demo.repository.UserRepository;
+import ihor.kalaur.demo.service.ReactiveUserService;
+import io.r2dbc.spi.ConnectionFactory;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        "spring.profiles.active=reactive",
+        "app.r2dbc.url=r2dbc:h2:mem:///reactive-context?options=MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "app.r2dbc.username=sa",
+        "app.r2dbc.password="
+})
+class ReactiveApplicationTests {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReactiveUserService reactiveUserService;
+
+    @Test
+    void contextLoads_keepsJdbcDataSourceNextToR2dbc() {
+        assertNotNull(dataSource);
+        assertNotNull(connectionFactory);
+        assertNotNull(userRepository);
+        assertNotNull(reactiveUserService);
+    }
+}
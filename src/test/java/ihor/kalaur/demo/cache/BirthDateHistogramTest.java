@@ -0,0 +1,139 @@
+package ihor.kalaur.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ihor.kalaur.demo.dto.stats.BirthDateCount;
+import ihor.kalaur.demo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class BirthDateHistogramTest {
+    private static final LocalDate FIRST_DATE = LocalDate.of(1990, 1, 15);
+    private static final LocalDate SECOND_DATE = LocalDate.of(1995, 6, 1);
+    private static final LocalDate THIRD_DATE = LocalDate.of(2000, 12, 31);
+    private static final Long FIRST_ID = 1L;
+    private static final Long SECOND_ID = 2L;
+    private static final Long THIRD_ID = 3L;
+    private static final LocalDateTime FIRST_DELETED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+    private static final LocalDateTime SECOND_DELETED_AT = LocalDateTime.of(2024, 1, 1, 12, 1);
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void count_beforeWarmUp_isEmpty() {
+        BirthDateHistogram histogram = createHistogram(true);
+
+        histogram.add(FIRST_DATE, 1);
+
+        assertEquals(OptionalLong.empty(), histogram.count(FIRST_DATE, THIRD_DATE));
+        assertFalse(histogram.forEach((birthDate, count) -> { }));
+    }
+
+    @Test
+    void count_afterWarmUp_sumsInclusiveRangeIncludingLaterDeltas() {
+        when(userRepository.countGroupedByBirthDate()).thenReturn(List.of(
+                new BirthDateCount(FIRST_DATE, 2L),
+                new BirthDateCount(SECOND_DATE, 3L),
+                new BirthDateCount(THIRD_DATE, 5L)));
+        BirthDateHistogram histogram = createHistogram(true);
+        histogram.warmUp();
+
+        histogram.add(SECOND_DATE, 1);
+        histogram.move(THIRD_DATE, FIRST_DATE);
+
+        assertEquals(OptionalLong.of(7), histogram.count(FIRST_DATE, SECOND_DATE));
+        assertEquals(OptionalLong.of(4), histogram.count(THIRD_DATE, THIRD_DATE));
+        assertEquals(OptionalLong.of(0), histogram.count(SECOND_DATE.plusDays(1), THIRD_DATE.minusDays(1)));
+    }
+
+    @Test
+    void forEach_skipsDatesWithoutUsers() {
+        when(userRepository.countGroupedByBirthDate()).thenReturn(List.of(
+                new BirthDateCount(FIRST_DATE, 1L),
+                new BirthDateCount(SECOND_DATE, 2L)));
+        BirthDateHistogram histogram = createHistogram(true);
+        histogram.warmUp();
+        histogram.add(FIRST_DATE, -1);
+
+        Map<LocalDate, Long> counts = new LinkedHashMap<>();
+        assertTrue(histogram.forEach(counts::put));
+
+        assertEquals(Map.of(SECOND_DATE, 2L), counts);
+    }
+
+    @Test
+    void reconcile_replacesDriftedCountsAndReportsDrift() {
+        when(userRepository.countGroupedByBirthDate())
+                .thenReturn(List.of(new BirthDateCount(FIRST_DATE, 2L)))
+                .thenReturn(List.of(new BirthDateCount(FIRST_DATE, 1L), new BirthDateCount(SECOND_DATE, 4L)));
+        BirthDateHistogram histogram = createHistogram(true);
+        histogram.warmUp();
+
+        histogram.reconcile();
+
+        assertEquals(OptionalLong.of(1), histogram.count(FIRST_DATE, FIRST_DATE));
+        assertEquals(OptionalLong.of(4), histogram.count(SECOND_DATE, SECOND_DATE));
+        assertEquals(5.0, meterRegistry.get(BirthDateHistogram.RECONCILE_DRIFT_METRIC).gauge().value());
+    }
+
+    @Test
+    void applyDeletions_subtractsUsersStillDeletedAtTheirDeleteTimeInOneQuery() {
+        when(userRepository.countGroupedByBirthDate()).thenReturn(List.of(new BirthDateCount(FIRST_DATE, 3L)));
+        when(userRepository.findBirthDatesDeletedAt(
+                argThat(ids -> Set.copyOf(ids).equals(Set.of(FIRST_ID, SECOND_ID, THIRD_ID))),
+                eq(Set.of(FIRST_DELETED_AT, SECOND_DELETED_AT))))
+                .thenReturn(List.of(FIRST_DATE, FIRST_DATE));
+        BirthDateHistogram histogram = createHistogram(true);
+        histogram.warmUp();
+
+        histogram.removeDeleted(List.of(FIRST_ID), FIRST_DELETED_AT);
+        histogram.removeDeleted(List.of(SECOND_ID, THIRD_ID), SECOND_DELETED_AT);
+        histogram.applyDeletions();
+        histogram.applyDeletions();
+
+        assertEquals(OptionalLong.of(1), histogram.count(FIRST_DATE, FIRST_DATE));
+        verify(userRepository, times(1)).findBirthDatesDeletedAt(anyCollection(), anyCollection());
+    }
+
+    @Test
+    void warmUp_disabled_neverReadsTableAndIgnoresDeltas() {
+        BirthDateHistogram histogram = createHistogram(false);
+
+        histogram.warmUp();
+        histogram.add(FIRST_DATE, 1);
+        histogram.removeDeleted(List.of(FIRST_ID), FIRST_DELETED_AT);
+        histogram.applyDeletions();
+
+        assertFalse(histogram.isEnabled());
+        assertEquals(OptionalLong.empty(), histogram.count(FIRST_DATE, THIRD_DATE));
+        verify(userRepository, never()).countGroupedByBirthDate();
+        verify(userRepository, never()).findBirthDatesDeletedAt(anyCollection(), anyCollection());
+    }
+
+    private BirthDateHistogram createHistogram(boolean enabled) {
+        return new BirthDateHistogram(userRepository, meterRegistry, enabled);
+    }
+}
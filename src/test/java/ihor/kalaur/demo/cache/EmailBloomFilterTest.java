@@ -0,0 +1,155 @@
+package ihor.kalaur.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+@ExtendWith(MockitoExtension.class)
+class EmailBloomFilterTest {
+    private static final long EXPECTED_INSERTIONS = 10_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final double ALLOWED_FALSE_POSITIVE_RATE = 0.03;
+    private static final int WARM_UP_PAGE_SIZE = 2;
+    private static final long WARM_UP_TIMEOUT_MS = 5_000;
+    private static final String EMAIL = "john.doe@example.com";
+    private static final String EMAIL_UPPER_CASE = "JOHN.DOE@EXAMPLE.COM";
+    private static final String OTHER_EMAIL = "jane.doe@example.com";
+    private static final String SECOND_EMAIL = "bob.doe@example.com";
+    private static final String THIRD_EMAIL = "alice.doe@example.com";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void mightContain_beforeWarmUp_reportsEveryEmailAsPossiblyTaken() {
+        EmailBloomFilter filter = createFilter(true);
+
+        assertTrue(filter.mightContain(OTHER_EMAIL));
+    }
+
+    @Test
+    void mightContain_addedEmail_foundIgnoringCase() {
+        EmailBloomFilter filter = createFilter(true);
+        filter.warmUp();
+
+        filter.add(EMAIL);
+
+        assertTrue(filter.mightContain(EMAIL));
+        assertTrue(filter.mightContain(EMAIL_UPPER_CASE));
+        assertFalse(filter.mightContain(OTHER_EMAIL));
+    }
+
+    @Test
+    void mightContain_fullFilter_keepsFalsePositivesNearConfiguredRate() {
+        EmailBloomFilter filter = createFilter(true);
+        filter.warmUp();
+        for (int i = 0; i < EXPECTED_INSERTIONS; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < EXPECTED_INSERTIONS; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+            if (filter.mightContain("other" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < EXPECTED_INSERTIONS * ALLOWED_FALSE_POSITIVE_RATE,
+                "Too many false positives: " + falsePositives);
+    }
+
+    @Test
+    void warmUp_readsTableInKeysetPagesUntilShortPage() {
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Object>>any(), eq(0L), eq(WARM_UP_PAGE_SIZE)))
+                .thenAnswer(invocation -> mapRows(invocation.getArgument(1), EMAIL, SECOND_EMAIL));
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Object>>any(), eq(2L), eq(WARM_UP_PAGE_SIZE)))
+                .thenAnswer(invocation -> mapRows(invocation.getArgument(1), THIRD_EMAIL));
+        EmailBloomFilter filter = createFilter(true);
+
+        filter.warmUp();
+
+        assertTrue(filter.mightContain(EMAIL));
+        assertTrue(filter.mightContain(SECOND_EMAIL));
+        assertTrue(filter.mightContain(THIRD_EMAIL));
+        assertFalse(filter.mightContain(OTHER_EMAIL));
+    }
+
+    @Test
+    void scheduleWarmUp_loadsOffTheCallingThreadAndChecksDatabaseMeanwhile() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Object>>any(), eq(0L), eq(WARM_UP_PAGE_SIZE)))
+                .thenAnswer(invocation -> {
+                    release.await();
+                    return mapRows(invocation.getArgument(1), EMAIL);
+                });
+
+        try (EmailBloomFilter filter = createFilter(true)) {
+            filter.scheduleWarmUp();
+
+            verify(jdbcTemplate, timeout(WARM_UP_TIMEOUT_MS))
+                    .query(anyString(), ArgumentMatchers.<RowMapper<Object>>any(), eq(0L), eq(WARM_UP_PAGE_SIZE));
+            assertTrue(filter.mightContain(OTHER_EMAIL));
+            release.countDown();
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WARM_UP_TIMEOUT_MS);
+            while (filter.mightContain(OTHER_EMAIL) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(filter.mightContain(OTHER_EMAIL));
+            assertTrue(filter.mightContain(EMAIL));
+        }
+    }
+
+    @Test
+    void scheduleWarmUp_disabled_neverReadsTableAndNeverRulesOutEmails() {
+        EmailBloomFilter filter = createFilter(false);
+
+        filter.scheduleWarmUp();
+        filter.warmUp();
+
+        assertTrue(filter.mightContain(OTHER_EMAIL));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private EmailBloomFilter createFilter(boolean enabled) {
+        return new EmailBloomFilter(jdbcTemplate, enabled, EXPECTED_INSERTIONS, FALSE_POSITIVE_RATE,
+                WARM_UP_PAGE_SIZE);
+    }
+
+    // Ids follow the position of the email across all pages, starting at 1
+    private List<Object> mapRows(RowMapper<Object> rowMapper, String... emails) throws SQLException {
+        List<Object> rows = new ArrayList<>();
+        for (String email : emails) {
+            ResultSet resultSet = mock(ResultSet.class);
+            when(resultSet.getLong(1)).thenReturn((long) rowIdOf(email));
+            when(resultSet.getString(2)).thenReturn(email);
+            rows.add(rowMapper.mapRow(resultSet, rows.size()));
+        }
+        return rows;
+    }
+
+    private int rowIdOf(String email) {
+        return List.of(EMAIL, SECOND_EMAIL, THIRD_EMAIL).indexOf(email) + 1;
+    }
+}
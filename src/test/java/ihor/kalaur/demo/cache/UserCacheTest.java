@@ -0,0 +1,64 @@
+package ihor.kalaur.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import ihor.kalaur.demo.dto.UserDto;
+import java.time.LocalDate;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+class UserCacheTest {
+    private static final Long ID = 1L;
+    private static final String EMAIL = "john.doe@example.com";
+    private static final LocalDate BIRTH_DATE = LocalDate.of(1990, 1, 1);
+
+    private final UserCache userCache =
+            new UserCache(new CaffeineCacheManager(UserCache.USERS_BY_ID, UserCache.USERS_BY_EMAIL));
+
+    @Test
+    void put_olderVersionAfterNewer_keepsNewer() {
+        UserDto updated = user("Bob", 2L);
+
+        userCache.put(updated);
+        userCache.put(user("John", 1L));
+
+        assertEquals(Optional.of(updated), userCache.getById(ID));
+    }
+
+    @Test
+    void put_newerVersion_replacesCachedUser() {
+        UserDto updated = user("Bob", 2L);
+
+        userCache.put(user("John", 1L));
+        userCache.put(updated);
+
+        assertEquals(Optional.of(updated), userCache.getByEmail(EMAIL));
+    }
+
+    @Test
+    void put_afterMarkDeleted_doesNotBringDeletedUserBack() {
+        userCache.put(user("John", 1L));
+        userCache.markDeleted(ID);
+
+        userCache.put(user("John", 1L));
+
+        assertEquals(Optional.empty(), userCache.getById(ID));
+        assertEquals(Optional.empty(), userCache.getByEmail(EMAIL));
+    }
+
+    @Test
+    void putRevived_afterMarkDeleted_replacesTombstone() {
+        UserDto restored = user("John", 3L);
+        userCache.markDeleted(ID);
+
+        userCache.putRevived(restored);
+        userCache.put(user("John", 1L));
+
+        assertEquals(Optional.of(restored), userCache.getById(ID));
+    }
+
+    private static UserDto user(String firstName, Long version) {
+        return new UserDto(ID, EMAIL, firstName, "Doe", BIRTH_DATE, null, null, version);
+    }
+}
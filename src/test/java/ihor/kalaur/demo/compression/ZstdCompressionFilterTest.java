@@ -0,0 +1,165 @@
+package ihor.kalaur.demo.compression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.github.luben.zstd.ZstdInputStream;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+class ZstdCompressionFilterTest {
+    private static final int MIN_RESPONSE_SIZE = 64;
+    private static final String USERS_URL = "/users/search";
+    private static final byte[] LARGE_BODY = "{\"email\":\"john.doe@example.com\"},".repeat(20)
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SMALL_BODY = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+    private final ZstdCompressionFilter filter = new ZstdCompressionFilter(properties());
+
+    @Test
+    void doFilter_largeJsonBody_compressesWithZstd() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("gzip, zstd"), response, writing(MediaType.APPLICATION_JSON_VALUE, LARGE_BODY));
+
+        assertEquals(ZstdCompressionFilter.ZSTD_ENCODING, response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        byte[] compressed = response.getContentAsByteArray();
+        try (InputStream decompressed = new ZstdInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(LARGE_BODY, decompressed.readAllBytes());
+        }
+    }
+
+    @Test
+    void doFilter_smallBody_writesItUnchangedWithLength() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("zstd"), response, writing(MediaType.APPLICATION_JSON_VALUE, SMALL_BODY));
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(SMALL_BODY.length, response.getContentLength());
+        assertArrayEquals(SMALL_BODY, response.getContentAsByteArray());
+    }
+
+    @Test
+    void doFilter_ndjsonStream_passesThrough() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("zstd"), response, writing(MediaType.APPLICATION_NDJSON_VALUE, LARGE_BODY));
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(LARGE_BODY, response.getContentAsByteArray());
+    }
+
+    @Test
+    void doFilter_zstdRefused_passesThrough() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("gzip, zstd;q=0"), response, writing(MediaType.APPLICATION_JSON_VALUE, LARGE_BODY));
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(LARGE_BODY, response.getContentAsByteArray());
+    }
+
+    @Test
+    void doFilter_nonBlockingWrite_registersListenerOnContainerStream() throws ServletException, IOException {
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+        NonBlockingResponse response = new NonBlockingResponse(mockResponse);
+        WriteListener listener = new BodyWriteListener();
+
+        filter.doFilter(request("zstd"), response, (request, filteredResponse) -> {
+            filteredResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            ServletOutputStream outputStream = filteredResponse.getOutputStream();
+            outputStream.setWriteListener(listener);
+            outputStream.write(LARGE_BODY);
+        });
+
+        assertSame(listener, response.outputStream.writeListener);
+        assertNull(mockResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(LARGE_BODY, mockResponse.getContentAsByteArray());
+    }
+
+    private static MockHttpServletRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", USERS_URL);
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        return request;
+    }
+
+    private static FilterChain writing(String contentType, byte[] body) {
+        return (request, response) -> {
+            response.setContentType(contentType);
+            response.getOutputStream().write(body);
+            response.getOutputStream().flush();
+        };
+    }
+
+    private static ZstdCompressionProperties properties() {
+        ZstdCompressionProperties properties = new ZstdCompressionProperties();
+        properties.setMinResponseSize(DataSize.ofBytes(MIN_RESPONSE_SIZE));
+        return properties;
+    }
+
+    private static final class BodyWriteListener implements WriteListener {
+        @Override
+        public void onWritePossible() {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+    }
+
+    // Stands in for a container stream that supports non-blocking writes, which the mock response does not
+    private static final class NonBlockingResponse extends HttpServletResponseWrapper {
+        private final RecordingOutputStream outputStream;
+
+        private NonBlockingResponse(MockHttpServletResponse response) {
+            super(response);
+            this.outputStream = new RecordingOutputStream(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+    }
+
+    private static final class RecordingOutputStream extends ServletOutputStream {
+        private final MockHttpServletResponse response;
+        private WriteListener writeListener;
+
+        private RecordingOutputStream(MockHttpServletResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            response.getOutputStream().write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.writeListener = writeListener;
+        }
+    }
+}
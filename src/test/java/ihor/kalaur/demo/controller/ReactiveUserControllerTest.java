@@ -0,0 +1,188 @@
+package ihor.kalaur.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.bulk.BatchDeleteResultDto;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import ihor.kalaur.demo.exceptions.DuplicateEmailException;
+import ihor.kalaur.demo.exceptions.EntityNotFoundException;
+import ihor.kalaur.demo.service.ReactiveUserService;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@WebFluxTest(ReactiveUserController.class)
+class ReactiveUserControllerTest {
+    private static final String BASE_URL = "/users";
+    private static final String SEARCH_URL = "/users/search?from=1980-01-01&to=2000-01-01";
+    private static final String SEARCH_PAGE_URL = "/users/search/page?from=1980-01-01&to=2000-01-01&size=";
+    private static final LocalDate SEARCH_FROM = LocalDate.of(1980, 1, 1);
+    private static final LocalDate SEARCH_TO = LocalDate.of(2000, 1, 1);
+    private static final int PAGE_SIZE = 1;
+    private static final int PAGE_SIZE_TOO_LARGE = 1001;
+    private static final String NEXT_CURSOR = "MTk5MC0wMS0wMXwx";
+    private static final Long ID_ONE = 1L;
+    private static final Long ID_TWO = 2L;
+    private static final String EMAIL_VALID = "john.doe@example.com";
+    private static final String EMAIL_INVALID = "not-an-email";
+    private static final String FIRST_NAME = "John";
+    private static final String LAST_NAME = "Doe";
+    private static final LocalDate BIRTH_DATE_VALID = LocalDate.of(1990, 1, 1);
+    private static final String ERROR_MESSAGE_INVALID_EMAIL = "email: must be a valid email address";
+    private static final String ERROR_MESSAGE_USER_NOT_FOUND = "User not found";
+    private static final String ERROR_MESSAGE_DUPLICATE_EMAIL =
+            "Email must be unique, the provided email is already in use.";
+    private static final String PAGE_SIZE_ERROR_MESSAGE = "size: page size must not exceed 1000";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveUserService reactiveUserService;
+
+    @Test
+    void createUser_validRequest_returnsCreatedUser() {
+        CreateUserRequestDto requestDto = createValidUserRequestDto();
+        UserDto expected = toUserDto(ID_ONE);
+        given(reactiveUserService.save(requestDto)).willReturn(Mono.just(expected));
+
+        webTestClient.post().uri(BASE_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestDto)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(UserDto.class).isEqualTo(expected);
+    }
+
+    @Test
+    void createUser_invalidEmail_returnsErrorWithoutSaving() {
+        CreateUserRequestDto requestDto = createValidUserRequestDto();
+        requestDto.setEmail(EMAIL_INVALID);
+
+        webTestClient.post().uri(BASE_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestDto)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.errors[0]").isEqualTo(ERROR_MESSAGE_INVALID_EMAIL);
+        verifyNoInteractions(reactiveUserService);
+    }
+
+    @Test
+    void createUser_duplicateEmail_returnsConflict() {
+        CreateUserRequestDto requestDto = createValidUserRequestDto();
+        given(reactiveUserService.save(requestDto))
+                .willReturn(Mono.error(new DuplicateEmailException(ERROR_MESSAGE_DUPLICATE_EMAIL)));
+
+        webTestClient.post().uri(BASE_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestDto)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody().jsonPath("$.message").isEqualTo(ERROR_MESSAGE_DUPLICATE_EMAIL);
+    }
+
+    @Test
+    void findById_missingUser_returnsNotFound() {
+        given(reactiveUserService.findById(ID_ONE))
+                .willReturn(Mono.error(new EntityNotFoundException(ERROR_MESSAGE_USER_NOT_FOUND)));
+
+        webTestClient.get().uri(BASE_URL + "/" + ID_ONE)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo(ERROR_MESSAGE_USER_NOT_FOUND);
+    }
+
+    @Test
+    void findByBirthDateRange_ndjson_streamsOneUserPerLine() {
+        given(reactiveUserService.findByBirthDateRange(SEARCH_FROM, SEARCH_TO))
+                .willReturn(Flux.just(toUserDto(ID_ONE), toUserDto(ID_TWO)));
+
+        List<UserDto> actual = webTestClient.get().uri(SEARCH_URL)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(UserDto.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(List.of(toUserDto(ID_ONE), toUserDto(ID_TWO)), actual);
+    }
+
+    @Test
+    void findByBirthDateRange_json_returnsArray() {
+        given(reactiveUserService.findByBirthDateRange(SEARCH_FROM, SEARCH_TO))
+                .willReturn(Flux.just(toUserDto(ID_ONE), toUserDto(ID_TWO)));
+
+        webTestClient.get().uri(SEARCH_URL)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(UserDto.class).hasSize(2);
+    }
+
+    @Test
+    void findPageByBirthDateRange_validRequest_returnsPage() {
+        given(reactiveUserService.findPageByBirthDateRange(SEARCH_FROM, SEARCH_TO, null, PAGE_SIZE))
+                .willReturn(Mono.just(new CursorPageDto<>(List.of(toUserDto(ID_ONE)), NEXT_CURSOR)));
+
+        webTestClient.get().uri(SEARCH_PAGE_URL + PAGE_SIZE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].id").isEqualTo(ID_ONE.intValue())
+                .jsonPath("$.nextCursor").isEqualTo(NEXT_CURSOR);
+    }
+
+    @Test
+    void findPageByBirthDateRange_pageSizeTooLarge_returnsBadRequest() {
+        webTestClient.get().uri(SEARCH_PAGE_URL + PAGE_SIZE_TOO_LARGE)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.errors[0]").isEqualTo(PAGE_SIZE_ERROR_MESSAGE);
+        verifyNoInteractions(reactiveUserService);
+    }
+
+    @Test
+    void deleteUser_existingUser_returnsNoContent() {
+        given(reactiveUserService.delete(ID_ONE)).willReturn(Mono.empty());
+
+        webTestClient.delete().uri(BASE_URL + "/" + ID_ONE)
+                .exchange()
+                .expectStatus().isNoContent();
+        verify(reactiveUserService).delete(ID_ONE);
+    }
+
+    @Test
+    void deleteUsers_validIds_returnsResult() {
+        given(reactiveUserService.deleteAll(List.of(ID_ONE, ID_TWO)))
+                .willReturn(Mono.just(new BatchDeleteResultDto(2, 1)));
+
+        webTestClient.delete().uri(BASE_URL + "?ids=" + ID_ONE + "," + ID_TWO)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchDeleteResultDto.class).isEqualTo(new BatchDeleteResultDto(2, 1));
+    }
+
+    private CreateUserRequestDto createValidUserRequestDto() {
+        return new CreateUserRequestDto(EMAIL_VALID, FIRST_NAME, LAST_NAME, BIRTH_DATE_VALID, null, null);
+    }
+
+    private UserDto toUserDto(Long id) {
+        return new UserDto(id, EMAIL_VALID, FIRST_NAME, LAST_NAME, BIRTH_DATE_VALID, null, null, 0L);
+    }
+}
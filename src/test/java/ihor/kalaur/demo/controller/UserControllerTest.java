@@ -3,43 +3,96 @@ package ihor.kalaur.demo.controller;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ihor.kalaur.demo.converter.UserProtobufHttpMessageConverter;
 import ihor.kalaur.demo.dto.CreateUserRequestDto;
 import ihor.kalaur.demo.dto.UpdateAnyFieldsUserRequestDto;
 import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.UserField;
+import ihor.kalaur.demo.dto.UserUpsertResult;
+import ihor.kalaur.demo.dto.bulk.BatchDeleteResultDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetRequestDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetResultDto;
+import ihor.kalaur.demo.dto.bulk.BulkUserResultDto;
+import ihor.kalaur.demo.dto.bulk.BulkUserStatus;
+import ihor.kalaur.demo.dto.change.UserChangeDto;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import ihor.kalaur.demo.dto.stats.HistogramBucket;
+import ihor.kalaur.demo.dto.stats.HistogramBucketDto;
+import ihor.kalaur.demo.dto.stats.UserCountDto;
+import ihor.kalaur.demo.exceptions.DuplicateEmailException;
 import ihor.kalaur.demo.exceptions.EntityNotFoundException;
+import ihor.kalaur.demo.exceptions.ShardingUnsupportedException;
+import ihor.kalaur.demo.exceptions.VersionConflictException;
+import ihor.kalaur.demo.model.UserChangeType;
+import ihor.kalaur.demo.service.UserChangeFeed;
 import ihor.kalaur.demo.service.UserService;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.CannotCreateTransactionException;
 
 @WebMvcTest(UserController.class)
 class UserControllerTest {
     private static final String BASE_URL = "/users";
     private static final String SEARCH_PART_OF_URL = "/search";
+    private static final String SEARCH_PAGE_PART_OF_URL = "/search/page";
+    private static final String BIRTHDAYS_PART_OF_URL = "/search/birthdays";
+    private static final int BIRTHDAY_WINDOW_DAYS = 7;
+    private static final int BIRTHDAY_WINDOW_DAYS_TOO_LARGE = 367;
+    private static final String BIRTHDAY_WINDOW_DAYS_ERROR_MESSAGE = "days: days must not exceed 366";
+    private static final String COUNT_PART_OF_URL = "/search/count";
+    private static final String BIRTH_HISTOGRAM_PART_OF_URL = "/stats/birth-histogram";
+    private static final String BULK_PART_OF_URL = "/bulk";
+    private static final String BATCH_GET_PART_OF_URL = "/batch-get";
+    private static final String BY_EMAIL_PART_OF_URL = "/by-email";
+    private static final String CHANGES_PART_OF_URL = "/changes";
+    private static final Long CHANGE_OFFSET = 6L;
+    private static final String NDJSON_LINE_SEPARATOR = "\n";
+    private static final String NEXT_CURSOR = "MTk5MC0wMS0wMXwx";
+    private static final int PAGE_SIZE = 1;
+    private static final int PAGE_SIZE_TOO_LARGE = 1001;
     private static final String URL_SPLITTER = "/";
     private static final Long ID_ONE = 1L;
+    private static final Long VERSION = 0L;
     private static final String EMAIL_VALID = "john.doe@example.com";
     private static final String EMAIL_INVALID = "not-an-email";
     private static final String FIRST_NAME = "John";
@@ -53,15 +106,34 @@ class UserControllerTest {
     private static final String ERROR_MESSAGE_INVALID_EMAIL = "email: must be a valid email address";
     private static final String ERROR_MESSAGE_NOT_ADULT = "birthDate: User must be adult";
     private static final String ERROR_MESSAGE_USER_NOT_FOUND = "User not found";
+    private static final String ERROR_MESSAGE_DUPLICATE_EMAIL =
+            "Email must be unique, the provided email is already in use.";
+    private static final String ERROR_MESSAGE_DATABASE_BUSY = "The database is busy, please retry later.";
+    private static final String DATABASE_BUSY_CAUSE = "Timed out waiting for a database permit";
+    private static final String ERROR_MESSAGE_VERSION_CONFLICT = "User was modified concurrently";
     private static final String DATE_VALIDATION_ERROR_MESSAGE = "valid: The 'from' date must be before the 'to' date.";
+    private static final String PAGE_SIZE_ERROR_MESSAGE = "size: page size must not exceed 1000";
+    private static final String SELECTED_FIELDS = "id,email";
+    private static final String EMPTY_IDS_ERROR_MESSAGE = "ids: must not be empty";
+    private static final String UNKNOWN_FIELD = "password";
+    private static final String UNKNOWN_FIELD_ERROR_MESSAGE = "fields: unknown field 'password'";
 
     @Autowired
     private MockMvc mockMvc;
     private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory()).registerModule(new JavaTimeModule());
+    private final UserProtobufHttpMessageConverter protobufConverter = new UserProtobufHttpMessageConverter(
+            Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .factory(new ProtobufFactory())
+                    .build());
 
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserChangeFeed userChangeFeed;
+
     @Test
     void createUser_ValidRequest_returnUserDto() throws Exception {
         CreateUserRequestDto requestDto = createValidUserRequestDto();
@@ -82,6 +154,41 @@ class UserControllerTest {
         assertTrue(EqualsBuilder.reflectionEquals(expected, actual, "id"));
     }
 
+    @Test
+    void createUser_protobufRequest_returnProtobufUser() throws Exception {
+        CreateUserRequestDto requestDto = createValidUserRequestDto();
+        UserDto expected = toUserDto(requestDto);
+        given(userService.save(requestDto)).willReturn(expected);
+        MockHttpOutputMessage requestMessage = new MockHttpOutputMessage();
+        protobufConverter.write(requestDto, CreateUserRequestDto.class,
+                UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF, requestMessage);
+
+        MvcResult mvcResult = mockMvc.perform(post(BASE_URL)
+                        .contentType(UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF)
+                        .accept(UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF)
+                        .content(requestMessage.getBodyAsBytes()))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+                .andReturn();
+
+        Object actual = protobufConverter.read(UserDto.class, null,
+                new MockHttpInputMessage(mvcResult.getResponse().getContentAsByteArray()));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void createUser_duplicateEmail_returnsConflict() throws Exception {
+        CreateUserRequestDto requestDto = createValidUserRequestDto();
+
+        given(userService.save(requestDto)).willThrow(new DuplicateEmailException(ERROR_MESSAGE_DUPLICATE_EMAIL));
+
+        mockMvc.perform(post(BASE_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value(ERROR_MESSAGE_DUPLICATE_EMAIL));
+    }
+
     @Test
     void createUser_invalidEmail_returnError() throws Exception {
         CreateUserRequestDto requestDto = createValidUserRequestDto();
@@ -106,6 +213,48 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.errors[0]").value(ERROR_MESSAGE_NOT_ADULT));
     }
 
+    @Test
+    void createUsers_ndjsonStream_returnResultPerRecord() throws Exception {
+        CreateUserRequestDto requestDto = createValidUserRequestDto();
+        String body = objectMapper.writeValueAsString(requestDto) + NDJSON_LINE_SEPARATOR
+                + objectMapper.writeValueAsString(requestDto) + NDJSON_LINE_SEPARATOR;
+        List<BulkUserResultDto> expected = List.of(
+                new BulkUserResultDto(0, BulkUserStatus.CREATED, ID_ONE, List.of()),
+                new BulkUserResultDto(1, BulkUserStatus.CREATED, ID_ONE + 1, List.of())
+        );
+
+        given(userService.saveAll(any())).willAnswer(invocation -> {
+            Iterator<CreateUserRequestDto> requestDtos = invocation.getArgument(0);
+            assertEquals(requestDto, requestDtos.next());
+            assertEquals(requestDto, requestDtos.next());
+            return expected;
+        });
+
+        mockMvc.perform(post(BASE_URL + BULK_PART_OF_URL)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(BulkUserStatus.CREATED.name()))
+                .andExpect(jsonPath("$[1].id").value(ID_ONE + 1));
+    }
+
+    @Test
+    void createUsers_jsonArray_readsEveryRecord() throws Exception {
+        CreateUserRequestDto requestDto = createValidUserRequestDto();
+
+        given(userService.saveAll(any())).willAnswer(invocation -> {
+            Iterator<CreateUserRequestDto> requestDtos = invocation.getArgument(0);
+            assertEquals(requestDto, requestDtos.next());
+            return List.of(new BulkUserResultDto(0, BulkUserStatus.CREATED, ID_ONE, List.of()));
+        });
+
+        mockMvc.perform(post(BASE_URL + BULK_PART_OF_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(requestDto))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(ID_ONE));
+    }
+
     @Test
     void updateAnyUserFields_existingUser_updatesFieldsSuccessfully() throws Exception {
         UpdateAnyFieldsUserRequestDto requestDto = createUpdateAnyFieldsUserRequestDto();
@@ -136,12 +285,27 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message").value(ERROR_MESSAGE_USER_NOT_FOUND));
     }
 
+    @Test
+    void updateAnyUserFields_staleVersion_returnsConflict() throws Exception {
+        UpdateAnyFieldsUserRequestDto requestDto = createUpdateAnyFieldsUserRequestDto();
+        requestDto.setVersion(VERSION);
+
+        given(userService.updateAnyUserFields(ID_ONE, requestDto))
+                .willThrow(new VersionConflictException(ERROR_MESSAGE_VERSION_CONFLICT));
+
+        mockMvc.perform(patch(BASE_URL + URL_SPLITTER + ID_ONE)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value(ERROR_MESSAGE_VERSION_CONFLICT));
+    }
+
     @Test
     void updateAllUserFields_existingUser_updatesSuccessfully() throws Exception {
         CreateUserRequestDto requestDto = createValidUserRequestDto();
         UserDto expectedDto = toUserDto(requestDto);
 
-        given(userService.updateAllUserFields(ID_ONE, requestDto)).willReturn(expectedDto);
+        given(userService.updateAllUserFields(ID_ONE, requestDto)).willReturn(new UserUpsertResult(expectedDto, false));
 
         MvcResult mvcResult = mockMvc.perform(put(BASE_URL + URL_SPLITTER + ID_ONE)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -153,6 +317,20 @@ class UserControllerTest {
         assertEquals(expectedDto, actual);
     }
 
+    @Test
+    void updateAllUserFields_newUser_returnsCreated() throws Exception {
+        CreateUserRequestDto requestDto = createValidUserRequestDto();
+        UserDto expectedDto = toUserDto(requestDto);
+
+        given(userService.updateAllUserFields(ID_ONE, requestDto)).willReturn(new UserUpsertResult(expectedDto, true));
+
+        mockMvc.perform(put(BASE_URL + URL_SPLITTER + ID_ONE)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(ID_ONE));
+    }
+
     @Test
     void deleteUser_userExists_deletesSuccessfully() throws Exception {
         doNothing().when(userService).delete(ID_ONE);
@@ -171,6 +349,160 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message").value(ERROR_MESSAGE_USER_NOT_FOUND));
     }
 
+    @Test
+    void restoreUser_archivedUser_returnsRestoredUser() throws Exception {
+        UserDto expected = toUserDto(createValidUserRequestDto());
+        given(userService.restore(ID_ONE)).willReturn(expected);
+
+        mockMvc.perform(post(BASE_URL + URL_SPLITTER + ID_ONE + "/restore"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(EMAIL_VALID));
+    }
+
+    @Test
+    void restoreUser_emailInUse_returnsConflict() throws Exception {
+        given(userService.restore(ID_ONE)).willThrow(new DuplicateEmailException(ERROR_MESSAGE_DUPLICATE_EMAIL));
+
+        mockMvc.perform(post(BASE_URL + URL_SPLITTER + ID_ONE + "/restore"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value(ERROR_MESSAGE_DUPLICATE_EMAIL));
+    }
+
+    @Test
+    void deleteUsers_listOfIds_returnsDeletedCount() throws Exception {
+        given(userService.deleteAll(List.of(ID_ONE, ID_ONE + 1))).willReturn(new BatchDeleteResultDto(2, 1));
+
+        mockMvc.perform(delete(BASE_URL)
+                        .param("ids", ID_ONE + "," + (ID_ONE + 1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(2))
+                .andExpect(jsonPath("$.deleted").value(1));
+    }
+
+    @Test
+    void streamChanges_lastEventId_resumesAfterItAndSendsEvents() throws Exception {
+        givenChangeFeedDelivers(CHANGE_OFFSET - 1);
+
+        MvcResult mvcResult = mockMvc.perform(get(BASE_URL + CHANGES_PART_OF_URL)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .param("since", "0")
+                        .header("Last-Event-ID", CHANGE_OFFSET - 1))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String actual = mvcResult.getResponse().getContentAsString();
+        assertTrue(actual.contains("id:" + CHANGE_OFFSET));
+        assertTrue(actual.contains("event:" + UserChangeType.UPDATED));
+    }
+
+    @Test
+    void streamChanges_sharded_returnNotImplemented() throws Exception {
+        given(userChangeFeed.subscribe(any(), any()))
+                .willThrow(new ShardingUnsupportedException("The change feed is not available"));
+
+        mockMvc.perform(get(BASE_URL + CHANGES_PART_OF_URL)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotImplemented());
+    }
+
+    @Test
+    void streamChangesAsNdjson_since_sendsOneChangePerLine() throws Exception {
+        givenChangeFeedDelivers(CHANGE_OFFSET - 1);
+
+        MvcResult mvcResult = mockMvc.perform(get(BASE_URL + CHANGES_PART_OF_URL)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("since", String.valueOf(CHANGE_OFFSET - 1)))
+                .andExpect(request().asyncStarted())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = mvcResult.getResponse().getContentAsString().split(NDJSON_LINE_SEPARATOR);
+        assertEquals(1, lines.length);
+        assertEquals(CHANGE_OFFSET, objectMapper.readValue(lines[0], UserChangeDto.class).getOffset());
+    }
+
+    @Test
+    void findAllById_listOfIds_returnsUsersAndNotFoundIds() throws Exception {
+        BatchGetRequestDto requestDto = new BatchGetRequestDto();
+        requestDto.setIds(List.of(ID_ONE, ID_ONE + 1));
+        given(userService.findAllById(requestDto.getIds()))
+                .willReturn(new BatchGetResultDto(createUserDtos(), List.of(ID_ONE + 1)));
+
+        mockMvc.perform(post(BASE_URL + BATCH_GET_PART_OF_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].email").value(EMAIL_VALID))
+                .andExpect(jsonPath("$.notFound[0]").value(ID_ONE + 1));
+    }
+
+    @Test
+    void findAllById_emptyIds_returnValidationError() throws Exception {
+        BatchGetRequestDto requestDto = new BatchGetRequestDto();
+        requestDto.setIds(Collections.emptyList());
+
+        mockMvc.perform(post(BASE_URL + BATCH_GET_PART_OF_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value(EMPTY_IDS_ERROR_MESSAGE));
+    }
+
+    @Test
+    void findById_existingUser_returnUserDto() throws Exception {
+        UserDto expected = toUserDto(createValidUserRequestDto());
+
+        given(userService.findById(ID_ONE)).willReturn(expected);
+
+        MvcResult mvcResult = mockMvc.perform(get(BASE_URL + URL_SPLITTER + ID_ONE))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        UserDto actual = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), UserDto.class);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void findById_nonExistingUser_returnsNotFound() throws Exception {
+        given(userService.findById(ID_ONE)).willThrow(new EntityNotFoundException(ERROR_MESSAGE_USER_NOT_FOUND));
+
+        mockMvc.perform(get(BASE_URL + URL_SPLITTER + ID_ONE))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value(ERROR_MESSAGE_USER_NOT_FOUND));
+    }
+
+    @Test
+    void findById_nonExistingUserAcceptProtobuf_returnsJsonError() throws Exception {
+        given(userService.findById(ID_ONE)).willThrow(new EntityNotFoundException(ERROR_MESSAGE_USER_NOT_FOUND));
+
+        mockMvc.perform(get(BASE_URL + URL_SPLITTER + ID_ONE)
+                        .accept(UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message").value(ERROR_MESSAGE_USER_NOT_FOUND));
+    }
+
+    @Test
+    void findById_databaseBusy_returnsServiceUnavailable() throws Exception {
+        given(userService.findById(ID_ONE)).willThrow(new CannotCreateTransactionException(DATABASE_BUSY_CAUSE));
+
+        mockMvc.perform(get(BASE_URL + URL_SPLITTER + ID_ONE))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message").value(ERROR_MESSAGE_DATABASE_BUSY));
+    }
+
+    @Test
+    void findByEmail_existingUser_returnUserDto() throws Exception {
+        UserDto expected = toUserDto(createValidUserRequestDto());
+
+        given(userService.findByEmail(EMAIL_VALID)).willReturn(expected);
+
+        mockMvc.perform(get(BASE_URL + BY_EMAIL_PART_OF_URL)
+                        .param("email", EMAIL_VALID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(EMAIL_VALID));
+    }
+
     @Test
     void findByBirthDateRange_validRange_returnUsers() throws Exception {
         LocalDate startDate = BIRTH_DATE_VALID;
@@ -190,6 +522,26 @@ class UserControllerTest {
         assertEquals(expectedUsers, Arrays.stream(actual).toList());
     }
 
+    @Test
+    void findByBirthDateRange_acceptCbor_returnCborUsers() throws Exception {
+        LocalDate startDate = BIRTH_DATE_VALID;
+        LocalDate endDate = BIRTH_DATE_VALID.plusDays(1);
+        List<UserDto> expectedUsers = createUserDtos();
+
+        given(userService.findByBirthDateRange(startDate, endDate)).willReturn(expectedUsers);
+
+        MvcResult mvcResult = mockMvc.perform(get(BASE_URL + SEARCH_PART_OF_URL)
+                        .param("from", startDate.toString())
+                        .param("to", endDate.toString())
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        UserDto[] actual = cborMapper.readValue(mvcResult.getResponse().getContentAsByteArray(), UserDto[].class);
+        assertEquals(expectedUsers, Arrays.stream(actual).toList());
+    }
+
     @Test
     void findByBirthDateRange_invalidOrder_returnValidationError() throws Exception {
         LocalDate startDate = BIRTH_DATE_VALID;
@@ -201,7 +553,154 @@ class UserControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.errors[0]").value(DATE_VALIDATION_ERROR_MESSAGE));
     }
-    
+
+    @Test
+    void findPageByBirthDateRange_validRange_returnPageWithCursor() throws Exception {
+        LocalDate startDate = BIRTH_DATE_VALID;
+        LocalDate endDate = BIRTH_DATE_VALID.plusDays(1);
+        List<UserDto> expectedUsers = createUserDtos();
+
+        given(userService.findPageByBirthDateRange(startDate, endDate, null, PAGE_SIZE))
+                .willReturn(new CursorPageDto<>(expectedUsers, NEXT_CURSOR));
+
+        mockMvc.perform(get(BASE_URL + SEARCH_PAGE_PART_OF_URL)
+                        .param("from", startDate.toString())
+                        .param("to", endDate.toString())
+                        .param("size", String.valueOf(PAGE_SIZE)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].email").value(EMAIL_VALID))
+                .andExpect(jsonPath("$.nextCursor").value(NEXT_CURSOR));
+    }
+
+    @Test
+    void findPageByBirthDateRange_pageSizeTooLarge_returnValidationError() throws Exception {
+        mockMvc.perform(get(BASE_URL + SEARCH_PAGE_PART_OF_URL)
+                        .param("from", BIRTH_DATE_VALID.toString())
+                        .param("to", BIRTH_DATE_VALID.plusDays(1).toString())
+                        .param("size", String.valueOf(PAGE_SIZE_TOO_LARGE)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value(PAGE_SIZE_ERROR_MESSAGE));
+    }
+
+    @Test
+    void findPageByUpcomingBirthdays_validWindow_returnPageWithCursor() throws Exception {
+        given(userService.findPageByUpcomingBirthdays(BIRTH_DATE_VALID, BIRTHDAY_WINDOW_DAYS, null, PAGE_SIZE))
+                .willReturn(new CursorPageDto<>(createUserDtos(), NEXT_CURSOR));
+
+        mockMvc.perform(get(BASE_URL + BIRTHDAYS_PART_OF_URL)
+                        .param("from", BIRTH_DATE_VALID.toString())
+                        .param("days", String.valueOf(BIRTHDAY_WINDOW_DAYS))
+                        .param("size", String.valueOf(PAGE_SIZE)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].email").value(EMAIL_VALID))
+                .andExpect(jsonPath("$.nextCursor").value(NEXT_CURSOR));
+    }
+
+    @Test
+    void findPageByUpcomingBirthdays_windowLongerThanYear_returnValidationError() throws Exception {
+        mockMvc.perform(get(BASE_URL + BIRTHDAYS_PART_OF_URL)
+                        .param("days", String.valueOf(BIRTHDAY_WINDOW_DAYS_TOO_LARGE)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value(BIRTHDAY_WINDOW_DAYS_ERROR_MESSAGE));
+    }
+
+    @Test
+    void countByBirthDateRange_validRange_returnApproximateCount() throws Exception {
+        LocalDate endDate = BIRTH_DATE_VALID.plusYears(1);
+        given(userService.countByBirthDateRange(BIRTH_DATE_VALID, endDate, false))
+                .willReturn(new UserCountDto(42, false));
+
+        mockMvc.perform(get(BASE_URL + COUNT_PART_OF_URL)
+                        .param("from", BIRTH_DATE_VALID.toString())
+                        .param("to", endDate.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(42))
+                .andExpect(jsonPath("$.exact").value(false));
+    }
+
+    @Test
+    void countByBirthDateRange_invalidRange_returnValidationError() throws Exception {
+        mockMvc.perform(get(BASE_URL + COUNT_PART_OF_URL)
+                        .param("from", BIRTH_DATE_VALID.toString())
+                        .param("to", BIRTH_DATE_VALID.minusDays(1).toString())
+                        .param("exact", "true"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value(DATE_VALIDATION_ERROR_MESSAGE));
+    }
+
+    @Test
+    void getBirthHistogram_byMonth_returnBuckets() throws Exception {
+        given(userService.getBirthHistogram(HistogramBucket.MONTH))
+                .willReturn(List.of(new HistogramBucketDto("JANUARY", 3)));
+
+        mockMvc.perform(get(BASE_URL + BIRTH_HISTOGRAM_PART_OF_URL)
+                        .param("bucket", HistogramBucket.MONTH.name()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bucket").value("JANUARY"))
+                .andExpect(jsonPath("$[0].count").value(3));
+    }
+
+    @Test
+    void getBirthHistogram_unknownBucket_returnBadRequest() throws Exception {
+        mockMvc.perform(get(BASE_URL + BIRTH_HISTOGRAM_PART_OF_URL)
+                        .param("bucket", "DECADE"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findFieldsByBirthDateRange_selectedFields_returnOnlyThoseFields() throws Exception {
+        LocalDate startDate = BIRTH_DATE_VALID;
+        LocalDate endDate = BIRTH_DATE_VALID.plusDays(1);
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", ID_ONE);
+        row.put("email", EMAIL_VALID);
+
+        given(userService.findFieldsByBirthDateRange(startDate, endDate, EnumSet.of(UserField.ID, UserField.EMAIL)))
+                .willReturn(List.of(row));
+
+        mockMvc.perform(get(BASE_URL + SEARCH_PART_OF_URL)
+                        .param("from", startDate.toString())
+                        .param("to", endDate.toString())
+                        .param("fields", SELECTED_FIELDS))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value(EMAIL_VALID))
+                .andExpect(jsonPath("$[0].address").doesNotExist());
+    }
+
+    @Test
+    void findFieldsByBirthDateRange_unknownField_returnBadRequest() throws Exception {
+        mockMvc.perform(get(BASE_URL + SEARCH_PART_OF_URL)
+                        .param("from", BIRTH_DATE_VALID.toString())
+                        .param("to", BIRTH_DATE_VALID.plusDays(1).toString())
+                        .param("fields", UNKNOWN_FIELD))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(UNKNOWN_FIELD_ERROR_MESSAGE));
+    }
+
+    @Test
+    void findFieldsById_selectedFields_returnOnlyThoseFields() throws Exception {
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("id", ID_ONE);
+        user.put("email", EMAIL_VALID);
+
+        given(userService.findFieldsById(ID_ONE, EnumSet.of(UserField.ID, UserField.EMAIL))).willReturn(user);
+
+        mockMvc.perform(get(BASE_URL + URL_SPLITTER + ID_ONE)
+                        .param("fields", SELECTED_FIELDS))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(EMAIL_VALID))
+                .andExpect(jsonPath("$.firstName").doesNotExist());
+    }
+
+    // Changes handed over before the emitter is initialized are buffered and flushed once the stream starts
+    private void givenChangeFeedDelivers(Long since) {
+        UserChangeDto change = new UserChangeDto(CHANGE_OFFSET, ID_ONE, UserChangeType.UPDATED, LocalDateTime.now());
+        given(userChangeFeed.subscribe(eq(since), any())).willAnswer(invocation -> {
+            invocation.<Consumer<List<UserChangeDto>>>getArgument(1).accept(List.of(change));
+            return mock(UserChangeFeed.Subscription.class);
+        });
+    }
+
     private CreateUserRequestDto createValidUserRequestDto() {
         CreateUserRequestDto requestDto = new CreateUserRequestDto();
         requestDto.setEmail(EMAIL_VALID);
@@ -221,8 +720,8 @@ class UserControllerTest {
                 createUserRequestDto.getLastName(),
                 createUserRequestDto.getBirthDate(),
                 createUserRequestDto.getAddress(),
-                createUserRequestDto.getPhoneNumber()
-
+                createUserRequestDto.getPhoneNumber(),
+                VERSION
         );
     }
 
@@ -0,0 +1,152 @@
+package ihor.kalaur.demo.converter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.dto.UpdateAnyFieldsUserRequestDto;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetRequestDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetResultDto;
+import ihor.kalaur.demo.dto.error.ErrorResponseDto;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+class UserProtobufHttpMessageConverterTest {
+    private static final Type USER_LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, UserDto.class).getType();
+    private static final Type USER_MAP_TYPE =
+            ResolvableType.forClassWithGenerics(Map.class, String.class, UserDto.class).getType();
+    private static final Type USER_PAGE_TYPE =
+            ResolvableType.forClassWithGenerics(CursorPageDto.class, UserDto.class).getType();
+    private static final Type FIELD_PAGE_TYPE = ResolvableType.forClassWithGenerics(CursorPageDto.class,
+            ResolvableType.forClassWithGenerics(Map.class, String.class, Object.class)).getType();
+    private static final LocalDate BIRTH_DATE = LocalDate.of(1990, 1, 1);
+
+    private final UserProtobufHttpMessageConverter converter = new UserProtobufHttpMessageConverter(
+            Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .factory(new ProtobufFactory())
+                    .build());
+
+    @Test
+    void canWrite_userPayloads_onlyForProtobuf() {
+        assertTrue(converter.canWrite(UserDto.class, UserDto.class,
+                UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+        assertTrue(converter.canWrite(USER_LIST_TYPE, List.class,
+                UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+        assertTrue(converter.canWrite(USER_PAGE_TYPE, CursorPageDto.class,
+                UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+        assertFalse(converter.canWrite(USER_MAP_TYPE, Map.class,
+                UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+        assertFalse(converter.canWrite(FIELD_PAGE_TYPE, CursorPageDto.class,
+                UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+        assertFalse(converter.canWrite(ErrorResponseDto.class, ErrorResponseDto.class,
+                UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+    }
+
+    @Test
+    void write_userList_readsBackEqualUsers() throws IOException {
+        List<UserDto> users = List.of(
+                new UserDto(1L, "john.doe@example.com", "John", "Doe", BIRTH_DATE, "123 Main St", "+1234567890", 0L),
+                new UserDto(2L, "jane.doe@example.com", "Jane", "Doe", BIRTH_DATE, null, null, 3L));
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        converter.write(users, USER_LIST_TYPE, UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF, outputMessage);
+
+        Object actual = converter.read(USER_LIST_TYPE, null,
+                new MockHttpInputMessage(outputMessage.getBodyAsBytes()));
+        assertEquals(users, actual);
+    }
+
+    @Test
+    void write_createUserRequest_readsBackEqualRequest() throws IOException {
+        CreateUserRequestDto request =
+                new CreateUserRequestDto("john.doe@example.com", "John", "Doe", BIRTH_DATE, null, "+1234567890");
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        converter.write(request, CreateUserRequestDto.class, UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF,
+                outputMessage);
+
+        Object actual = converter.read(CreateUserRequestDto.class, null,
+                new MockHttpInputMessage(outputMessage.getBodyAsBytes()));
+        assertEquals(request, actual);
+    }
+
+    @Test
+    void write_userPage_readsBackEqualPage() throws IOException {
+        CursorPageDto<UserDto> page = new CursorPageDto<>(List.of(
+                new UserDto(1L, "john.doe@example.com", "John", "Doe", BIRTH_DATE, null, null, 0L)), "next");
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        converter.write(page, USER_PAGE_TYPE, UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF, outputMessage);
+
+        Object actual = converter.read(USER_PAGE_TYPE, null, new MockHttpInputMessage(outputMessage.getBodyAsBytes()));
+        assertEquals(page, actual);
+    }
+
+    @Test
+    void write_batchGetRequest_readsBackEqualRequest() throws IOException {
+        BatchGetRequestDto request = new BatchGetRequestDto();
+        request.setIds(List.of(1L, 7L, 9L));
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        converter.write(request, BatchGetRequestDto.class, UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF,
+                outputMessage);
+
+        Object actual = converter.read(BatchGetRequestDto.class, null,
+                new MockHttpInputMessage(outputMessage.getBodyAsBytes()));
+        assertEquals(request, actual);
+    }
+
+    @Test
+    void write_batchGetResult_readsBackEqualResult() throws IOException {
+        BatchGetResultDto result = new BatchGetResultDto(List.of(
+                new UserDto(1L, "john.doe@example.com", "John", "Doe", BIRTH_DATE, null, null, 0L)), List.of(7L, 9L));
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        converter.write(result, BatchGetResultDto.class, UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF,
+                outputMessage);
+
+        Object actual = converter.read(BatchGetResultDto.class, null,
+                new MockHttpInputMessage(outputMessage.getBodyAsBytes()));
+        assertEquals(result, actual);
+    }
+
+    @Test
+    void write_patchRequest_readsBackOnlySetFields() throws IOException {
+        UpdateAnyFieldsUserRequestDto request = new UpdateAnyFieldsUserRequestDto();
+        request.setFirstName("Bob");
+        request.setVersion(3L);
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        converter.write(request, UpdateAnyFieldsUserRequestDto.class,
+                UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF, outputMessage);
+
+        Object actual = converter.read(UpdateAnyFieldsUserRequestDto.class, null,
+                new MockHttpInputMessage(outputMessage.getBodyAsBytes()));
+        assertEquals(request, actual);
+    }
+
+    @Test
+    void read_malformedMessage_throwsNotReadable() {
+        // The email field announces ten bytes, but the message ends after one
+        MockHttpInputMessage inputMessage = new MockHttpInputMessage(new byte[] {0x12, 0x0A, 0x41});
+
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(UserDto.class, null, inputMessage));
+    }
+}
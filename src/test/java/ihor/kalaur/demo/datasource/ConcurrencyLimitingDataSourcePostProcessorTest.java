@@ -0,0 +1,35 @@
+package ihor.kalaur.demo.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimitingDataSourcePostProcessorTest {
+    private static final int MAX_CONCURRENT = 2;
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 10L;
+
+    private final ConcurrencyLimitingDataSourcePostProcessor postProcessor =
+            new ConcurrencyLimitingDataSourcePostProcessor(MAX_CONCURRENT, ACQUIRE_TIMEOUT_MILLIS);
+    private final HikariDataSource pool = new HikariDataSource();
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void postProcessAfterInitialization_primaryPool_wrapsIt() {
+        assertInstanceOf(ConcurrencyLimitingDataSource.class,
+                postProcessor.postProcessAfterInitialization(pool, "dataSource"));
+        assertInstanceOf(ConcurrencyLimitingDataSource.class,
+                postProcessor.postProcessAfterInitialization(pool, "primaryDataSource"));
+    }
+
+    @Test
+    void postProcessAfterInitialization_otherPool_leavesItAlone() {
+        assertSame(pool, postProcessor.postProcessAfterInitialization(pool, "reportingDataSource"));
+    }
+}
@@ -0,0 +1,65 @@
+package ihor.kalaur.demo.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ConcurrencyLimitingDataSourceTest {
+    private static final int MAX_CONCURRENT = 2;
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 10L;
+
+    @Mock
+    private DataSource targetDataSource;
+
+    private ConcurrencyLimitingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new ConcurrencyLimitingDataSource(targetDataSource, MAX_CONCURRENT, ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    @Test
+    void getConnection_allPermitsTaken_failsFast() throws SQLException {
+        when(targetDataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        assertEquals(0, dataSource.getAvailablePermits());
+    }
+
+    @Test
+    void close_releasesPermitOnlyOnce() throws SQLException {
+        Connection target = mock(Connection.class);
+        when(targetDataSource.getConnection()).thenReturn(target);
+
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        verify(target, times(2)).close();
+        assertEquals(MAX_CONCURRENT, dataSource.getAvailablePermits());
+    }
+
+    @Test
+    void getConnection_targetFails_releasesPermit() throws SQLException {
+        when(targetDataSource.getConnection()).thenThrow(new SQLException("pool exhausted"));
+
+        assertThrows(SQLException.class, () -> dataSource.getConnection());
+        assertEquals(MAX_CONCURRENT, dataSource.getAvailablePermits());
+    }
+}
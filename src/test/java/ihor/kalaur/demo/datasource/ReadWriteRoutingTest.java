@@ -0,0 +1,154 @@
+package ihor.kalaur.demo.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.service.UserService;
+import java.time.LocalDate;
+import java.util.List;
+import javax.sql.DataSource;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+@SpringBootTest(properties = {
+        "app.datasource.routing.enabled=true",
+        "app.datasource.routing.max-lag-seconds=5",
+        "app.datasource.routing.lag-check-interval-ms=3600000",
+        "app.datasource.routing.replicas[0].url=" + ReadWriteRoutingTest.REPLICA_URL,
+        "app.datasource.routing.replicas[0].username=sa",
+        "app.datasource.routing.replicas[0].password="
+})
+class ReadWriteRoutingTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String CHANGE_LOG = "classpath:db/changelog/db.changelog-master.yaml";
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO users (email, first_name, last_name, birth_date, is_deleted) "
+                    + "VALUES (?, 'John', 'Doe', ?, FALSE)";
+    private static final String COUNT_BY_EMAIL_SQL = "SELECT COUNT(*) FROM users WHERE email = ?";
+    private static final String DELETE_BY_EMAIL_SQL = "DELETE FROM users WHERE email = ?";
+    private static final String REPLICA_ONLY_EMAIL = "replica-only@example.com";
+    private static final String WRITTEN_EMAIL = "written-to-primary@example.com";
+    private static final LocalDate BIRTH_DATE = LocalDate.of(1990, 1, 1);
+    private static final LocalDate FROM = LocalDate.of(1989, 1, 1);
+    private static final LocalDate TO = LocalDate.of(1991, 1, 1);
+    private static final long LAGGING_SECONDS = 60L;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaDataSource;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    private MutableReplicaLagProbe lagProbe;
+
+    private JdbcTemplate primaryJdbcTemplate;
+    private JdbcTemplate replicaJdbcTemplate;
+
+    @BeforeAll
+    static void createReplicaSchema() throws LiquibaseException {
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        liquibase.setChangeLog(CHANGE_LOG);
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    @BeforeEach
+    void setUp() {
+        primaryJdbcTemplate = new JdbcTemplate(primaryDataSource);
+        replicaJdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replicaJdbcTemplate.update(INSERT_USER_SQL, REPLICA_ONLY_EMAIL, BIRTH_DATE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        replicaJdbcTemplate.update(DELETE_BY_EMAIL_SQL, REPLICA_ONLY_EMAIL);
+        primaryJdbcTemplate.update(DELETE_BY_EMAIL_SQL, WRITTEN_EMAIL);
+    }
+
+    @Test
+    void readOnlySearch_replicaWithinMaxLag_readsFromReplica() {
+        givenReplicaLag(0L);
+
+        assertTrue(findEmails().contains(REPLICA_ONLY_EMAIL));
+    }
+
+    @Test
+    void readOnlySearch_replicaLagging_fallsBackToPrimary() {
+        givenReplicaLag(LAGGING_SECONDS);
+
+        assertTrue(replicaDataSource.getHealthyReplicas().isEmpty());
+        assertFalse(findEmails().contains(REPLICA_ONLY_EMAIL));
+    }
+
+    @Test
+    void readOnlySearch_replicaLagUnknown_fallsBackToPrimary() {
+        givenReplicaLag(null);
+
+        assertFalse(findEmails().contains(REPLICA_ONLY_EMAIL));
+    }
+
+    @Test
+    void save_healthyReplica_writesToPrimary() {
+        givenReplicaLag(0L);
+
+        userService.save(new CreateUserRequestDto(WRITTEN_EMAIL, "Jane", "Doe", BIRTH_DATE, null, null));
+
+        assertEquals(1, primaryJdbcTemplate.queryForObject(COUNT_BY_EMAIL_SQL, Integer.class, WRITTEN_EMAIL));
+        assertEquals(0, replicaJdbcTemplate.queryForObject(COUNT_BY_EMAIL_SQL, Integer.class, WRITTEN_EMAIL));
+    }
+
+    private void givenReplicaLag(Long lagSeconds) {
+        lagProbe.setLagSeconds(lagSeconds);
+        replicaDataSource.refreshReplicaHealth();
+    }
+
+    private List<String> findEmails() {
+        return userService.findByBirthDateRange(FROM, TO).stream()
+                .map(UserDto::getEmail)
+                .toList();
+    }
+
+    static class MutableReplicaLagProbe implements ReplicaLagProbe {
+        private volatile Long lagSeconds;
+
+        @Override
+        public Long getLagSeconds(DataSource replica) {
+            return lagSeconds;
+        }
+
+        void setLagSeconds(Long lagSeconds) {
+            this.lagSeconds = lagSeconds;
+        }
+    }
+
+    @TestConfiguration
+    static class ReplicaLagProbeConfig {
+        @Bean
+        @Primary
+        MutableReplicaLagProbe mutableReplicaLagProbe() {
+            return new MutableReplicaLagProbe();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ihor.kalaur.demo.dto.date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MonthDayRangeTest {
+    @Test
+    void upcoming_withinYear_returnsOneRange() {
+        assertEquals(List.of(new MonthDayRange(610, 616)),
+                MonthDayRange.upcoming(LocalDate.of(2023, 6, 10), 7));
+    }
+
+    @Test
+    void upcoming_acrossNewYear_splitsInWindowOrder() {
+        assertEquals(List.of(new MonthDayRange(1228, 1231), new MonthDayRange(101, 103)),
+                MonthDayRange.upcoming(LocalDate.of(2023, 12, 28), 7));
+    }
+
+    @Test
+    void upcoming_endingFebruary28OfCommonYear_includesFebruary29() {
+        assertEquals(List.of(new MonthDayRange(222, 229)),
+                MonthDayRange.upcoming(LocalDate.of(2023, 2, 22), 7));
+    }
+
+    @Test
+    void upcoming_endingFebruary28OfLeapYear_excludesFebruary29() {
+        assertEquals(List.of(new MonthDayRange(222, 228)),
+                MonthDayRange.upcoming(LocalDate.of(2024, 2, 22), 7));
+    }
+
+    @Test
+    void upcoming_startingMarch1OfCommonYear_excludesFebruary29() {
+        assertEquals(List.of(new MonthDayRange(301, 307)),
+                MonthDayRange.upcoming(LocalDate.of(2023, 3, 1), 7));
+    }
+
+    @Test
+    void upcoming_wholeYear_listsEveryDayOnce() {
+        assertEquals(List.of(new MonthDayRange(101, 1231)),
+                MonthDayRange.upcoming(LocalDate.of(2023, 1, 1), 366));
+        assertEquals(List.of(new MonthDayRange(615, 1231), new MonthDayRange(101, 614)),
+                MonthDayRange.upcoming(LocalDate.of(2023, 6, 15), 366));
+    }
+}
@@ -0,0 +1,83 @@
+package ihor.kalaur.demo.limiter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final int INITIAL_LIMIT = 20;
+    private static final int MIN_LIMIT = 4;
+    private static final int MAX_LIMIT = 200;
+    private static final int ROUNDS = 50;
+    private static final long FAST_RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW_RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong nanoClock = new AtomicLong();
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(INITIAL_LIMIT);
+        properties.setMinLimit(MIN_LIMIT);
+        properties.setMaxLimit(MAX_LIMIT);
+        limiter = new AdaptiveConcurrencyLimiter(properties, nanoClock::get);
+    }
+
+    @Test
+    void tryAcquire_limitReached_rejects() {
+        for (int i = 0; i < INITIAL_LIMIT; i++) {
+            assertTrue(limiter.tryAcquire().isPresent());
+        }
+
+        assertTrue(limiter.tryAcquire().isEmpty());
+        assertEquals(INITIAL_LIMIT, limiter.getInFlight());
+    }
+
+    @Test
+    void release_steadyLatencyUnderLoad_growsLimit() {
+        runFullRounds(FAST_RTT_NANOS);
+
+        assertTrue(limiter.getLimit() > INITIAL_LIMIT, "Limit did not grow: " + limiter.getLimit());
+    }
+
+    @Test
+    void release_latencyRises_shrinksLimit() {
+        runFullRounds(FAST_RTT_NANOS);
+        int limitBeforeSlowdown = limiter.getLimit();
+
+        runFullRounds(SLOW_RTT_NANOS);
+
+        assertTrue(limiter.getLimit() < limitBeforeSlowdown,
+                "Limit did not shrink: " + limitBeforeSlowdown + " -> " + limiter.getLimit());
+    }
+
+    @Test
+    void release_failures_backOffToMinimum() {
+        for (int i = 0; i < ROUNDS; i++) {
+            limiter.release(limiter.tryAcquire().orElseThrow(), false);
+        }
+
+        assertEquals(MIN_LIMIT, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    // Fills the limit and completes every request as if it had taken rttNanos
+    private void runFullRounds(long rttNanos) {
+        for (int round = 0; round < ROUNDS; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                permits.add(limiter.tryAcquire().orElseThrow());
+            }
+            nanoClock.addAndGet(rttNanos);
+            permits.forEach(permit -> limiter.release(permit, true));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ihor.kalaur.demo.limiter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ConcurrencyLimitFilterTest {
+    private static final int LIMIT = 4;
+    private static final long RETRY_AFTER_SECONDS = 2;
+    private static final String USERS_URL = "/users";
+    private static final String SEARCH_URL = "/users/search";
+    private static final String USER_URL = "/users/1";
+    private static final String BATCH_GET_URL = "/users/batch-get";
+    private static final String BULK_URL = "/users/bulk";
+    private static final String CHANGES_URL = "/users/changes";
+    private static final String GET = "GET";
+    private static final String POST = "POST";
+    private static final String DELETE = "DELETE";
+
+    private EndpointLimiters limiters;
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(LIMIT);
+        properties.setMinLimit(LIMIT);
+        properties.setShedThreshold(0.5);
+        properties.setRetryAfterSeconds(RETRY_AFTER_SECONDS);
+        limiters = new EndpointLimiters(properties);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConcurrencyLimitFilter(limiters, properties,
+                new ObjectMapper().registerModule(new JavaTimeModule()), meterRegistry);
+    }
+
+    @Test
+    void endpointClass_ofRequest_classifiesWritesReadsAndSearches() {
+        assertEquals(EndpointClass.WRITE, EndpointClass.of(POST, USERS_URL));
+        assertEquals(EndpointClass.READ, EndpointClass.of(GET, USER_URL));
+        assertEquals(EndpointClass.SEARCH, EndpointClass.of(GET, SEARCH_URL + "/page"));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of(DELETE, USER_URL));
+    }
+
+    @Test
+    void endpointClass_ofRequest_classifiesPostsByPath() {
+        assertEquals(EndpointClass.READ, EndpointClass.of(POST, BATCH_GET_URL));
+        assertEquals(EndpointClass.BULK, EndpointClass.of(POST, BULK_URL));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of(POST, USER_URL + "/restore"));
+    }
+
+    @Test
+    void doFilter_underLimit_passesThroughAndReleasesPermit() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest(GET, USER_URL), response, chain);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertEquals(0, limiters.get(EndpointClass.READ).getInFlight());
+    }
+
+    @Test
+    void doFilter_limitReached_rejectsWithRetryAfter() throws ServletException, IOException {
+        for (int i = 0; i < LIMIT; i++) {
+            limiters.get(EndpointClass.READ).tryAcquire();
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest(GET, USER_URL), response, chain);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+        assertEquals(String.valueOf(RETRY_AFTER_SECONDS), response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertNull(chain.getRequest());
+        assertEquals(1, meterRegistry.get(ConcurrencyLimitFilter.REJECTIONS_METRIC)
+                .tag("class", EndpointClass.READ.name())
+                .tag("reason", "limit")
+                .counter().count());
+    }
+
+    @Test
+    void doFilter_changeFeed_bypassesLimiter() throws ServletException, IOException {
+        for (int i = 0; i < LIMIT; i++) {
+            limiters.get(EndpointClass.READ).tryAcquire();
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest(GET, CHANGES_URL), response, chain);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertEquals(LIMIT, limiters.get(EndpointClass.READ).getInFlight());
+    }
+
+    @Test
+    void doFilter_writesBusy_shedsSearchButAdmitsWrites() throws ServletException, IOException {
+        for (int i = 0; i < LIMIT / 2; i++) {
+            limiters.get(EndpointClass.WRITE).tryAcquire();
+        }
+
+        MockHttpServletResponse searchResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(GET, SEARCH_URL), searchResponse, new MockFilterChain());
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(POST, USERS_URL), writeResponse, new MockFilterChain());
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), searchResponse.getStatus());
+        assertEquals(HttpStatus.OK.value(), writeResponse.getStatus());
+    }
+}
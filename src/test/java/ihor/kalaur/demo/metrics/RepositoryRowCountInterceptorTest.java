@@ -0,0 +1,92 @@
+package ihor.kalaur.demo.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+import ihor.kalaur.demo.model.User;
+import ihor.kalaur.demo.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class RepositoryRowCountInterceptorTest {
+    private static final String REPOSITORY_TAG = "UserRepository";
+
+    @Mock
+    private MethodInvocation invocation;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RepositoryRowCountInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new RepositoryRowCountInterceptor(() -> meterRegistry, UserRepository.class);
+    }
+
+    @Test
+    void invoke_listResult_recordsListSize() throws Throwable {
+        Method method = UserRepository.class.getMethod("findByBirthDateBetween", LocalDate.class, LocalDate.class);
+        givenInvocation(method, List.of(new User(), new User()));
+
+        interceptor.invoke(invocation);
+        interceptor.invoke(invocation);
+
+        DistributionSummary summary = findSummary("findByBirthDateBetween");
+        assertEquals(2, summary.count());
+        assertEquals(4, summary.totalAmount());
+    }
+
+    @Test
+    void invoke_modifyingMethod_recordsAffectedRows() throws Throwable {
+        givenInvocation(UserRepository.class.getMethod("softDeleteById", Long.class, LocalDateTime.class), 1);
+
+        interceptor.invoke(invocation);
+
+        assertEquals(1, findSummary("softDeleteById").totalAmount());
+    }
+
+    @Test
+    void invoke_emptyOptional_recordsZeroRows() throws Throwable {
+        givenInvocation(UserRepository.class.getMethod("findById", Object.class), Optional.empty());
+
+        interceptor.invoke(invocation);
+
+        DistributionSummary summary = findSummary("findById");
+        assertEquals(1, summary.count());
+        assertEquals(0, summary.totalAmount());
+    }
+
+    @Test
+    void invoke_existenceCheck_isNotRecorded() throws Throwable {
+        givenInvocation(UserRepository.class.getMethod("existsById", Object.class), true);
+
+        interceptor.invoke(invocation);
+
+        assertNull(meterRegistry.find(RepositoryRowCountInterceptor.METRIC_NAME).summary());
+    }
+
+    private void givenInvocation(Method method, Object result) throws Throwable {
+        when(invocation.getMethod()).thenReturn(method);
+        when(invocation.proceed()).thenReturn(result);
+    }
+
+    private DistributionSummary findSummary(String method) {
+        return meterRegistry.get(RepositoryRowCountInterceptor.METRIC_NAME)
+                .tag("repository", REPOSITORY_TAG)
+                .tag("method", method)
+                .summary();
+    }
+}
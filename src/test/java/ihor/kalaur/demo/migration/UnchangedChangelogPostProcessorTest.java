@@ -0,0 +1,85 @@
+package ihor.kalaur.demo.migration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import javax.sql.DataSource;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class UnchangedChangelogPostProcessorTest {
+    private static final String CHANGE_LOG = "classpath:/db/changelog/db.changelog-master.yaml";
+    private static final String DATABASE_URL_TEMPLATE =
+            "jdbc:h2:mem:%s;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String FIND_CHECKSUM_SQL = "SELECT checksum FROM changelog_checksum WHERE id = 1";
+    private static final String UPDATE_CHECKSUM_SQL = "UPDATE changelog_checksum SET checksum = 'outdated'";
+    private static final String BEAN_NAME = "liquibase";
+
+    private DataSource dataSource;
+    private UnchangedChangelogPostProcessor postProcessor;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(String.format(DATABASE_URL_TEMPLATE, UUID.randomUUID()), "sa", "");
+        postProcessor = new UnchangedChangelogPostProcessor(new PathMatchingResourcePatternResolver(), true);
+    }
+
+    @Test
+    void firstStart_runsUpdateAndRecordsChecksum() throws LiquibaseException {
+        InspectableSpringLiquibase liquibase = initialize(createLiquibase());
+
+        assertTrue(liquibase.shouldRun());
+        assertEquals(postProcessor.computeChecksum(),
+                new JdbcTemplate(dataSource).queryForObject(FIND_CHECKSUM_SQL, String.class));
+    }
+
+    @Test
+    void unchangedChangelog_skipsUpdate() throws LiquibaseException {
+        initialize(createLiquibase());
+
+        InspectableSpringLiquibase liquibase = initialize(createLiquibase());
+
+        assertFalse(liquibase.shouldRun());
+    }
+
+    @Test
+    void changedChangelog_runsUpdateAndRecordsNewChecksum() throws LiquibaseException {
+        initialize(createLiquibase());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update(UPDATE_CHECKSUM_SQL);
+
+        InspectableSpringLiquibase liquibase = initialize(createLiquibase());
+
+        assertTrue(liquibase.shouldRun());
+        assertEquals(postProcessor.computeChecksum(), jdbcTemplate.queryForObject(FIND_CHECKSUM_SQL, String.class));
+    }
+
+    private InspectableSpringLiquibase initialize(InspectableSpringLiquibase liquibase) throws LiquibaseException {
+        postProcessor.postProcessBeforeInitialization(liquibase, BEAN_NAME);
+        liquibase.afterPropertiesSet();
+        postProcessor.postProcessAfterInitialization(liquibase, BEAN_NAME);
+        return liquibase;
+    }
+
+    private InspectableSpringLiquibase createLiquibase() {
+        InspectableSpringLiquibase liquibase = new InspectableSpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog(CHANGE_LOG);
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        return liquibase;
+    }
+
+    private static class InspectableSpringLiquibase extends SpringLiquibase {
+        boolean shouldRun() {
+            return shouldRun;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ihor.kalaur.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.model.User;
+import ihor.kalaur.demo.model.UserChangeType;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import liquibase.exception.LiquibaseException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+class ReactiveUserRepositoryTest {
+    private static final String CHANGE_LOG = "classpath:/db/changelog/db.changelog-master.yaml";
+    private static final String DATABASE_OPTIONS = "MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String JDBC_URL_TEMPLATE = "jdbc:h2:mem:%s;" + DATABASE_OPTIONS;
+    private static final String R2DBC_URL_TEMPLATE = "r2dbc:h2:mem:///%s?options=" + DATABASE_OPTIONS;
+    private static final String COUNT_CHANGES_SQL = "SELECT COUNT(*) FROM user_changes WHERE change_type = ?";
+    private static final int USER_COUNT = 5;
+    private static final int FETCH_SIZE = 2;
+    private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1990, 1, 1);
+
+    private JdbcTemplate jdbcTemplate;
+    private ReactiveUserRepository repository;
+
+    @BeforeEach
+    void setUp() throws LiquibaseException {
+        String databaseName = UUID.randomUUID().toString();
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource(String.format(JDBC_URL_TEMPLATE, databaseName), "sa", "");
+        ShardedUserRepository.migrate(dataSource, CHANGE_LOG, new DefaultResourceLoader());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DatabaseClient databaseClient = DatabaseClient.create(
+                ConnectionFactoryBuilder.withUrl(String.format(R2DBC_URL_TEMPLATE, databaseName))
+                        .username("sa")
+                        .password("")
+                        .build());
+        repository = new ReactiveUserRepository(databaseClient, FETCH_SIZE);
+    }
+
+    @Test
+    void insert_assignsIdAndFindsUserByIdAndEmail() {
+        User user = repository.insert(createUser(0)).block();
+
+        assertNotNull(user);
+        assertNotNull(user.getId());
+        StepVerifier.create(repository.findDtoById(user.getId()))
+                .assertNext(found -> assertEquals(user.getEmail(), found.getEmail()))
+                .verifyComplete();
+        StepVerifier.create(repository.findDtoByEmail(user.getEmail()))
+                .assertNext(found -> assertEquals(user.getId(), found.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void insert_takenEmail_failsWithDuplicateKeyException() {
+        User existing = repository.insert(createUser(0)).block();
+        User duplicate = createUser(1);
+        duplicate.setEmail(existing.getEmail());
+
+        StepVerifier.create(repository.insert(duplicate))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+    }
+
+    @Test
+    void findByBirthDateBetween_skipsDeletedUsersAndFollowsDemand() {
+        List<User> users = insertUsers();
+        repository.softDeleteById(users.get(1).getId(), LocalDateTime.now()).block();
+        LocalDate to = FIRST_BIRTH_DATE.plusDays(USER_COUNT);
+
+        StepVerifier.create(repository.findByBirthDateBetween(FIRST_BIRTH_DATE, to), 1)
+                .assertNext(user -> assertEquals(users.get(0).getId(), user.getId()))
+                .thenRequest(USER_COUNT)
+                .expectNextMatches(user -> user.getId().equals(users.get(2).getId()))
+                .expectNextCount(USER_COUNT - 3)
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageByBirthDateBetween_continuesAfterCursor() {
+        List<User> users = insertUsers();
+        User cursor = users.get(1);
+
+        StepVerifier.create(repository.findPageByBirthDateBetween(FIRST_BIRTH_DATE,
+                        FIRST_BIRTH_DATE.plusDays(USER_COUNT), cursor.getBirthDate(), cursor.getId(), 2)
+                        .map(UserDto::getId))
+                .expectNext(users.get(2).getId(), users.get(3).getId())
+                .verifyComplete();
+    }
+
+    @Test
+    void softDeleteAllByIdIn_recordsDeletionsOfActiveUsersOnly() {
+        List<User> users = insertUsers();
+        Long alreadyDeleted = users.get(0).getId();
+        repository.softDeleteById(alreadyDeleted, LocalDateTime.now()).block();
+        List<Long> ids = List.of(alreadyDeleted, users.get(1).getId(), users.get(2).getId());
+        LocalDateTime deletedAt = LocalDateTime.now();
+
+        StepVerifier.create(repository.recordDeletions(ids, deletedAt)
+                        .then(repository.softDeleteAllByIdIn(ids, deletedAt)))
+                .expectNext(2L)
+                .verifyComplete();
+        assertEquals(2, jdbcTemplate.queryForObject(COUNT_CHANGES_SQL, Integer.class,
+                UserChangeType.DELETED.name()));
+        StepVerifier.create(repository.findDtoById(users.get(1).getId()))
+                .verifyComplete();
+    }
+
+    private List<User> insertUsers() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USER_COUNT; i++) {
+            users.add(repository.insert(createUser(i)).block());
+        }
+        return users;
+    }
+
+    private User createUser(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@example.com");
+        user.setFirstName("First" + index);
+        user.setLastName("Last" + index);
+        user.setBirthDate(FIRST_BIRTH_DATE.plusDays(index));
+        return user;
+    }
+}
@@ -0,0 +1,156 @@
+package ihor.kalaur.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.model.User;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+import liquibase.exception.LiquibaseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class ShardedUserRepositoryTest {
+    private static final String CHANGE_LOG = "classpath:/db/changelog/db.changelog-master.yaml";
+    private static final String DATABASE_URL_TEMPLATE =
+            "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String COUNT_USERS_SQL = "SELECT COUNT(*) FROM users";
+    private static final int SHARD_COUNT = 3;
+    private static final int USER_COUNT = 30;
+    private static final int PAGE_SIZE = 4;
+    private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1990, 1, 1);
+    private static final long QUERY_TIMEOUT_MS = 5000L;
+
+    private final List<DataSource> shardDataSources = new ArrayList<>();
+    private ShardedUserRepository repository;
+
+    @BeforeEach
+    void setUp() throws LiquibaseException {
+        DataSource directory = createDatabase();
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shardDataSources.add(createDatabase());
+        }
+        repository = new ShardedUserRepository(new NamedParameterJdbcTemplate(directory),
+                new SnowflakeIdGenerator(0), shardDataSources, QUERY_TIMEOUT_MS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    void insert_spreadsUsersOverShardsAndFindsThemByIdAndEmail() {
+        List<User> users = insertUsers(USER_COUNT);
+
+        for (User user : users) {
+            assertEquals(user.getEmail(), repository.findDtoById(user.getId()).orElseThrow().getEmail());
+            assertEquals(user.getId(), repository.findDtoByEmail(user.getEmail()).orElseThrow().getId());
+        }
+        int total = 0;
+        for (DataSource shard : shardDataSources) {
+            int count = new JdbcTemplate(shard).queryForObject(COUNT_USERS_SQL, Integer.class);
+            assertTrue(count > 0, "Every shard should hold some users");
+            total += count;
+        }
+        assertEquals(USER_COUNT, total);
+    }
+
+    @Test
+    void insert_takenEmail_throwsDuplicateKeyExceptionWithoutShardRow() {
+        User existing = insertUsers(1).get(0);
+
+        assertThrows(DuplicateKeyException.class, () -> repository.insert(createUser(existing.getEmail(), 0)));
+        int total = 0;
+        for (DataSource shard : shardDataSources) {
+            total += new JdbcTemplate(shard).queryForObject(COUNT_USERS_SQL, Integer.class);
+        }
+        assertEquals(1, total);
+    }
+
+    @Test
+    void findPageByBirthDateBetween_pagesThroughAllShardsInBirthDateAndIdOrder() {
+        List<User> users = insertUsers(USER_COUNT);
+        LocalDate to = FIRST_BIRTH_DATE.plusDays(USER_COUNT);
+        List<Long> expected = users.stream()
+                .sorted(Comparator.comparing(User::getBirthDate).thenComparing(User::getId))
+                .map(User::getId)
+                .toList();
+
+        List<Long> paged = new ArrayList<>();
+        LocalDate afterBirthDate = FIRST_BIRTH_DATE;
+        Long afterId = 0L;
+        List<UserDto> page;
+        do {
+            page = repository.findPageByBirthDateBetween(FIRST_BIRTH_DATE, to, afterBirthDate, afterId, PAGE_SIZE);
+            page.forEach(user -> paged.add(user.getId()));
+            if (!page.isEmpty()) {
+                afterBirthDate = page.get(page.size() - 1).getBirthDate();
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        assertEquals(expected, paged);
+        assertEquals(expected, repository.findByBirthDateBetween(FIRST_BIRTH_DATE, to).stream()
+                .map(UserDto::getId)
+                .toList());
+    }
+
+    @Test
+    void softDeleteAllByIdIn_deletesOnEveryShard() {
+        List<Long> ids = insertUsers(USER_COUNT).stream()
+                .map(User::getId)
+                .toList();
+
+        assertEquals(USER_COUNT, repository.softDeleteAllByIdIn(ids, LocalDateTime.now()));
+        assertTrue(repository.findDtoByIdIn(ids).isEmpty());
+        assertEquals(0, repository.softDeleteById(ids.get(0), LocalDateTime.now()));
+    }
+
+    @Test
+    void findDtoByIdIn_idsOnSeveralShards_returnsEveryUser() {
+        List<Long> ids = insertUsers(USER_COUNT).stream()
+                .map(User::getId)
+                .toList();
+
+        assertEquals(USER_COUNT, repository.findDtoByIdIn(ids).size());
+    }
+
+    // Birth dates repeat, so the id decides the order within a day
+    private List<User> insertUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(repository.insert(createUser("user" + i + "@example.com", i % (count / 3 + 1))));
+        }
+        return users;
+    }
+
+    private User createUser(String email, int birthDateOffset) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setBirthDate(FIRST_BIRTH_DATE.plusDays(birthDateOffset));
+        return user;
+    }
+
+    private DataSource createDatabase() throws LiquibaseException {
+        DataSource dataSource = new DriverManagerDataSource(
+                String.format(DATABASE_URL_TEMPLATE, UUID.randomUUID()), "sa", "");
+        ShardedUserRepository.migrate(dataSource, CHANGE_LOG, new DefaultResourceLoader());
+        return dataSource;
+    }
+}
@@ -0,0 +1,65 @@
+package ihor.kalaur.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class SnowflakeIdGeneratorTest {
+    private static final long NOW = SnowflakeIdGenerator.EPOCH_MILLIS + 1_000L;
+    private static final long WORKER_ID = 5L;
+    private static final int IDS_PER_MILLISECOND = 1 << SnowflakeIdGenerator.SEQUENCE_BITS;
+
+    @Test
+    void nextId_sameMillisecond_increasesSequenceAndKeepsWorkerId() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(WORKER_ID, () -> NOW);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertEquals(first + 1, second);
+        assertEquals(WORKER_ID, (first >> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_WORKER_ID);
+        assertEquals(NOW - SnowflakeIdGenerator.EPOCH_MILLIS,
+                first >> (SnowflakeIdGenerator.SEQUENCE_BITS + SnowflakeIdGenerator.WORKER_ID_BITS));
+    }
+
+    @Test
+    void nextId_exhaustedSequence_waitsForNextMillisecond() {
+        AtomicLong clockReads = new AtomicLong();
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(WORKER_ID,
+                () -> clockReads.incrementAndGet() <= IDS_PER_MILLISECOND + 1 ? NOW : NOW + 1);
+        Set<Long> ids = new HashSet<>();
+        long previous = -1;
+        for (int i = 0; i <= IDS_PER_MILLISECOND; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            ids.add(id);
+            previous = id;
+        }
+
+        assertEquals(IDS_PER_MILLISECOND + 1, ids.size());
+        assertEquals(NOW + 1 - SnowflakeIdGenerator.EPOCH_MILLIS,
+                previous >> (SnowflakeIdGenerator.SEQUENCE_BITS + SnowflakeIdGenerator.WORKER_ID_BITS));
+    }
+
+    @Test
+    void nextId_clockStepsBack_neverDecreases() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(WORKER_ID, clock::get);
+        long before = generator.nextId();
+
+        clock.set(NOW - 10_000L);
+
+        assertTrue(generator.nextId() > before);
+    }
+
+    @Test
+    void constructor_workerIdOutOfRange_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID + 1));
+    }
+}
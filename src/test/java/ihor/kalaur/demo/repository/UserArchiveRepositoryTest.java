@@ -0,0 +1,89 @@
+package ihor.kalaur.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ihor.kalaur.demo.model.User;
+import ihor.kalaur.demo.repository.UserArchiveRepository.ArchiveKey;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UserArchiveRepository.class)
+class UserArchiveRepositoryTest {
+    private static final LocalDate BIRTH_DATE = LocalDate.of(1990, 1, 1);
+    private static final LocalDateTime LONG_AGO = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+    @Autowired
+    private UserArchiveRepository userArchiveRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    void findExpiredChunk_onlyDeletedBeforeCutoff_inKeysetOrder() {
+        persistDeletedUser("recent@example.com", CUTOFF.plusDays(1));
+        persistUser("active@example.com");
+        Long first = persistDeletedUser("first@example.com", LONG_AGO);
+        Long second = persistDeletedUser("second@example.com", LONG_AGO);
+
+        List<ArchiveKey> firstChunk = userArchiveRepository.findExpiredChunk(CUTOFF, ArchiveKey.START, 1);
+        List<ArchiveKey> secondChunk = userArchiveRepository.findExpiredChunk(CUTOFF, firstChunk.get(0), 1);
+
+        assertEquals(first, firstChunk.get(0).id());
+        assertEquals(second, secondChunk.get(0).id());
+        assertTrue(userArchiveRepository.findExpiredChunk(CUTOFF, secondChunk.get(0), 1).isEmpty());
+    }
+
+    @Test
+    void moveToArchive_thenRestore_roundTripsUser() {
+        Long id = persistDeletedUser("archived@example.com", LONG_AGO);
+
+        assertEquals(1, userArchiveRepository.moveToArchive(List.of(id), CUTOFF));
+        assertTrue(userArchiveRepository.findOldestDeletedAt().isEmpty());
+        assertEquals(0, userRepository.restoreById(id));
+
+        assertTrue(userArchiveRepository.restoreFromArchive(id));
+        assertTrue(userRepository.findDtoById(id).isPresent());
+        assertFalse(userArchiveRepository.restoreFromArchive(id));
+    }
+
+    @Test
+    void moveToArchive_activeUser_isLeftInPlace() {
+        Long id = persistUser("active@example.com");
+
+        assertEquals(0, userArchiveRepository.moveToArchive(List.of(id), CUTOFF));
+        assertTrue(userRepository.findDtoById(id).isPresent());
+    }
+
+    private Long persistDeletedUser(String email, LocalDateTime deletedAt) {
+        Long id = persistUser(email);
+        userRepository.softDeleteById(id, deletedAt);
+        return id;
+    }
+
+    private Long persistUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setBirthDate(BIRTH_DATE);
+        Long id = testEntityManager.persistAndGetId(user, Long.class);
+        testEntityManager.flush();
+        testEntityManager.clear();
+        return id;
+    }
+}
@@ -0,0 +1,128 @@
+package ihor.kalaur.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ihor.kalaur.demo.dto.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+@ExtendWith(MockitoExtension.class)
+class UserByIdBatchLoaderTest {
+    private static final int CONCURRENT_CALLERS = 32;
+    private static final long WINDOW_MS = 200;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final Long ID_ONE = 1L;
+    private static final Long ID_MISSING = 99L;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void findById_concurrentLookups_coalescedIntoFewerQueries() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        when(userRepository.findDtoByIdIn(anyCollection())).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream()
+                    .map(this::userDto)
+                    .toList();
+        });
+        UserByIdBatchLoader loader = createLoader(true, MAX_BATCH_SIZE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<UserDto>>> results = new ArrayList<>();
+        try {
+            for (long id = 1; id <= CONCURRENT_CALLERS; id++) {
+                long userId = id;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return loader.findById(userId);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i + 1L, results.get(i).get().orElseThrow().getId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(queries.get() < CONCURRENT_CALLERS,
+                "Expected fewer than " + CONCURRENT_CALLERS + " queries but was " + queries.get());
+        verify(userRepository, never()).findDtoById(ID_ONE);
+    }
+
+    @Test
+    void findById_fullBatch_loadsWithoutWaitingForWindow() {
+        when(userRepository.findDtoByIdIn(List.of(ID_ONE))).thenReturn(List.of(userDto(ID_ONE)));
+        UserByIdBatchLoader loader = createLoader(true, 1);
+
+        assertEquals(ID_ONE, loader.findById(ID_ONE).orElseThrow().getId());
+        assertEquals(1, meterRegistry.get("user.lookup.batch.size").summary().count());
+    }
+
+    @Test
+    void findById_unknownId_returnsEmpty() {
+        when(userRepository.findDtoByIdIn(List.of(ID_MISSING))).thenReturn(List.of());
+        UserByIdBatchLoader loader = createLoader(true, 1);
+
+        assertTrue(loader.findById(ID_MISSING).isEmpty());
+    }
+
+    @Test
+    void findById_queryFails_rethrowsOriginalException() {
+        DataAccessResourceFailureException failure = new DataAccessResourceFailureException("Database is down");
+        when(userRepository.findDtoByIdIn(List.of(ID_ONE))).thenThrow(failure);
+        UserByIdBatchLoader loader = createLoader(true, 1);
+
+        assertSame(failure, assertThrows(DataAccessResourceFailureException.class, () -> loader.findById(ID_ONE)));
+    }
+
+    @Test
+    void findById_disabled_queriesSingleUser() {
+        when(userRepository.findDtoById(ID_ONE)).thenReturn(Optional.of(userDto(ID_ONE)));
+        UserByIdBatchLoader loader = createLoader(false, MAX_BATCH_SIZE);
+
+        assertEquals(ID_ONE, loader.findById(ID_ONE).orElseThrow().getId());
+        verify(userRepository, never()).findDtoByIdIn(anyCollection());
+    }
+
+    private UserByIdBatchLoader createLoader(boolean enabled, int maxBatchSize) {
+        return new UserByIdBatchLoader(userRepository, meterRegistry, enabled, WINDOW_MS, maxBatchSize);
+    }
+
+    private UserDto userDto(Long id) {
+        UserDto userDto = new UserDto();
+        userDto.setId(id);
+        return userDto;
+    }
+}
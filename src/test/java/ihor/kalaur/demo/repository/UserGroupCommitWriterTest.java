@@ -0,0 +1,74 @@
+package ihor.kalaur.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+import ihor.kalaur.demo.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class UserGroupCommitWriterTest {
+    private static final int CONCURRENT_CALLERS = 16;
+    private static final long WINDOW_MS = 200;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final String DUPLICATE_EMAIL = "taken@example.com";
+    private static final String DUPLICATE_EMAIL_ERROR = "email: must be unique, the provided email is already in use";
+
+    @Mock
+    private UserBatchRepository userBatchRepository;
+
+    @Test
+    void insert_concurrentCreates_sharedBatchWithResultPerCaller() throws Exception {
+        AtomicInteger batches = new AtomicInteger();
+        when(userBatchRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            batches.incrementAndGet();
+            List<User> users = invocation.getArgument(0);
+            return users.stream()
+                    .map(user -> DUPLICATE_EMAIL.equals(user.getEmail())
+                            ? BatchInsertResult.rejectedDuplicate(DUPLICATE_EMAIL_ERROR)
+                            : BatchInsertResult.inserted(Long.valueOf(user.getFirstName())))
+                    .toList();
+        });
+        UserGroupCommitWriter writer = new UserGroupCommitWriter(
+                userBatchRepository, new SimpleMeterRegistry(), true, WINDOW_MS, MAX_BATCH_SIZE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BatchInsertResult>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < CONCURRENT_CALLERS; i++) {
+                User user = new User();
+                user.setFirstName(String.valueOf(i));
+                user.setEmail(i == 0 ? DUPLICATE_EMAIL : "user" + i + "@example.com");
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return writer.insert(user);
+                }));
+            }
+            start.countDown();
+
+            assertTrue(results.get(0).get().duplicate());
+            for (int i = 1; i < CONCURRENT_CALLERS; i++) {
+                assertEquals(Long.valueOf(i), results.get(i).get().id());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(batches.get() < CONCURRENT_CALLERS,
+                "Expected fewer than " + CONCURRENT_CALLERS + " batches but was " + batches.get());
+    }
+}
@@ -0,0 +1,228 @@
+package ihor.kalaur.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.UserField;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ihor.kalaur.demo.repository.SqlCapturingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryQueryPlanTest {
+    private static final String EXPLAIN = "EXPLAIN ";
+    private static final String SELECT = "select";
+    private static final String FULL_SCAN_MARKER = "tablescan";
+    private static final String ADDRESS_COLUMN = "address";
+    private static final Long ID_ONE = 1L;
+    private static final String EMAIL = "john.doe@example.com";
+    private static final LocalDate FROM = LocalDate.of(1990, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2000, 12, 31);
+    private static final LocalDateTime DELETED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserChangeRepository userChangeRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        SqlCapturingStatementInspector.clear();
+    }
+
+    @Test
+    void findByBirthDateBetween_usesIndex() throws SQLException {
+        userRepository.findByBirthDateBetween(FROM, TO);
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findPageByBirthDateBetween_usesIndex() throws SQLException {
+        userRepository.findPageByBirthDateBetween(FROM, TO, FROM, ID_ONE, PageRequest.of(0, 10));
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findPageByBirthMonthDayBetween_usesIndex() throws SQLException {
+        userRepository.findPageByBirthMonthDayBetween(1228, 1231, 1228, 0L, PageRequest.of(0, 10));
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void streamByBirthDateBetween_usesIndex() throws SQLException {
+        try (Stream<UserDto> users = userRepository.streamByBirthDateBetween(FROM, TO)) {
+            users.count();
+        }
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findById_usesPrimaryKey() throws SQLException {
+        userRepository.findById(ID_ONE);
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findDtoById_usesPrimaryKey() throws SQLException {
+        userRepository.findDtoById(ID_ONE);
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findDtoByIdIn_usesPrimaryKey() throws SQLException {
+        userRepository.findDtoByIdIn(List.of(ID_ONE, ID_ONE + 1));
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void existsById_usesPrimaryKey() throws SQLException {
+        userRepository.existsById(ID_ONE);
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findDtoByEmail_usesUniqueEmailIndex() throws SQLException {
+        userRepository.findDtoByEmail(EMAIL);
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findFieldsByBirthDateBetween_selectsOnlyRequestedColumns() throws SQLException {
+        userRepository.findFieldsByBirthDateBetween(EnumSet.of(UserField.ID, UserField.EMAIL), FROM, TO);
+
+        assertNoFullScan();
+        assertNotSelected(ADDRESS_COLUMN);
+    }
+
+    @Test
+    void findFieldPageByBirthDateBetween_selectsOnlyRequestedAndCursorColumns() throws SQLException {
+        userRepository.findFieldPageByBirthDateBetween(EnumSet.of(UserField.EMAIL), FROM, TO, FROM, ID_ONE, 10);
+
+        assertNoFullScan();
+        assertNotSelected(ADDRESS_COLUMN);
+    }
+
+    @Test
+    void findIdByEmailIncludingDeleted_usesUniqueEmailIndex() throws SQLException {
+        userRepository.findIdByEmailIncludingDeleted(EMAIL);
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findExistingEmails_usesUniqueEmailIndex() throws SQLException {
+        userRepository.findExistingEmails(List.of(EMAIL));
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void countByBirthDateBetween_usesBirthDateIndex() throws SQLException {
+        userRepository.countByBirthDateBetween(FROM, TO);
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findAfter_usesPrimaryKey() throws SQLException {
+        userChangeRepository.findAfter(ID_ONE, PageRequest.of(0, 10));
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findBirthDateById_usesPrimaryKey() throws SQLException {
+        userRepository.findBirthDateById(ID_ONE);
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findBirthDatesDeletedAt_usesPrimaryKey() throws SQLException {
+        userRepository.findBirthDatesDeletedAt(List.of(ID_ONE, ID_ONE + 1), List.of(DELETED_AT));
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void countGroupedByBirthDate_readsBirthDateIndexInsteadOfTable() throws SQLException {
+        userRepository.countGroupedByBirthDate();
+
+        assertNoFullScan();
+    }
+
+    @Test
+    void findExpiredChunk_usesDeletedAtIndex() throws SQLException {
+        assertNoFullScan(NamedParameterUtils.substituteNamedParameters(
+                NamedParameterUtils.parseSqlStatement(UserArchiveRepository.FIND_EXPIRED_CHUNK_SQL),
+                new MapSqlParameterSource()));
+    }
+
+    private void assertNoFullScan() throws SQLException {
+        List<String> selects = SqlCapturingStatementInspector.getStatements().stream()
+                .filter(sql -> sql.trim().toLowerCase(Locale.ROOT).startsWith(SELECT))
+                .toList();
+        assertFalse(selects.isEmpty(), "Expected the repository call to issue a query");
+        for (String sql : selects) {
+            assertNoFullScan(sql);
+        }
+    }
+
+    private void assertNoFullScan(String sql) throws SQLException {
+        String plan = explain(sql);
+        assertFalse(plan.toLowerCase(Locale.ROOT).contains(FULL_SCAN_MARKER), "Full table scan in plan: " + plan);
+    }
+
+    private void assertNotSelected(String column) {
+        SqlCapturingStatementInspector.getStatements().forEach(sql ->
+                assertFalse(sql.toLowerCase(Locale.ROOT).contains(column), "Unexpected column in: " + sql));
+    }
+
+    private String explain(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(EXPLAIN + sql)) {
+            int parameterCount = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameterCount; i++) {
+                statement.setObject(i, null);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1));
+                }
+                return plan.toString();
+            }
+        }
+    }
+}
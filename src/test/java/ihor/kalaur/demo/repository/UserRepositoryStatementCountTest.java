@@ -0,0 +1,287 @@
+package ihor.kalaur.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ihor.kalaur.demo.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import javax.sql.DataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryStatementCountTest {
+    private static final String FIRST_NAME = "John";
+    private static final String LAST_NAME = "Doe";
+    private static final String UPDATED_FIRST_NAME = "Bob";
+    private static final LocalDate BIRTH_DATE = LocalDate.of(1990, 1, 1);
+    private static final LocalDateTime DELETED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+    private static final String QUERY_STATISTICS = "query_statistics";
+    private static final String QUERY_STATISTICS_ON = "SET QUERY_STATISTICS TRUE";
+    private static final String QUERY_STATISTICS_OFF = "SET QUERY_STATISTICS FALSE";
+    private static final String SELECT_QUERY_STATISTICS =
+            "SELECT SQL_STATEMENT, EXECUTION_COUNT FROM INFORMATION_SCHEMA.QUERY_STATISTICS";
+    private static final String USERS_TABLE_PATTERN = "(?s).*\\busers\\b.*";
+    private static final String SELECT = "select";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void softDeleteById_issuesOneStatementInsteadOfExistsLoadAndUpdate() {
+        Long existsAndDeleteId = persistUser("exists-and-delete@example.com");
+        Long softDeleteId = persistUser("soft-delete@example.com");
+
+        long existsAndDeleteStatements = countStatements(() -> {
+            userRepository.existsById(existsAndDeleteId);
+            userRepository.deleteById(existsAndDeleteId);
+        });
+        long softDeleteStatements = countStatements(() -> userRepository.softDeleteById(softDeleteId, DELETED_AT));
+
+        assertEquals(3, existsAndDeleteStatements);
+        assertEquals(1, softDeleteStatements);
+        assertTrue(userRepository.findById(softDeleteId).isEmpty());
+    }
+
+    @Test
+    void softDeleteById_alreadyDeletedUser_affectsNoRows() {
+        Long id = persistUser("already-deleted@example.com");
+        userRepository.softDeleteById(id, DELETED_AT);
+
+        assertEquals(0, userRepository.softDeleteById(id, DELETED_AT));
+    }
+
+    @Test
+    void findBirthDatesDeletedAt_skipsUsersDeletedAtAnotherTimeOrActive() {
+        Long deletedId = persistUser("deleted-now@example.com");
+        Long deletedEarlierId = persistUser("deleted-earlier@example.com");
+        Long activeId = persistUser("still-active@example.com");
+        userRepository.softDeleteById(deletedEarlierId, DELETED_AT.minusDays(1));
+        userRepository.softDeleteById(deletedId, DELETED_AT);
+
+        List<LocalDate> actual = userRepository.findBirthDatesDeletedAt(
+                List.of(deletedId, deletedEarlierId, activeId), List.of(DELETED_AT));
+
+        assertEquals(List.of(BIRTH_DATE), actual);
+    }
+
+    @Test
+    void restoreById_deletedUser_becomesVisibleAgain() {
+        Long id = persistUser("restored@example.com");
+        userRepository.softDeleteById(id, DELETED_AT);
+
+        assertEquals(1, userRepository.restoreById(id));
+        testEntityManager.clear();
+
+        User restored = userRepository.findById(id).orElseThrow();
+        assertNull(restored.getDeletedAt());
+        assertEquals(0, userRepository.restoreById(id));
+    }
+
+    @Test
+    void softDeleteAllByIdIn_deletesManyUsersInOneStatement() {
+        List<Long> ids = List.of(
+                persistUser("first@example.com"),
+                persistUser("second@example.com"),
+                persistUser("third@example.com")
+        );
+
+        long statements = countStatements(() ->
+                assertEquals(ids.size(), userRepository.softDeleteAllByIdIn(ids, DELETED_AT)));
+
+        assertEquals(1, statements);
+    }
+
+    @Test
+    void updateNonNullFields_issuesOneUpdateAndBumpsVersion() {
+        Long id = persistUser("patch@example.com");
+        User patch = new User();
+        patch.setFirstName(UPDATED_FIRST_NAME);
+
+        long statements = countStatements(() -> assertEquals(1, userRepository.updateNonNullFields(id, patch, 0L)));
+
+        User actual = userRepository.findById(id).orElseThrow();
+        assertEquals(1, statements);
+        assertEquals(UPDATED_FIRST_NAME, actual.getFirstName());
+        assertEquals(LAST_NAME, actual.getLastName());
+        assertEquals(1L, actual.getVersion());
+    }
+
+    @Test
+    void updateNonNullFields_staleVersion_affectsNoRows() {
+        Long id = persistUser("stale@example.com");
+        User patch = new User();
+        patch.setFirstName(UPDATED_FIRST_NAME);
+
+        assertEquals(0, userRepository.updateNonNullFields(id, patch, 5L));
+    }
+
+    @Test
+    void upsert_newId_insertsInOneStatement() {
+        Long id = persistUser("existing@example.com") + 1;
+        User user = newUser("upsert-insert@example.com");
+        user.setId(id);
+
+        List<String> statements = executedStatements(() -> assertEquals(1, userRepository.upsert(user)));
+
+        User actual = userRepository.findById(id).orElseThrow();
+        assertEquals(1, countUsersStatements(statements));
+        assertEquals("upsert-insert@example.com", actual.getEmail());
+        assertEquals(0L, actual.getVersion());
+        assertEquals(0L, user.getVersion());
+    }
+
+    @Test
+    void upsert_existingId_replacesInOneStatementInsteadOfLoadAndMerge() {
+        Long mergeId = persistUser("merge@example.com");
+        Long upsertId = persistUser("upsert-update@example.com");
+        User replacement = newUser("upsert-update@example.com");
+        replacement.setId(upsertId);
+        replacement.setFirstName(UPDATED_FIRST_NAME);
+
+        long mergeStatements = countStatements(() -> {
+            User loaded = userRepository.findById(mergeId).orElseThrow();
+            loaded.setFirstName(UPDATED_FIRST_NAME);
+            userRepository.save(loaded);
+        });
+        List<String> upsertStatements = executedStatements(
+                () -> assertNotEquals(0, userRepository.upsert(replacement)));
+
+        User actual = userRepository.findById(upsertId).orElseThrow();
+        assertEquals(2, mergeStatements);
+        assertEquals(1, countUsersStatements(upsertStatements));
+        assertEquals(UPDATED_FIRST_NAME, actual.getFirstName());
+        assertEquals(1L, actual.getVersion());
+    }
+
+    // The bumped version comes back with the write, the row is never read
+    @Test
+    void upsert_existingId_setsVersionWrittenWithoutReadingRow() {
+        Long id = persistUser("put@example.com");
+        User replacement = newUser("put@example.com");
+        replacement.setId(id);
+        userRepository.upsert(replacement);
+
+        List<String> statements = executedStatements(() -> userRepository.upsert(replacement));
+
+        assertEquals(2L, replacement.getVersion());
+        assertEquals(2L, userRepository.findById(id).orElseThrow().getVersion());
+        assertEquals(1, countUsersStatements(statements));
+        assertTrue(statements.stream().noneMatch(sql -> sql.toLowerCase(Locale.ROOT).startsWith(SELECT)
+                && touchesUsers(sql)), () -> "Row read during upsert: " + statements);
+    }
+
+    @Test
+    void upsert_softDeletedUser_revivesAndBumpsVersion() {
+        Long id = persistUser("revived@example.com");
+        userRepository.softDeleteById(id, DELETED_AT);
+        User replacement = newUser("revived@example.com");
+        replacement.setId(id);
+
+        assertEquals(2, userRepository.upsert(replacement));
+        testEntityManager.clear();
+
+        assertEquals(2L, replacement.getVersion());
+        User actual = userRepository.findById(id).orElseThrow();
+        assertNull(actual.getDeletedAt());
+        assertEquals(2L, actual.getVersion());
+    }
+
+    @Test
+    void upsert_emailOwnedByAnotherUser_leavesThatUserUntouched() {
+        Long ownerId = persistUser("owner@example.com");
+        User intruder = newUser("owner@example.com");
+        intruder.setId(ownerId + 1);
+        intruder.setFirstName(UPDATED_FIRST_NAME);
+
+        userRepository.upsert(intruder);
+        testEntityManager.clear();
+
+        assertEquals(FIRST_NAME, userRepository.findById(ownerId).orElseThrow().getFirstName());
+        assertTrue(userRepository.findById(ownerId + 1).isEmpty());
+    }
+
+    private Long persistUser(String email) {
+        Long id = testEntityManager.persistAndGetId(newUser(email), Long.class);
+        testEntityManager.flush();
+        testEntityManager.clear();
+        return id;
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName(FIRST_NAME);
+        user.setLastName(LAST_NAME);
+        user.setBirthDate(BIRTH_DATE);
+        return user;
+    }
+
+    // Counted by the database, because the upsert runs on the JDBC connection and bypasses Hibernate statistics
+    private List<String> executedStatements(Runnable action) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(QUERY_STATISTICS_OFF);
+        jdbcTemplate.execute(QUERY_STATISTICS_ON);
+        action.run();
+        testEntityManager.flush();
+        List<String> statements = new ArrayList<>();
+        jdbcTemplate.query(SELECT_QUERY_STATISTICS, (RowCallbackHandler) resultSet -> {
+            String sql = resultSet.getString(1);
+            if (!sql.toLowerCase(Locale.ROOT).contains(QUERY_STATISTICS)) {
+                statements.addAll(Collections.nCopies(resultSet.getInt(2), sql));
+            }
+        });
+        jdbcTemplate.execute(QUERY_STATISTICS_OFF);
+        testEntityManager.clear();
+        return statements;
+    }
+
+    private long countUsersStatements(List<String> statements) {
+        return statements.stream().filter(this::touchesUsers).count();
+    }
+
+    private boolean touchesUsers(String sql) {
+        return sql.toLowerCase(Locale.ROOT).matches(USERS_TABLE_PATTERN);
+    }
+
+    private long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        testEntityManager.flush();
+        testEntityManager.clear();
+        return statistics.getPrepareStatementCount();
+    }
+}
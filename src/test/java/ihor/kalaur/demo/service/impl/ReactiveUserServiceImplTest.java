@@ -0,0 +1,217 @@
+package ihor.kalaur.demo.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ihor.kalaur.demo.cache.UserCache;
+import ihor.kalaur.demo.dto.CreateUserRequestDto;
+import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import ihor.kalaur.demo.exceptions.DuplicateEmailException;
+import ihor.kalaur.demo.exceptions.EntityNotFoundException;
+import ihor.kalaur.demo.exceptions.InvalidRequestException;
+import ihor.kalaur.demo.mapper.UserMapper;
+import ihor.kalaur.demo.model.User;
+import ihor.kalaur.demo.model.UserChangeType;
+import ihor.kalaur.demo.repository.ReactiveUserRepository;
+import ihor.kalaur.demo.service.UserServiceProperties;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveUserServiceImplTest {
+    private static final Long ID_ONE = 1L;
+    private static final Long ID_TWO = 2L;
+    private static final Long ID_MISSING = 99L;
+    private static final String EMAIL_VALID = "john.doe@example.com";
+    private static final LocalDate BIRTH_DATE_VALID = LocalDate.of(1990, 1, 1);
+    private static final LocalDate SEARCH_FROM = LocalDate.of(1980, 1, 1);
+    private static final LocalDate SEARCH_TO = LocalDate.of(2000, 1, 1);
+    private static final String INVALID_CURSOR = "not-a-cursor";
+    private static final int PAGE_SIZE = 1;
+    private static final int BATCH_DELETE_MAX_IDS = 10;
+    private static final int BATCH_GET_MAX_IDS = 10;
+
+    @Mock
+    private ReactiveUserRepository reactiveUserRepository;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private TransactionalOperator reactiveTransactionalOperator;
+
+    @Spy
+    private UserServiceProperties userServiceProperties = new UserServiceProperties();
+
+    @InjectMocks
+    private ReactiveUserServiceImpl reactiveUserService;
+
+    private User user;
+    private UserDto userDto;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(ID_ONE);
+        user.setEmail(EMAIL_VALID);
+        user.setBirthDate(BIRTH_DATE_VALID);
+        userDto = new UserDto(ID_ONE, EMAIL_VALID, "John", "Doe", BIRTH_DATE_VALID, null, null, 0L);
+
+        userServiceProperties.getBatchDelete().setMaxIds(BATCH_DELETE_MAX_IDS);
+        userServiceProperties.getBatchGet().setMaxIds(BATCH_GET_MAX_IDS);
+
+        lenient().when(reactiveTransactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(userMapper.toEntity(any(CreateUserRequestDto.class))).thenReturn(user);
+        lenient().when(userMapper.toDto(any(User.class))).thenReturn(userDto);
+    }
+
+    @Test
+    void save_validData_insertsRecordsChangeAndCaches() {
+        when(reactiveUserRepository.insert(user)).thenReturn(Mono.just(user));
+        when(reactiveUserRepository.recordChange(ID_ONE, UserChangeType.CREATED)).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(reactiveUserService.save(new CreateUserRequestDto()))
+                .expectNext(userDto)
+                .verifyComplete();
+        verify(userCache).put(userDto);
+    }
+
+    @Test
+    void save_takenEmail_failsWithDuplicateEmailException() {
+        when(reactiveUserRepository.insert(user)).thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+
+        StepVerifier.create(reactiveUserService.save(new CreateUserRequestDto()))
+                .expectError(DuplicateEmailException.class)
+                .verify();
+        verify(userCache, never()).put(any());
+    }
+
+    @Test
+    void delete_missingUser_failsWithoutRecordingChange() {
+        when(reactiveUserRepository.softDeleteById(eq(ID_MISSING), any())).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(reactiveUserService.delete(ID_MISSING))
+                .expectError(EntityNotFoundException.class)
+                .verify();
+        verify(reactiveUserRepository, never()).recordChange(any(), any());
+        verify(userCache, never()).markDeleted(any());
+    }
+
+    @Test
+    void delete_existingUser_recordsChangeAndEvicts() {
+        when(reactiveUserRepository.softDeleteById(eq(ID_ONE), any())).thenReturn(Mono.just(1L));
+        when(reactiveUserRepository.recordChange(ID_ONE, UserChangeType.DELETED)).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(reactiveUserService.delete(ID_ONE))
+                .verifyComplete();
+        verify(userCache).markDeleted(ID_ONE);
+    }
+
+    @Test
+    void deleteAll_tooManyIds_failsWithoutQuery() {
+        List<Long> ids = LongStream.rangeClosed(1, BATCH_DELETE_MAX_IDS + 1).boxed().toList();
+
+        StepVerifier.create(reactiveUserService.deleteAll(ids))
+                .expectError(InvalidRequestException.class)
+                .verify();
+        verify(reactiveUserRepository, never()).softDeleteAllByIdIn(anyCollection(), any());
+    }
+
+    @Test
+    void findById_cachedUser_skipsRepository() {
+        when(userCache.getById(ID_ONE)).thenReturn(Optional.of(userDto));
+
+        StepVerifier.create(reactiveUserService.findById(ID_ONE))
+                .expectNext(userDto)
+                .verifyComplete();
+        verify(reactiveUserRepository, never()).findDtoById(any());
+    }
+
+    @Test
+    void findById_missingUser_failsWithEntityNotFoundException() {
+        when(userCache.getById(ID_MISSING)).thenReturn(Optional.empty());
+        when(reactiveUserRepository.findDtoById(ID_MISSING)).thenReturn(Mono.empty());
+
+        StepVerifier.create(reactiveUserService.findById(ID_MISSING))
+                .expectError(EntityNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void findAllById_mixOfCachedAndLoaded_keepsRequestOrder() {
+        UserDto second = new UserDto(ID_TWO, "jane.doe@example.com", "Jane", "Doe", BIRTH_DATE_VALID, null, null, 0L);
+        when(userCache.getById(ID_TWO)).thenReturn(Optional.of(second));
+        when(userCache.getById(ID_ONE)).thenReturn(Optional.empty());
+        when(userCache.getById(ID_MISSING)).thenReturn(Optional.empty());
+        when(reactiveUserRepository.findDtoByIdIn(List.of(ID_ONE, ID_MISSING))).thenReturn(Flux.just(userDto));
+
+        StepVerifier.create(reactiveUserService.findAllById(List.of(ID_TWO, ID_ONE, ID_MISSING)))
+                .assertNext(result -> {
+                    assertEquals(List.of(second, userDto), result.getUsers());
+                    assertEquals(List.of(ID_MISSING), result.getNotFound());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageByBirthDateRange_moreRowsThanPage_returnsNextCursor() {
+        UserDto second = new UserDto(ID_TWO, "jane.doe@example.com", "Jane", "Doe", BIRTH_DATE_VALID, null, null, 0L);
+        when(reactiveUserRepository.findPageByBirthDateBetween(SEARCH_FROM, SEARCH_TO, SEARCH_FROM, 0L, PAGE_SIZE + 1))
+                .thenReturn(Flux.just(userDto, second));
+
+        StepVerifier.create(reactiveUserService.findPageByBirthDateRange(SEARCH_FROM, SEARCH_TO, null, PAGE_SIZE))
+                .assertNext(page -> {
+                    assertEquals(List.of(userDto), page.getContent());
+                    assertNotNull(page.getNextCursor());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageByBirthDateRange_lastPage_hasNoNextCursor() {
+        when(reactiveUserRepository.findPageByBirthDateBetween(SEARCH_FROM, SEARCH_TO, SEARCH_FROM, 0L, PAGE_SIZE + 1))
+                .thenReturn(Flux.just(userDto));
+
+        CursorPageDto<UserDto> page =
+                reactiveUserService.findPageByBirthDateRange(SEARCH_FROM, SEARCH_TO, null, PAGE_SIZE).block();
+
+        assertNotNull(page);
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void findPageByBirthDateRange_invalidCursor_failsWithInvalidRequestException() {
+        StepVerifier.create(reactiveUserService.findPageByBirthDateRange(
+                        SEARCH_FROM, SEARCH_TO, INVALID_CURSOR, PAGE_SIZE))
+                .expectError(InvalidRequestException.class)
+                .verify();
+    }
+}
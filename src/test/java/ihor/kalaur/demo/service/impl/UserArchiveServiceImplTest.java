@@ -0,0 +1,80 @@
+package ihor.kalaur.demo.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ihor.kalaur.demo.repository.UserArchiveRepository;
+import ihor.kalaur.demo.repository.UserArchiveRepository.ArchiveKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+@ExtendWith(MockitoExtension.class)
+class UserArchiveServiceImplTest {
+    private static final long RETENTION_DAYS = 30;
+    private static final int CHUNK_SIZE = 2;
+    private static final long PAUSE_MS = 0;
+    private static final long INTERVAL_MS = 3_600_000;
+    private static final LocalDateTime DELETED_AT = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final ArchiveKey FIRST = new ArchiveKey(DELETED_AT, 1L);
+    private static final ArchiveKey SECOND = new ArchiveKey(DELETED_AT, 2L);
+    private static final ArchiveKey THIRD = new ArchiveKey(DELETED_AT.plusDays(1), 3L);
+
+    @Mock
+    private UserArchiveRepository userArchiveRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserArchiveServiceImpl userArchiveService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userArchiveService = new UserArchiveServiceImpl(userArchiveRepository, meterRegistry,
+                true, RETENTION_DAYS, CHUNK_SIZE, PAUSE_MS, INTERVAL_MS);
+    }
+
+    @Test
+    void archiveExpired_severalChunks_movesEachChunkAfterThePreviousKey() {
+        when(userArchiveRepository.findExpiredChunk(any(LocalDateTime.class), eq(ArchiveKey.START), eq(CHUNK_SIZE)))
+                .thenReturn(List.of(FIRST, SECOND));
+        when(userArchiveRepository.findExpiredChunk(any(LocalDateTime.class), eq(SECOND), eq(CHUNK_SIZE)))
+                .thenReturn(List.of(THIRD));
+        when(userArchiveRepository.moveToArchive(eq(List.of(1L, 2L)), any(LocalDateTime.class))).thenReturn(2);
+        when(userArchiveRepository.moveToArchive(eq(List.of(3L)), any(LocalDateTime.class))).thenReturn(1);
+        when(userArchiveRepository.findOldestDeletedAt()).thenReturn(Optional.empty());
+
+        assertEquals(3, userArchiveService.archiveExpired());
+        verify(userArchiveRepository, times(2)).findExpiredChunk(any(LocalDateTime.class), any(), anyInt());
+        assertEquals(3, meterRegistry.get(UserArchiveServiceImpl.ARCHIVED_ROWS_METRIC).counter().count());
+        assertEquals(0, meterRegistry.get(UserArchiveServiceImpl.ARCHIVE_LAG_METRIC).gauge().value());
+        assertEquals(0, meterRegistry.get(UserArchiveServiceImpl.ARCHIVE_FAILURES_METRIC).counter().count());
+    }
+
+    @Test
+    void archiveExpired_failingChunk_stopsRunAndReportsLag() {
+        when(userArchiveRepository.findExpiredChunk(any(LocalDateTime.class), eq(ArchiveKey.START), eq(CHUNK_SIZE)))
+                .thenReturn(List.of(FIRST, SECOND));
+        when(userArchiveRepository.moveToArchive(anyList(), any(LocalDateTime.class)))
+                .thenThrow(new DuplicateKeyException("users_archive.PRIMARY"));
+        when(userArchiveRepository.findOldestDeletedAt()).thenReturn(Optional.of(DELETED_AT));
+
+        assertEquals(0, userArchiveService.archiveExpired());
+        verify(userArchiveRepository, times(1)).findExpiredChunk(any(LocalDateTime.class), any(), anyInt());
+        assertTrue(meterRegistry.get(UserArchiveServiceImpl.ARCHIVE_LAG_METRIC).gauge().value() > 0);
+        assertEquals(1, meterRegistry.get(UserArchiveServiceImpl.ARCHIVE_FAILURES_METRIC).counter().count());
+    }
+}
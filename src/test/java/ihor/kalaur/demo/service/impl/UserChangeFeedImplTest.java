@@ -0,0 +1,219 @@
+package ihor.kalaur.demo.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ihor.kalaur.demo.datasource.ShardingProperties;
+import ihor.kalaur.demo.dto.change.UserChangeDto;
+import ihor.kalaur.demo.exceptions.ShardingUnsupportedException;
+import ihor.kalaur.demo.mapper.impl.UserChangeMapperImpl;
+import ihor.kalaur.demo.model.UserChange;
+import ihor.kalaur.demo.model.UserChangeType;
+import ihor.kalaur.demo.repository.UserChangeRepository;
+import ihor.kalaur.demo.service.UserChangeFeed;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+@ExtendWith(MockitoExtension.class)
+class UserChangeFeedImplTest {
+    private static final int BATCH_SIZE = 10;
+    private static final long RETENTION_DAYS = 7;
+    private static final long GAP_TIMEOUT_MS = 60_000;
+    private static final Long HEAD = 5L;
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private UserChangeRepository userChangeRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserChangeFeedImpl feed;
+
+    // Deliveries run on the calling thread, so every publish has finished sending when it returns
+    @BeforeEach
+    void setUp() {
+        feed = feed(new ShardingProperties());
+    }
+
+    @Test
+    void subscribe_sharded_throwsShardingUnsupportedException() {
+        ShardingProperties shardingProperties = new ShardingProperties();
+        shardingProperties.setEnabled(true);
+        UserChangeFeedImpl shardedFeed = feed(shardingProperties);
+
+        assertThrows(ShardingUnsupportedException.class, () -> shardedFeed.subscribe(HEAD, changes -> { }));
+    }
+
+    @Test
+    void subscribe_withoutOffset_startsAtHead() {
+        when(userChangeRepository.findLatestId()).thenReturn(Optional.of(HEAD));
+        when(userChangeRepository.findAfter(eq(HEAD), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        feed.subscribe(null, changes -> { });
+        feed.publish();
+
+        verify(userChangeRepository).findAfter(eq(HEAD), any(Pageable.class));
+    }
+
+    @Test
+    void publish_subscribersAtSameOffset_shareOneQueryAndAdvance() {
+        when(userChangeRepository.findAfter(eq(HEAD), any(Pageable.class)))
+                .thenReturn(List.of(change(HEAD + 1), change(HEAD + 2)));
+        when(userChangeRepository.findAfter(eq(HEAD + 2), any(Pageable.class)))
+                .thenReturn(List.of());
+        List<UserChangeDto> first = new ArrayList<>();
+        List<UserChangeDto> second = new ArrayList<>();
+        feed.subscribe(HEAD, first::addAll);
+        feed.subscribe(HEAD, second::addAll);
+
+        feed.publish();
+        feed.publish();
+
+        assertEquals(List.of(HEAD + 1, HEAD + 2), first.stream().map(UserChangeDto::getOffset).toList());
+        assertEquals(first, second);
+        verify(userChangeRepository, times(1)).findAfter(eq(HEAD), any(Pageable.class));
+        verify(userChangeRepository, times(1)).findAfter(eq(HEAD + 2), any(Pageable.class));
+    }
+
+    @Test
+    void publish_failingListener_dropsSubscription() {
+        when(userChangeRepository.findAfter(eq(HEAD), any(Pageable.class)))
+                .thenReturn(List.of(change(HEAD + 1)));
+        feed.subscribe(HEAD, changes -> {
+            throw new IllegalStateException("client disconnected");
+        });
+
+        feed.publish();
+
+        assertEquals(0, feed.getSubscriptionCount());
+    }
+
+    @Test
+    void publish_cancelledSubscription_isNotQueried() {
+        UserChangeFeed.Subscription subscription = feed.subscribe(HEAD, changes -> { });
+        subscription.cancel();
+
+        feed.publish();
+
+        verify(userChangeRepository, never()).findAfter(anyLong(), any());
+    }
+
+    @Test
+    void publish_gapInOffsets_holdsBackChangesAfterIt() {
+        when(userChangeRepository.findAfter(eq(HEAD), any(Pageable.class)))
+                .thenReturn(List.of(change(HEAD + 1), change(HEAD + 3)));
+        when(userChangeRepository.findAfter(eq(HEAD + 1), any(Pageable.class)))
+                .thenReturn(List.of(change(HEAD + 3)));
+        List<UserChangeDto> received = new ArrayList<>();
+        feed.subscribe(HEAD, received::addAll);
+
+        feed.publish();
+        feed.publish();
+        feed.publish();
+
+        assertEquals(List.of(HEAD + 1), received.stream().map(UserChangeDto::getOffset).toList());
+        assertEquals(3.0, meterRegistry.get(UserChangeFeedImpl.GAP_WAITS_METRIC).counter().count());
+        assertEquals(0.0, meterRegistry.get(UserChangeFeedImpl.GAP_SKIPS_METRIC).counter().count());
+    }
+
+    @Test
+    void publish_gapFilledInTime_deliversInOffsetOrder() {
+        when(userChangeRepository.findAfter(eq(HEAD), any(Pageable.class)))
+                .thenReturn(List.of(change(HEAD + 2)))
+                .thenReturn(List.of(change(HEAD + 1), change(HEAD + 2)));
+        List<UserChangeDto> received = new ArrayList<>();
+        feed.subscribe(HEAD, received::addAll);
+
+        feed.publish();
+        feed.publish();
+
+        assertEquals(List.of(HEAD + 1, HEAD + 2), received.stream().map(UserChangeDto::getOffset).toList());
+    }
+
+    // HEAD + 2 is taken by a slow batch delete that commits after HEAD + 3 has become visible and several polls
+    // have passed; it still reaches the stream, in offset order
+    @Test
+    void publish_writeCommittingAfterLaterOffset_isStillDelivered() {
+        when(userChangeRepository.findAfter(eq(HEAD), any(Pageable.class)))
+                .thenReturn(List.of(change(HEAD + 1), change(HEAD + 3)));
+        when(userChangeRepository.findAfter(eq(HEAD + 1), any(Pageable.class)))
+                .thenReturn(List.of(change(HEAD + 3)))
+                .thenReturn(List.of(change(HEAD + 3)))
+                .thenReturn(List.of(change(HEAD + 2), change(HEAD + 3)));
+        List<UserChangeDto> received = new ArrayList<>();
+        feed.subscribe(HEAD, received::addAll);
+
+        for (int i = 0; i < 4; i++) {
+            feed.publish();
+        }
+
+        assertEquals(List.of(HEAD + 1, HEAD + 2, HEAD + 3),
+                received.stream().map(UserChangeDto::getOffset).toList());
+        assertEquals(0.0, meterRegistry.get(UserChangeFeedImpl.GAP_SKIPS_METRIC).counter().count());
+    }
+
+    // HEAD + 2 belongs to a rolled back write and never appears; the change after it is older than the gap timeout
+    @Test
+    void publish_gapOlderThanTimeout_isSkipped() {
+        when(userChangeRepository.findAfter(eq(HEAD), any(Pageable.class)))
+                .thenReturn(List.of(change(HEAD + 1), change(HEAD + 3, LocalDateTime.now().minusMinutes(5)),
+                        change(HEAD + 4)));
+        List<UserChangeDto> received = new ArrayList<>();
+        feed.subscribe(HEAD, received::addAll);
+
+        feed.publish();
+
+        assertEquals(List.of(HEAD + 1, HEAD + 3, HEAD + 4), received.stream().map(UserChangeDto::getOffset).toList());
+        assertEquals(0.0, meterRegistry.get(UserChangeFeedImpl.GAP_WAITS_METRIC).counter().count());
+        assertEquals(1.0, meterRegistry.get(UserChangeFeedImpl.GAP_SKIPS_METRIC).counter().count());
+    }
+
+    @Test
+    void publish_deliveryInProgress_skipsSubscription() {
+        when(userChangeRepository.findAfter(eq(HEAD), any(Pageable.class)))
+                .thenReturn(List.of(change(HEAD + 1)));
+        List<Runnable> pending = new ArrayList<>();
+        UserChangeFeedImpl queuedFeed = new UserChangeFeedImpl(userChangeRepository, new UserChangeMapperImpl(),
+                new ShardingProperties(), meterRegistry, BATCH_SIZE, RETENTION_DAYS, GAP_TIMEOUT_MS, pending::add);
+        queuedFeed.subscribe(HEAD, changes -> { });
+
+        queuedFeed.publish();
+        queuedFeed.publish();
+
+        assertEquals(1, pending.size());
+        verify(userChangeRepository, times(1)).findAfter(eq(HEAD), any(Pageable.class));
+    }
+
+    private UserChangeFeedImpl feed(ShardingProperties shardingProperties) {
+        return new UserChangeFeedImpl(userChangeRepository, new UserChangeMapperImpl(), shardingProperties,
+                meterRegistry, BATCH_SIZE, RETENTION_DAYS, GAP_TIMEOUT_MS, Runnable::run);
+    }
+
+    private UserChange change(Long offset) {
+        UserChange change = new UserChange(USER_ID, UserChangeType.UPDATED);
+        change.setId(offset);
+        return change;
+    }
+
+    private UserChange change(Long offset, LocalDateTime createdAt) {
+        UserChange change = change(offset);
+        change.setCreatedAt(createdAt);
+        return change;
+    }
+}
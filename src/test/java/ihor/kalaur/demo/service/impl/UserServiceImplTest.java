@@ -4,35 +4,95 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import ihor.kalaur.demo.cache.BirthDateHistogram;
+import ihor.kalaur.demo.cache.EmailBloomFilter;
+import ihor.kalaur.demo.cache.UserCache;
 import ihor.kalaur.demo.dto.CreateUserRequestDto;
 import ihor.kalaur.demo.dto.UpdateAnyFieldsUserRequestDto;
 import ihor.kalaur.demo.dto.UserDto;
+import ihor.kalaur.demo.dto.UserField;
+import ihor.kalaur.demo.dto.UserUpsertResult;
+import ihor.kalaur.demo.dto.bulk.BatchDeleteResultDto;
+import ihor.kalaur.demo.dto.bulk.BatchGetResultDto;
+import ihor.kalaur.demo.dto.bulk.BulkUserResultDto;
+import ihor.kalaur.demo.dto.bulk.BulkUserStatus;
+import ihor.kalaur.demo.dto.page.BirthdayCursor;
+import ihor.kalaur.demo.dto.page.CursorPageDto;
+import ihor.kalaur.demo.dto.page.KeysetCursor;
+import ihor.kalaur.demo.dto.stats.BirthDateCount;
+import ihor.kalaur.demo.dto.stats.HistogramBucket;
+import ihor.kalaur.demo.dto.stats.HistogramBucketDto;
+import ihor.kalaur.demo.dto.stats.UserCountDto;
+import ihor.kalaur.demo.exceptions.DuplicateEmailException;
 import ihor.kalaur.demo.exceptions.EntityNotFoundException;
+import ihor.kalaur.demo.exceptions.InvalidRequestException;
+import ihor.kalaur.demo.exceptions.ShardingUnsupportedException;
+import ihor.kalaur.demo.exceptions.VersionConflictException;
 import ihor.kalaur.demo.mapper.UserMapper;
 import ihor.kalaur.demo.model.User;
+import ihor.kalaur.demo.model.UserChange;
+import ihor.kalaur.demo.model.UserChangeType;
+import ihor.kalaur.demo.repository.BatchInsertResult;
+import ihor.kalaur.demo.repository.ShardedUserRepository;
+import ihor.kalaur.demo.repository.UserArchiveRepository;
+import ihor.kalaur.demo.repository.UserBatchRepository;
+import ihor.kalaur.demo.repository.UserByIdBatchLoader;
+import ihor.kalaur.demo.repository.UserChangeRepository;
+import ihor.kalaur.demo.repository.UserGroupCommitWriter;
 import ihor.kalaur.demo.repository.UserRepository;
+import ihor.kalaur.demo.service.UserServiceProperties;
+import jakarta.persistence.Tuple;
+import jakarta.validation.Validator;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.ObjLongConsumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceImplTest {
     private static final Long ID_ONE = 1L;
     private static final String EMAIL_VALID = "john.doe@example.com";
+    private static final String EMAIL_VALID_UPPER_CASE = "JOHN.DOE@EXAMPLE.COM";
     private static final String EMAIL_UPDATED = "updated@example.com";
     private static final String FIRST_NAME = "John";
     private static final String LAST_NAME = "Doe";
@@ -40,6 +100,24 @@ class UserServiceImplTest {
     private static final String PHONE_VALID = "+1234567890";
     private static final LocalDate BIRTH_DATE_VALID = LocalDate.of(1990, 1, 1);
     private static final String CANT_FIND_USER_MESSAGE_TEMPLATE = "Can't find user with id %d";
+    private static final Long ID_TWO = 2L;
+    private static final Long VERSION = 3L;
+    private static final Long STALE_VERSION = 2L;
+    private static final Long REPLACED_VERSION = 4L;
+    private static final int PAGE_SIZE = 1;
+    private static final String INVALID_CURSOR = "not-a-cursor";
+    private static final int BULK_BATCH_SIZE = 2;
+    private static final int BATCH_DELETE_MAX_IDS = 10;
+    private static final int BATCH_GET_MAX_IDS = 10;
+    private static final Long ID_MISSING = 99L;
+    private static final int BIRTHDAY_STREAM_PAGE_SIZE = 1;
+    private static final LocalDate NEW_YEARS_EVE_WINDOW_START = LocalDate.of(2023, 12, 30);
+    private static final int NEW_YEARS_EVE_WINDOW_DAYS = 4;
+    private static final int AGE_BUCKET_YEARS = 10;
+    private static final LocalDate BIRTH_DATE_UPDATED = LocalDate.of(1985, 5, 20);
+    private static final LocalDate SEARCH_FROM = LocalDate.of(1980, 1, 1);
+    private static final LocalDate SEARCH_TO = LocalDate.of(2000, 1, 1);
+    private static final String DUPLICATE_EMAIL_ERROR = "email: must be unique, the provided email is already in use";
 
     @Mock
     private UserRepository userRepository;
@@ -47,6 +125,42 @@ class UserServiceImplTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private UserBatchRepository userBatchRepository;
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private UserByIdBatchLoader userByIdBatchLoader;
+
+    @Mock
+    private EmailBloomFilter emailBloomFilter;
+
+    @Mock
+    private UserGroupCommitWriter userGroupCommitWriter;
+
+    @Mock
+    private UserChangeRepository userChangeRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private UserArchiveRepository userArchiveRepository;
+
+    @Mock
+    private BirthDateHistogram birthDateHistogram;
+
+    @Mock
+    private ShardedUserRepository shardedUserRepository;
+
+    @Spy
+    private UserServiceProperties userServiceProperties = new UserServiceProperties();
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -65,6 +179,7 @@ class UserServiceImplTest {
         user.setBirthDate(BIRTH_DATE_VALID);
         user.setAddress(ADDRESS);
         user.setPhoneNumber(PHONE_VALID);
+        user.setVersion(VERSION);
 
         userDto = toUserDto(user);
 
@@ -73,6 +188,14 @@ class UserServiceImplTest {
         updateAnyFieldsUserRequestDto = new UpdateAnyFieldsUserRequestDto();
         updateAnyFieldsUserRequestDto.setEmail(EMAIL_UPDATED);
 
+        userServiceProperties.getBulk().setBatchSize(BULK_BATCH_SIZE);
+        userServiceProperties.getBatchDelete().setMaxIds(BATCH_DELETE_MAX_IDS);
+        userServiceProperties.getBatchGet().setMaxIds(BATCH_GET_MAX_IDS);
+        userServiceProperties.getBirthdays().setStreamPageSize(BIRTHDAY_STREAM_PAGE_SIZE);
+        userServiceProperties.getStats().setAgeBucketYears(AGE_BUCKET_YEARS);
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
         lenient().when(userMapper.toDto(any(User.class))).thenReturn(userDto);
         lenient().when(userMapper.toEntity(any(CreateUserRequestDto.class))).thenReturn(user);
         lenient().when(userMapper.toEntity(any(UpdateAnyFieldsUserRequestDto.class), any(User.class))).thenReturn(user);
@@ -87,23 +210,102 @@ class UserServiceImplTest {
         assertNotNull(actual);
         assertEquals(userDto, actual);
         verify(userRepository).save(any(User.class));
+        verifyChangeRecorded(ID_ONE, UserChangeType.CREATED);
+    }
+
+    @Test
+    void save_takenEmail_throwsDuplicateEmailExceptionWithoutInsert() {
+        when(emailBloomFilter.mightContain(EMAIL_VALID)).thenReturn(true);
+        when(userRepository.findIdByEmailIncludingDeleted(EMAIL_VALID)).thenReturn(Optional.of(ID_TWO));
+
+        assertThrows(DuplicateEmailException.class, () -> userService.save(createUserRequestDto));
+        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
-    void updateAnyUserFields_existingUser_updatesSuccessfully() {
-        when(userRepository.findById(ID_ONE)).thenReturn(Optional.of(user));
+    void save_definitelyNewEmail_skipsLookupAndRemembersEmail() {
         when(userRepository.save(any(User.class))).thenReturn(user);
 
+        userService.save(createUserRequestDto);
+
+        verify(userRepository, never()).findIdByEmailIncludingDeleted(any());
+        verify(emailBloomFilter).add(EMAIL_VALID);
+    }
+
+    @Test
+    void save_groupCommit_insertsThroughWriter() {
+        when(userGroupCommitWriter.isEnabled()).thenReturn(true);
+        when(userGroupCommitWriter.insert(user)).thenReturn(BatchInsertResult.inserted(ID_TWO));
+
+        userService.save(createUserRequestDto);
+
+        assertEquals(ID_TWO, user.getId());
+        assertEquals(0L, user.getVersion());
+        verify(userRepository, never()).save(any(User.class));
+        verify(userChangeRepository, never()).save(any(UserChange.class));
+        verify(transactionTemplate, never()).execute(any());
+        verify(userCache).put(userDto);
+    }
+
+    @Test
+    void save_groupCommitDuplicateRow_throwsDuplicateEmailException() {
+        when(userGroupCommitWriter.isEnabled()).thenReturn(true);
+        when(userGroupCommitWriter.insert(user)).thenReturn(BatchInsertResult.rejectedDuplicate(DUPLICATE_EMAIL_ERROR));
+
+        assertThrows(DuplicateEmailException.class, () -> userService.save(createUserRequestDto));
+        verify(userCache, never()).put(any(UserDto.class));
+    }
+
+    @Test
+    void saveAll_takenEmails_rejectedWithoutInsert() {
+        when(validator.validate(any(CreateUserRequestDto.class))).thenReturn(Collections.emptySet());
+        when(emailBloomFilter.mightContain(EMAIL_VALID)).thenReturn(true);
+        when(userRepository.findExistingEmails(List.of(EMAIL_VALID))).thenReturn(List.of(EMAIL_VALID_UPPER_CASE));
+
+        List<BulkUserResultDto> actual = userService.saveAll(List.of(createUserRequestDto).iterator());
+
+        assertEquals(List.of(new BulkUserResultDto(0, BulkUserStatus.REJECTED, null, List.of(DUPLICATE_EMAIL_ERROR))),
+                actual);
+        verify(userBatchRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    void saveAll_validRecords_insertsInBatchesAndReportsEachRecord() {
+        when(validator.validate(any(CreateUserRequestDto.class))).thenReturn(Collections.emptySet());
+        when(userBatchRepository.insertAll(anyList()))
+                .thenReturn(List.of(
+                        BatchInsertResult.inserted(ID_ONE),
+                        BatchInsertResult.rejected(DUPLICATE_EMAIL_ERROR)))
+                .thenReturn(List.of(BatchInsertResult.inserted(ID_TWO)));
+
+        List<BulkUserResultDto> actual = userService.saveAll(
+                List.of(createUserRequestDto, createUserRequestDto, createUserRequestDto).iterator());
+
+        assertEquals(List.of(
+                new BulkUserResultDto(0, BulkUserStatus.CREATED, ID_ONE, List.of()),
+                new BulkUserResultDto(1, BulkUserStatus.REJECTED, null, List.of(DUPLICATE_EMAIL_ERROR)),
+                new BulkUserResultDto(2, BulkUserStatus.CREATED, ID_TWO, List.of())
+        ), actual);
+        verify(userBatchRepository, times(2)).insertAll(anyList());
+    }
+
+    @Test
+    void updateAnyUserFields_existingUser_updatesOnlyPresentFieldsWithoutMerge() {
+        when(userRepository.updateNonNullFields(eq(ID_ONE), any(User.class), isNull())).thenReturn(1);
+        when(userRepository.findDtoById(ID_ONE)).thenReturn(Optional.of(userDto));
+
         UserDto actual = userService.updateAnyUserFields(ID_ONE, updateAnyFieldsUserRequestDto);
 
         assertNotNull(actual);
         assertEquals(userDto, actual);
-        verify(userRepository).save(user);
+        verify(userRepository, never()).save(any(User.class));
+        verifyChangeRecorded(ID_ONE, UserChangeType.UPDATED);
+        verify(userCache).put(userDto);
     }
 
     @Test
     void updateAnyUserFields_nonExistingUser_throwsEntityNotFoundException() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.updateNonNullFields(anyLong(), any(User.class), isNull())).thenReturn(0);
 
         EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -113,29 +315,95 @@ class UserServiceImplTest {
 
         String expectedMessage = String.format(CANT_FIND_USER_MESSAGE_TEMPLATE, ID_ONE);
         assertEquals(expectedMessage, exception.getMessage());
+        verify(userChangeRepository, never()).save(any(UserChange.class));
     }
 
     @Test
-    void updateAllUserFields_createsOrUpdatesUser() {
-        when(userRepository.save(any(User.class))).thenReturn(user);
+    void updateAnyUserFields_staleVersion_throwsVersionConflictException() {
+        updateAnyFieldsUserRequestDto.setVersion(STALE_VERSION);
+        when(userRepository.updateNonNullFields(ID_ONE, user, STALE_VERSION)).thenReturn(0);
+        when(userRepository.existsById(ID_ONE)).thenReturn(true);
 
-        UserDto actual = userService.updateAllUserFields(ID_ONE, createUserRequestDto);
+        assertThrows(VersionConflictException.class,
+                () -> userService.updateAnyUserFields(ID_ONE, updateAnyFieldsUserRequestDto));
+        verify(userCache, never()).put(any(UserDto.class));
+    }
 
-        assertNotNull(actual);
-        verify(userRepository).save(user);
+    @Test
+    void updateAllUserFields_emailOfSameUser_upserts() {
+        when(emailBloomFilter.mightContain(EMAIL_VALID)).thenReturn(true);
+        when(userRepository.findIdByEmailIncludingDeleted(EMAIL_VALID)).thenReturn(Optional.of(ID_ONE));
+        when(userRepository.upsert(user)).thenReturn(2);
+
+        UserUpsertResult actual = userService.updateAllUserFields(ID_ONE, createUserRequestDto);
+
+        assertFalse(actual.created());
+    }
+
+    @Test
+    void updateAllUserFields_emailOfAnotherUser_throwsDuplicateEmailException() {
+        when(emailBloomFilter.mightContain(EMAIL_VALID)).thenReturn(true);
+        when(userRepository.findIdByEmailIncludingDeleted(EMAIL_VALID)).thenReturn(Optional.of(ID_TWO));
+
+        assertThrows(DuplicateEmailException.class,
+                () -> userService.updateAllUserFields(ID_ONE, createUserRequestDto));
+        verify(userRepository, never()).upsert(any(User.class));
+    }
+
+    @Test
+    void updateAllUserFields_newId_reportsCreated() {
+        when(userRepository.upsert(user)).thenReturn(1);
+
+        UserUpsertResult actual = userService.updateAllUserFields(ID_ONE, createUserRequestDto);
+
+        assertTrue(actual.created());
+        assertEquals(userDto, actual.user());
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).save(any(User.class));
+        verifyChangeRecorded(ID_ONE, UserChangeType.CREATED);
+        verify(userCache).putRevived(userDto);
+    }
+
+    @Test
+    void updateAllUserFields_existingId_reportsReplacedWithVersionFromUpsertWithoutReadingUser() {
+        when(userRepository.upsert(user)).thenAnswer(invocation -> {
+            user.setVersion(REPLACED_VERSION);
+            return 2;
+        });
+
+        UserUpsertResult actual = userService.updateAllUserFields(ID_ONE, createUserRequestDto);
+
+        assertFalse(actual.created());
+        assertEquals(REPLACED_VERSION, user.getVersion());
+        verify(userRepository).upsert(user);
+        verifyNoMoreInteractions(userRepository);
+        verifyChangeRecorded(ID_ONE, UserChangeType.UPDATED);
+        verify(userCache).putRevived(actual.user());
+    }
+
+    @Test
+    void updateAllUserFields_emailOwnedByAnotherUser_throwsDuplicateEmailException() {
+        when(userRepository.upsert(user)).thenReturn(0);
+
+        assertThrows(DuplicateEmailException.class,
+                () -> userService.updateAllUserFields(ID_ONE, createUserRequestDto));
+        verify(userCache, never()).putRevived(any(UserDto.class));
     }
 
     @Test
     void delete_existingUser_deletesUser() {
-        when(userRepository.existsById(ID_ONE)).thenReturn(true);
+        when(userRepository.softDeleteById(eq(ID_ONE), any(LocalDateTime.class))).thenReturn(1);
 
         assertDoesNotThrow(() -> userService.delete(ID_ONE));
-        verify(userRepository).deleteById(ID_ONE);
+        verify(userRepository).softDeleteById(eq(ID_ONE), any(LocalDateTime.class));
+        verify(userRepository, never()).existsById(anyLong());
+        verifyChangeRecorded(ID_ONE, UserChangeType.DELETED);
+        verify(userCache).markDeleted(ID_ONE);
     }
 
     @Test
     void delete_nonExistingUser_throwsException() {
-        when(userRepository.existsById(anyLong())).thenReturn(false);
+        when(userRepository.softDeleteById(anyLong(), any(LocalDateTime.class))).thenReturn(0);
 
         EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -147,17 +415,494 @@ class UserServiceImplTest {
         assertEquals(expectedMessage, exception.getMessage());
     }
 
+    @Test
+    void restore_softDeletedUser_clearsFlagWithoutTouchingArchive() {
+        when(userRepository.restoreById(ID_ONE)).thenReturn(1);
+        when(userRepository.findDtoById(ID_ONE)).thenReturn(Optional.of(userDto));
+
+        UserDto actual = userService.restore(ID_ONE);
+
+        assertEquals(userDto, actual);
+        verify(userArchiveRepository, never()).restoreFromArchive(anyLong());
+        verifyChangeRecorded(ID_ONE, UserChangeType.RESTORED);
+        verify(userCache).putRevived(userDto);
+    }
+
+    @Test
+    void restore_archivedUser_copiesBackFromArchive() {
+        when(userRepository.restoreById(ID_ONE)).thenReturn(0);
+        when(userArchiveRepository.restoreFromArchive(ID_ONE)).thenReturn(true);
+        when(userRepository.findDtoById(ID_ONE)).thenReturn(Optional.of(userDto));
+
+        assertEquals(userDto, userService.restore(ID_ONE));
+        verify(emailBloomFilter).add(EMAIL_VALID);
+    }
+
+    @Test
+    void restore_unknownUser_throwsEntityNotFoundException() {
+        when(userRepository.restoreById(ID_MISSING)).thenReturn(0);
+        when(userArchiveRepository.restoreFromArchive(ID_MISSING)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> userService.restore(ID_MISSING));
+        verify(userChangeRepository, never()).save(any(UserChange.class));
+    }
+
+    @Test
+    void restore_archivedEmailTakenAgain_throwsDuplicateEmailException() {
+        when(userRepository.restoreById(ID_ONE)).thenReturn(0);
+        when(userArchiveRepository.restoreFromArchive(ID_ONE)).thenThrow(new DuplicateKeyException(EMAIL_VALID));
+
+        assertThrows(DuplicateEmailException.class, () -> userService.restore(ID_ONE));
+    }
+
+    @Test
+    void deleteAll_duplicateIds_deletesEachIdOnceInSingleStatement() {
+        when(userRepository.softDeleteAllByIdIn(eq(Set.of(ID_ONE, ID_TWO)), any(LocalDateTime.class))).thenReturn(1);
+
+        BatchDeleteResultDto actual = userService.deleteAll(List.of(ID_ONE, ID_TWO, ID_ONE));
+
+        assertEquals(new BatchDeleteResultDto(2, 1), actual);
+        verify(userRepository).softDeleteAllByIdIn(eq(Set.of(ID_ONE, ID_TWO)), any(LocalDateTime.class));
+        verify(userChangeRepository).recordDeletions(eq(Set.of(ID_ONE, ID_TWO)), any());
+        verify(userCache).markDeleted(ID_ONE);
+        verify(userCache).markDeleted(ID_TWO);
+    }
+
+    @Test
+    void save_validData_countsUserInHistogram() {
+        when(userRepository.save(any(User.class))).thenReturn(user);
+
+        userService.save(createUserRequestDto);
+
+        verify(birthDateHistogram).add(BIRTH_DATE_VALID, 1);
+    }
+
+    @Test
+    void updateAnyUserFields_newBirthDate_movesUserInHistogram() {
+        updateAnyFieldsUserRequestDto.setBirthDate(BIRTH_DATE_UPDATED);
+        User patch = new User();
+        patch.setBirthDate(BIRTH_DATE_UPDATED);
+        when(userMapper.toEntity(any(UpdateAnyFieldsUserRequestDto.class), any(User.class))).thenReturn(patch);
+        when(birthDateHistogram.isEnabled()).thenReturn(true);
+        when(userRepository.findBirthDateById(ID_ONE)).thenReturn(Optional.of(BIRTH_DATE_VALID));
+        when(userRepository.updateNonNullFields(eq(ID_ONE), any(User.class), isNull())).thenReturn(1);
+        when(userRepository.findDtoById(ID_ONE)).thenReturn(Optional.of(userDto));
+
+        userService.updateAnyUserFields(ID_ONE, updateAnyFieldsUserRequestDto);
+
+        verify(birthDateHistogram).move(BIRTH_DATE_VALID, BIRTH_DATE_UPDATED);
+    }
+
+    @Test
+    void updateAnyUserFields_withoutBirthDate_skipsBirthDateLookup() {
+        when(userRepository.updateNonNullFields(eq(ID_ONE), any(User.class), isNull())).thenReturn(1);
+        when(userRepository.findDtoById(ID_ONE)).thenReturn(Optional.of(userDto));
+        User patch = new User();
+        patch.setEmail(EMAIL_UPDATED);
+        when(userMapper.toEntity(any(UpdateAnyFieldsUserRequestDto.class), any(User.class))).thenReturn(patch);
+
+        userService.updateAnyUserFields(ID_ONE, updateAnyFieldsUserRequestDto);
+
+        verify(userRepository, never()).findBirthDateById(anyLong());
+        verify(birthDateHistogram, never()).move(any(), any());
+    }
+
+    @Test
+    void updateAllUserFields_revivedUser_countsUserInHistogram() {
+        when(birthDateHistogram.isEnabled()).thenReturn(true);
+        when(userRepository.findBirthDateById(ID_ONE)).thenReturn(Optional.empty());
+        when(userRepository.upsert(user)).thenReturn(2);
+
+        userService.updateAllUserFields(ID_ONE, createUserRequestDto);
+
+        verify(birthDateHistogram).add(BIRTH_DATE_VALID, 1);
+        verify(birthDateHistogram, never()).move(any(), any());
+    }
+
+    @Test
+    void updateAllUserFields_existingUser_movesUserInHistogram() {
+        when(birthDateHistogram.isEnabled()).thenReturn(true);
+        when(userRepository.findBirthDateById(ID_ONE)).thenReturn(Optional.of(BIRTH_DATE_UPDATED));
+        when(userRepository.upsert(user)).thenReturn(2);
+
+        userService.updateAllUserFields(ID_ONE, createUserRequestDto);
+
+        InOrder inOrder = inOrder(userRepository);
+        inOrder.verify(userRepository).findBirthDateById(ID_ONE);
+        inOrder.verify(userRepository).upsert(user);
+        verify(birthDateHistogram).move(BIRTH_DATE_UPDATED, BIRTH_DATE_VALID);
+    }
+
+    @Test
+    void delete_existingUser_handsIdToHistogramWithoutReadingUser() {
+        ArgumentCaptor<LocalDateTime> deletedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(userRepository.softDeleteById(eq(ID_ONE), deletedAt.capture())).thenReturn(1);
+
+        userService.delete(ID_ONE);
+
+        verify(birthDateHistogram).removeDeleted(List.of(ID_ONE), deletedAt.getValue());
+        verify(userRepository, never()).findBirthDateById(anyLong());
+    }
+
+    @Test
+    void deleteAll_deletedUsers_handsIdsToHistogramWithoutReadingUsers() {
+        ArgumentCaptor<LocalDateTime> deletedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(userRepository.softDeleteAllByIdIn(eq(Set.of(ID_ONE, ID_TWO)), deletedAt.capture())).thenReturn(1);
+
+        userService.deleteAll(List.of(ID_ONE, ID_TWO));
+
+        verify(birthDateHistogram).removeDeleted(Set.of(ID_ONE, ID_TWO), deletedAt.getValue());
+    }
+
+    @Test
+    void countByBirthDateRange_histogramReady_answersWithoutQuery() {
+        when(birthDateHistogram.count(SEARCH_FROM, SEARCH_TO)).thenReturn(OptionalLong.of(5));
+
+        UserCountDto actual = userService.countByBirthDateRange(SEARCH_FROM, SEARCH_TO, false);
+
+        assertEquals(new UserCountDto(5, false), actual);
+        verify(userRepository, never()).countByBirthDateBetween(any(), any());
+    }
+
+    @Test
+    void countByBirthDateRange_histogramNotReady_countsInDatabase() {
+        when(birthDateHistogram.count(SEARCH_FROM, SEARCH_TO)).thenReturn(OptionalLong.empty());
+        when(userRepository.countByBirthDateBetween(SEARCH_FROM, SEARCH_TO)).thenReturn(3L);
+
+        assertEquals(new UserCountDto(3, true), userService.countByBirthDateRange(SEARCH_FROM, SEARCH_TO, false));
+    }
+
+    @Test
+    void countByBirthDateRange_exact_skipsHistogram() {
+        when(userRepository.countByBirthDateBetween(SEARCH_FROM, SEARCH_TO)).thenReturn(3L);
+
+        assertEquals(new UserCountDto(3, true), userService.countByBirthDateRange(SEARCH_FROM, SEARCH_TO, true));
+        verify(birthDateHistogram, never()).count(any(), any());
+    }
+
+    @Test
+    void getBirthHistogram_byMonth_mergesDatesIntoOrderedBuckets() {
+        when(birthDateHistogram.forEach(any())).thenAnswer(invocation -> {
+            ObjLongConsumer<LocalDate> consumer = invocation.getArgument(0);
+            consumer.accept(BIRTH_DATE_UPDATED, 2);
+            consumer.accept(BIRTH_DATE_VALID, 1);
+            consumer.accept(BIRTH_DATE_VALID.plusYears(1), 4);
+            return true;
+        });
+
+        List<HistogramBucketDto> actual = userService.getBirthHistogram(HistogramBucket.MONTH);
+
+        assertEquals(List.of(new HistogramBucketDto("JANUARY", 5), new HistogramBucketDto("MAY", 2)), actual);
+        verify(userRepository, never()).countGroupedByBirthDate();
+    }
+
+    @Test
+    void getBirthHistogram_histogramNotReady_bucketsByAgeFromDatabase() {
+        LocalDate today = LocalDate.now();
+        when(birthDateHistogram.forEach(any())).thenReturn(false);
+        when(userRepository.countGroupedByBirthDate()).thenReturn(List.of(
+                new BirthDateCount(today.minusYears(25), 2L),
+                new BirthDateCount(today.minusYears(29).minusDays(1), 1L),
+                new BirthDateCount(today.minusYears(30), 3L)));
+
+        List<HistogramBucketDto> actual = userService.getBirthHistogram(HistogramBucket.AGE);
+
+        assertEquals(List.of(new HistogramBucketDto("20-29", 3), new HistogramBucketDto("30-39", 3)), actual);
+    }
+
+    @Test
+    void save_sharded_insertsIntoShardWithoutEmailLookup() {
+        when(shardedUserRepository.isEnabled()).thenReturn(true);
+        when(shardedUserRepository.insert(user)).thenReturn(user);
+
+        assertEquals(userDto, userService.save(createUserRequestDto));
+        verify(userRepository, never()).findIdByEmailIncludingDeleted(any());
+        verify(userRepository, never()).save(any(User.class));
+        verify(userCache).put(userDto);
+    }
+
+    @Test
+    void save_shardedTakenEmail_throwsDuplicateEmailException() {
+        when(shardedUserRepository.isEnabled()).thenReturn(true);
+        when(shardedUserRepository.insert(user)).thenThrow(new DuplicateKeyException(EMAIL_VALID));
+
+        assertThrows(DuplicateEmailException.class, () -> userService.save(createUserRequestDto));
+    }
+
+    @Test
+    void findById_shardedNotCached_readsOwningShard() {
+        when(shardedUserRepository.isEnabled()).thenReturn(true);
+        when(userCache.getById(ID_ONE)).thenReturn(Optional.empty());
+        when(shardedUserRepository.findDtoById(ID_ONE)).thenReturn(Optional.of(userDto));
+
+        assertEquals(userDto, userService.findById(ID_ONE));
+        verify(userByIdBatchLoader, never()).findById(anyLong());
+    }
+
+    @Test
+    void findPageByBirthDateRange_sharded_mergesShardsWithKeysetCursor() {
+        LocalDate from = BIRTH_DATE_VALID;
+        LocalDate to = BIRTH_DATE_VALID.plusDays(1);
+        UserDto second = toUserDto(user);
+        second.setId(ID_TWO);
+        when(shardedUserRepository.isEnabled()).thenReturn(true);
+        when(shardedUserRepository.findPageByBirthDateBetween(from, to, from, 0L, PAGE_SIZE + 1))
+                .thenReturn(List.of(userDto, second));
+
+        CursorPageDto<UserDto> actual = userService.findPageByBirthDateRange(from, to, null, PAGE_SIZE);
+
+        assertEquals(List.of(userDto), actual.getContent());
+        assertEquals(new KeysetCursor(BIRTH_DATE_VALID, ID_ONE).encode(), actual.getNextCursor());
+    }
+
+    @Test
+    void updateAnyUserFields_sharded_throwsShardingUnsupportedException() {
+        when(shardedUserRepository.isEnabled()).thenReturn(true);
+
+        assertThrows(ShardingUnsupportedException.class,
+                () -> userService.updateAnyUserFields(ID_ONE, updateAnyFieldsUserRequestDto));
+        verify(userRepository, never()).updateNonNullFields(anyLong(), any(User.class), any());
+    }
+
+    @Test
+    void deleteAll_tooManyIds_throwsInvalidRequestException() {
+        userServiceProperties.getBatchDelete().setMaxIds(1);
+
+        assertThrows(InvalidRequestException.class, () -> userService.deleteAll(List.of(ID_ONE, ID_TWO)));
+        verify(userRepository, never()).softDeleteAllByIdIn(any(), any());
+    }
+
+    @Test
+    void findById_cachedUser_doesNotQueryRepository() {
+        when(userCache.getById(ID_ONE)).thenReturn(Optional.of(userDto));
+
+        UserDto actual = userService.findById(ID_ONE);
+
+        assertEquals(userDto, actual);
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void findById_notCached_loadsAndCachesUser() {
+        when(userCache.getById(ID_ONE)).thenReturn(Optional.empty());
+        when(userByIdBatchLoader.findById(ID_ONE)).thenReturn(Optional.of(userDto));
+
+        UserDto actual = userService.findById(ID_ONE);
+
+        assertEquals(userDto, actual);
+        verify(userCache).put(userDto);
+        verify(userMapper, never()).toDto(any(User.class));
+    }
+
+    @Test
+    void findById_nonExistingUser_throwsEntityNotFoundException() {
+        when(userCache.getById(ID_ONE)).thenReturn(Optional.empty());
+        when(userByIdBatchLoader.findById(ID_ONE)).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> userService.findById(ID_ONE));
+        verify(userCache, never()).put(any(UserDto.class));
+    }
+
+    @Test
+    void findAllById_mixedCacheHitsAndMisses_queriesOnlyMissesOnce() {
+        UserDto secondUser = toUserDto(user);
+        secondUser.setId(ID_TWO);
+        when(userCache.getById(ID_ONE)).thenReturn(Optional.of(userDto));
+        when(userCache.getById(ID_TWO)).thenReturn(Optional.empty());
+        when(userCache.getById(ID_MISSING)).thenReturn(Optional.empty());
+        when(userRepository.findDtoByIdIn(List.of(ID_TWO, ID_MISSING))).thenReturn(List.of(secondUser));
+
+        BatchGetResultDto actual = userService.findAllById(List.of(ID_TWO, ID_ONE, ID_MISSING, ID_TWO));
+
+        assertEquals(List.of(secondUser, userDto), actual.getUsers());
+        assertEquals(List.of(ID_MISSING), actual.getNotFound());
+        verify(userRepository, times(1)).findDtoByIdIn(anyList());
+        verify(userCache).put(secondUser);
+    }
+
+    @Test
+    void findAllById_tooManyIds_throwsInvalidRequestException() {
+        userServiceProperties.getBatchGet().setMaxIds(1);
+
+        assertThrows(InvalidRequestException.class, () -> userService.findAllById(List.of(ID_ONE, ID_TWO)));
+        verify(userRepository, never()).findDtoByIdIn(any());
+    }
+
+    @Test
+    void findByEmail_notCached_loadsAndCachesUser() {
+        when(userCache.getByEmail(EMAIL_VALID)).thenReturn(Optional.empty());
+        when(userRepository.findDtoByEmail(EMAIL_VALID)).thenReturn(Optional.of(userDto));
+
+        UserDto actual = userService.findByEmail(EMAIL_VALID);
+
+        assertEquals(userDto, actual);
+        verify(userCache).put(userDto);
+    }
+
     @Test
     void findByBirthDateRange_withValidDates_returnsUsers() {
         LocalDate start = LocalDate.of(1990, 1, 1);
         LocalDate end = LocalDate.of(2000, 12, 31);
-        when(userRepository.findByBirthDateBetween(start, end)).thenReturn(Collections.singletonList(user));
+        when(userRepository.findByBirthDateBetween(start, end)).thenReturn(Collections.singletonList(userDto));
 
         List<UserDto> actual = userService.findByBirthDateRange(start, end);
 
         assertFalse(actual.isEmpty());
         assertEquals(1, actual.size());
         verify(userRepository).findByBirthDateBetween(start, end);
+        verify(userMapper, never()).toDto(any(User.class));
+    }
+
+    @Test
+    void findPageByBirthDateRange_moreRowsThanPageSize_returnsNextCursor() {
+        LocalDate start = LocalDate.of(1990, 1, 1);
+        LocalDate end = LocalDate.of(2000, 12, 31);
+        UserDto nextUser = new UserDto();
+        nextUser.setId(ID_TWO);
+        nextUser.setBirthDate(BIRTH_DATE_VALID);
+        when(userRepository.findPageByBirthDateBetween(eq(start), eq(end), eq(start), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(userDto, nextUser));
+
+        CursorPageDto<UserDto> actual = userService.findPageByBirthDateRange(start, end, null, PAGE_SIZE);
+
+        assertEquals(List.of(userDto), actual.getContent());
+        assertEquals(new KeysetCursor(BIRTH_DATE_VALID, ID_ONE), KeysetCursor.decode(actual.getNextCursor()));
+    }
+
+    @Test
+    void findPageByBirthDateRange_lastPage_returnsNoCursor() {
+        LocalDate start = LocalDate.of(1990, 1, 1);
+        LocalDate end = LocalDate.of(2000, 12, 31);
+        String cursor = new KeysetCursor(BIRTH_DATE_VALID, ID_ONE).encode();
+        when(userRepository.findPageByBirthDateBetween(
+                eq(start), eq(end), eq(BIRTH_DATE_VALID), eq(ID_ONE), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+
+        CursorPageDto<UserDto> actual = userService.findPageByBirthDateRange(start, end, cursor, PAGE_SIZE);
+
+        assertTrue(actual.getContent().isEmpty());
+        assertNull(actual.getNextCursor());
+    }
+
+    @Test
+    void findPageByBirthDateRange_invalidCursor_throwsInvalidRequestException() {
+        LocalDate start = LocalDate.of(1990, 1, 1);
+        LocalDate end = LocalDate.of(2000, 12, 31);
+
+        assertThrows(InvalidRequestException.class,
+                () -> userService.findPageByBirthDateRange(start, end, INVALID_CURSOR, PAGE_SIZE));
+    }
+
+    @Test
+    void findPageByUpcomingBirthdays_acrossNewYear_continuesWithJanuary() {
+        UserDto newYearsEveUser = newYearsEveUser();
+        when(userRepository.findPageByBirthMonthDayBetween(1230, 1231, 1230, 0L, PageRequest.of(0, PAGE_SIZE + 1)))
+                .thenReturn(List.of(newYearsEveUser));
+        when(userRepository.findPageByBirthMonthDayBetween(101, 102, 101, 0L, PageRequest.of(0, PAGE_SIZE)))
+                .thenReturn(List.of(userDto));
+
+        CursorPageDto<UserDto> actual = userService.findPageByUpcomingBirthdays(
+                NEW_YEARS_EVE_WINDOW_START, NEW_YEARS_EVE_WINDOW_DAYS, null, PAGE_SIZE);
+
+        assertEquals(List.of(newYearsEveUser), actual.getContent());
+        assertEquals(new BirthdayCursor(1231, ID_TWO), BirthdayCursor.decode(actual.getNextCursor()));
+    }
+
+    @Test
+    void findPageByUpcomingBirthdays_cursorInJanuary_skipsDecemberRange() {
+        String cursor = new BirthdayCursor(101, ID_ONE).encode();
+        when(userRepository.findPageByBirthMonthDayBetween(eq(101), eq(102), eq(101), eq(ID_ONE), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+
+        CursorPageDto<UserDto> actual = userService.findPageByUpcomingBirthdays(
+                NEW_YEARS_EVE_WINDOW_START, NEW_YEARS_EVE_WINDOW_DAYS, cursor, PAGE_SIZE);
+
+        assertTrue(actual.getContent().isEmpty());
+        assertNull(actual.getNextCursor());
+        verify(userRepository, never())
+                .findPageByBirthMonthDayBetween(eq(1230), anyInt(), anyInt(), anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void findPageByUpcomingBirthdays_cursorOfAnotherWindow_throwsInvalidRequestException() {
+        String cursor = new BirthdayCursor(615, ID_ONE).encode();
+
+        assertThrows(InvalidRequestException.class, () -> userService.findPageByUpcomingBirthdays(
+                NEW_YEARS_EVE_WINDOW_START, NEW_YEARS_EVE_WINDOW_DAYS, cursor, PAGE_SIZE));
+    }
+
+    @Test
+    void streamUpcomingBirthdays_severalPages_readsPageByPage() {
+        UserDto newYearsEveUser = newYearsEveUser();
+        when(userRepository.findPageByBirthMonthDayBetween(eq(1230), eq(1231), eq(1230), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(newYearsEveUser));
+        when(userRepository.findPageByBirthMonthDayBetween(eq(1230), eq(1231), eq(1231), eq(ID_TWO),
+                any(Pageable.class))).thenReturn(Collections.emptyList());
+        when(userRepository.findPageByBirthMonthDayBetween(eq(101), eq(102), eq(101), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(userDto));
+        when(userRepository.findPageByBirthMonthDayBetween(eq(101), eq(102), eq(101), eq(ID_ONE), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+        List<UserDto> streamed = new ArrayList<>();
+
+        userService.streamUpcomingBirthdays(NEW_YEARS_EVE_WINDOW_START, NEW_YEARS_EVE_WINDOW_DAYS, streamed::add);
+
+        assertEquals(List.of(newYearsEveUser, userDto), streamed);
+    }
+
+    @Test
+    void findFieldsByBirthDateRange_selectedFields_returnsOnlyThoseFields() {
+        LocalDate start = LocalDate.of(1990, 1, 1);
+        LocalDate end = LocalDate.of(2000, 12, 31);
+        Set<UserField> fields = EnumSet.of(UserField.ID, UserField.EMAIL);
+        Tuple row = mock(Tuple.class);
+        when(row.get(UserField.ID.getFieldName())).thenReturn(ID_ONE);
+        when(row.get(UserField.EMAIL.getFieldName())).thenReturn(EMAIL_VALID);
+        when(userRepository.findFieldsByBirthDateBetween(fields, start, end)).thenReturn(List.of(row));
+
+        List<Map<String, Object>> actual = userService.findFieldsByBirthDateRange(start, end, fields);
+
+        assertEquals(List.of(Map.of("id", ID_ONE, "email", EMAIL_VALID)), actual);
+    }
+
+    @Test
+    void findFieldPageByBirthDateRange_moreRowsThanPageSize_returnsNextCursor() {
+        LocalDate start = LocalDate.of(1990, 1, 1);
+        LocalDate end = LocalDate.of(2000, 12, 31);
+        Set<UserField> fields = EnumSet.of(UserField.EMAIL);
+        Tuple first = mock(Tuple.class);
+        when(first.get(UserField.EMAIL.getFieldName())).thenReturn(EMAIL_VALID);
+        when(first.get(UserField.ID.getFieldName(), Long.class)).thenReturn(ID_ONE);
+        when(first.get(UserField.BIRTH_DATE.getFieldName(), LocalDate.class)).thenReturn(BIRTH_DATE_VALID);
+        Tuple next = mock(Tuple.class);
+        when(userRepository.findFieldPageByBirthDateBetween(fields, start, end, start, 0L, PAGE_SIZE + 1))
+                .thenReturn(List.of(first, next));
+
+        CursorPageDto<Map<String, Object>> actual =
+                userService.findFieldPageByBirthDateRange(start, end, null, PAGE_SIZE, fields);
+
+        assertEquals(List.of(Map.of("email", EMAIL_VALID)), actual.getContent());
+        assertEquals(new KeysetCursor(BIRTH_DATE_VALID, ID_ONE), KeysetCursor.decode(actual.getNextCursor()));
+    }
+
+    @Test
+    void findFieldsById_cachedUser_returnsOnlySelectedFields() {
+        when(userCache.getById(ID_ONE)).thenReturn(Optional.of(userDto));
+
+        Map<String, Object> actual = userService.findFieldsById(ID_ONE, EnumSet.of(UserField.FIRST_NAME));
+
+        assertEquals(Map.of("firstName", FIRST_NAME), actual);
+    }
+
+    private UserDto newYearsEveUser() {
+        UserDto newYearsEveUser = new UserDto();
+        newYearsEveUser.setId(ID_TWO);
+        newYearsEveUser.setBirthDate(LocalDate.of(1990, 12, 31));
+        return newYearsEveUser;
+    }
+
+    private void verifyChangeRecorded(Long id, UserChangeType changeType) {
+        verify(userChangeRepository).save(argThat((UserChange change) ->
+                change.getUserId().equals(id) && change.getChangeType() == changeType));
     }
 
     private UserDto toUserDto(User user) {
@@ -168,8 +913,8 @@ class UserServiceImplTest {
                 user.getLastName(),
                 user.getBirthDate(),
                 user.getAddress(),
-                user.getPhoneNumber()
-
+                user.getPhoneNumber(),
+                user.getVersion()
         );
     }
 